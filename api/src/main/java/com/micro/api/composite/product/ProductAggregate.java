@@ -9,6 +9,9 @@ public class ProductAggregate {
   private final List<RecommendationSummary> recommendations;
   private final List<ReviewSummary> reviews;
   private final ServiceAddresses serviceAddress;
+  // Passed as after to get the next page, null when the embedded page is the last one
+  private final Integer recommendationsCursor;
+  private final Integer reviewsCursor;
 
   public ProductAggregate() {
     productId = 0;
@@ -17,6 +20,8 @@ public class ProductAggregate {
     recommendations = null;
     reviews = null;
     serviceAddress = null;
+    recommendationsCursor = null;
+    reviewsCursor = null;
   }
 
   public ProductAggregate(
@@ -27,12 +32,27 @@ public class ProductAggregate {
       List<ReviewSummary> reviews,
       ServiceAddresses serviceAddresses) {
 
+    this(productId, name, weight, recommendations, reviews, serviceAddresses, null, null);
+  }
+
+  public ProductAggregate(
+      int productId,
+      String name,
+      int weight,
+      List<RecommendationSummary> recommendations,
+      List<ReviewSummary> reviews,
+      ServiceAddresses serviceAddresses,
+      Integer recommendationsCursor,
+      Integer reviewsCursor) {
+
     this.productId = productId;
     this.name = name;
     this.weight = weight;
     this.recommendations = recommendations;
     this.reviews = reviews;
     this.serviceAddress = serviceAddresses;
+    this.recommendationsCursor = recommendationsCursor;
+    this.reviewsCursor = reviewsCursor;
   }
 
   public int getProductId() {
@@ -58,4 +78,12 @@ public class ProductAggregate {
   public ServiceAddresses getServiceAddresses() {
     return serviceAddress;
   }
+
+  public Integer getRecommendationsCursor() {
+    return recommendationsCursor;
+  }
+
+  public Integer getReviewsCursor() {
+    return reviewsCursor;
+  }
 }
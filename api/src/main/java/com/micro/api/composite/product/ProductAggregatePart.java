@@ -0,0 +1,93 @@
+package com.micro.api.composite.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of a streamed product composite. The first part of a stream is the PRODUCT header, followed by one
+ * RECOMMENDATION or REVIEW part per child in the order they arrive from the core services.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductAggregatePart {
+  public enum Type {
+    PRODUCT,
+    RECOMMENDATION,
+    REVIEW
+  }
+
+  private final Type type;
+  private final int productId;
+  private final String name;
+  private final Integer weight;
+  private final RecommendationSummary recommendation;
+  private final ReviewSummary review;
+  private final ServiceAddresses serviceAddresses;
+
+  public ProductAggregatePart() {
+    this.type = null;
+    this.productId = 0;
+    this.name = null;
+    this.weight = null;
+    this.recommendation = null;
+    this.review = null;
+    this.serviceAddresses = null;
+  }
+
+  private ProductAggregatePart(
+      Type type,
+      int productId,
+      String name,
+      Integer weight,
+      RecommendationSummary recommendation,
+      ReviewSummary review,
+      ServiceAddresses serviceAddresses) {
+
+    this.type = type;
+    this.productId = productId;
+    this.name = name;
+    this.weight = weight;
+    this.recommendation = recommendation;
+    this.review = review;
+    this.serviceAddresses = serviceAddresses;
+  }
+
+  public static ProductAggregatePart product(int productId, String name, int weight,
+      ServiceAddresses serviceAddresses) {
+    return new ProductAggregatePart(Type.PRODUCT, productId, name, weight, null, null, serviceAddresses);
+  }
+
+  public static ProductAggregatePart recommendation(int productId, RecommendationSummary recommendation) {
+    return new ProductAggregatePart(Type.RECOMMENDATION, productId, null, null, recommendation, null, null);
+  }
+
+  public static ProductAggregatePart review(int productId, ReviewSummary review) {
+    return new ProductAggregatePart(Type.REVIEW, productId, null, null, null, review, null);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Integer getWeight() {
+    return weight;
+  }
+
+  public RecommendationSummary getRecommendation() {
+    return recommendation;
+  }
+
+  public ReviewSummary getReview() {
+    return review;
+  }
+
+  public ServiceAddresses getServiceAddresses() {
+    return serviceAddresses;
+  }
+}
@@ -1,5 +1,7 @@
 package com.micro.api.composite.product;
 
+import java.util.List;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
@@ -7,6 +9,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Tag(name = "ProductComposite", description = "REST API FOR COMPOSITE PRODUCT SERVICE")
@@ -31,6 +34,58 @@ public interface ProductCompositeService {
   @GetMapping(value = "/product-composite/{productId}", produces = "application/json")
   Mono<ProductAggregate> getProduct(@PathVariable int productId);
 
+  @Operation(summary = "${api.product-composite.get-composite-products.description}", description = "${api.product-composite.get-composite-products.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(value = "/product-composite", produces = "application/json")
+  Flux<ProductAggregate> getProducts(@RequestParam(value = "ids", required = true) List<Integer> productIds);
+
+  @Operation(summary = "${api.product-composite.get-composite-summaries.description}", description = "${api.product-composite.get-composite-summaries.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(value = "/product-composite/summary", produces = "application/json")
+  Flux<ProductSummary> getProductSummaries(@RequestParam(value = "ids", required = true) List<Integer> productIds);
+
+  @Operation(summary = "${api.product-composite.get-composite-recommendations.description}", description = "${api.product-composite.get-composite-recommendations.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(value = "/product-composite/{productId}/recommendations", produces = "application/json")
+  Flux<RecommendationSummary> getProductRecommendations(
+      @PathVariable int productId,
+      @RequestParam(value = "after", required = false, defaultValue = "0") int after,
+      @RequestParam(value = "limit", required = false) Integer limit);
+
+  @Operation(summary = "${api.product-composite.get-composite-reviews.description}", description = "${api.product-composite.get-composite-reviews.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(value = "/product-composite/{productId}/reviews", produces = "application/json")
+  Flux<ReviewSummary> getProductReviews(
+      @PathVariable int productId,
+      @RequestParam(value = "after", required = false, defaultValue = "0") int after,
+      @RequestParam(value = "limit", required = false) Integer limit);
+
+  @Operation(summary = "${api.product-composite.stream-composite-product.description}", description = "${api.product-composite.stream-composite-product.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(value = "/product-composite/{productId}/stream", produces = "application/x-ndjson")
+  Flux<ProductAggregatePart> streamProduct(@PathVariable int productId);
+
   @Operation(summary = "${api.product-composite.delete-composite-product.description}", description = "${api.product-composite.delete-composite-product.notes}")
   @ApiResponses({
       @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
@@ -0,0 +1,59 @@
+package com.micro.api.composite.product;
+
+public class ProductSummary {
+  private final int productId;
+  private final String name;
+  private final int weight;
+  private final long recommendationCount;
+  private final double averageRate;
+  private final long reviewCount;
+
+  public ProductSummary() {
+    this.productId = 0;
+    this.name = null;
+    this.weight = 0;
+    this.recommendationCount = 0;
+    this.averageRate = 0;
+    this.reviewCount = 0;
+  }
+
+  public ProductSummary(
+      int productId,
+      String name,
+      int weight,
+      long recommendationCount,
+      double averageRate,
+      long reviewCount) {
+
+    this.productId = productId;
+    this.name = name;
+    this.weight = weight;
+    this.recommendationCount = recommendationCount;
+    this.averageRate = averageRate;
+    this.reviewCount = reviewCount;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getWeight() {
+    return weight;
+  }
+
+  public long getRecommendationCount() {
+    return recommendationCount;
+  }
+
+  public double getAverageRate() {
+    return averageRate;
+  }
+
+  public long getReviewCount() {
+    return reviewCount;
+  }
+}
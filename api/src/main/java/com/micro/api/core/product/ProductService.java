@@ -1,7 +1,10 @@
 package com.micro.api.core.product;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.*;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ProductService {
@@ -11,5 +14,8 @@ public interface ProductService {
   @GetMapping(value = "/product/{productId}", produces = "application/json")
   Mono<Product> getProduct(@PathVariable("productId") int productId);
 
+  @GetMapping(value = "/product", produces = "application/json")
+  Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   Mono<Void> deleteProduct(@PathVariable("productId") int productId);
 }
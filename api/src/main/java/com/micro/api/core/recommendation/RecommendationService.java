@@ -1,5 +1,7 @@
 package com.micro.api.core.recommendation;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.*;
 
 import reactor.core.publisher.Flux;
@@ -9,8 +11,25 @@ public interface RecommendationService {
 
   Mono<Recommendation> createRecommendation(@RequestBody Recommendation recommendation);
 
-  @GetMapping(value = "/recommendation", produces = "application/json")
+  Flux<Recommendation> createRecommendations(@RequestBody List<Recommendation> recommendations);
+
+  @GetMapping(value = "/recommendation", produces = { "application/json", "application/x-ndjson" })
   Flux<Recommendation> getRecommendations(@RequestParam(value = "productId", required = true) int productId);
 
+  // One page ordered by recommendationId, the recommendationId of the last one is the cursor for the next page
+  @GetMapping(value = "/recommendation", params = "limit", produces = { "application/json", "application/x-ndjson" })
+  Flux<Recommendation> getRecommendations(
+      @RequestParam(value = "productId", required = true) int productId,
+      @RequestParam(value = "limit", required = true) int limit,
+      @RequestParam(value = "after", required = false, defaultValue = "0") int after);
+
+  @GetMapping(value = "/recommendation", params = "productIds", produces = { "application/json", "application/x-ndjson" })
+  Flux<Recommendation> getRecommendations(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+  // Kept up to date as recommendations are created and deleted, products without recommendations have a count of 0
+  @GetMapping(value = "/recommendation/stats", produces = "application/json")
+  Flux<RecommendationStats> getRecommendationStats(
+      @RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   Mono<Void> deleteRecommendations(@RequestParam(value = "productId", required = true) int prodcutId);
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.micro.api.core.recommendation;
+
+public class RecommendationStats {
+  private final int productId;
+  private final long count;
+  private final double averageRate;
+
+  public RecommendationStats() {
+    this.productId = 0;
+    this.count = 0;
+    this.averageRate = 0;
+  }
+
+  public RecommendationStats(int productId, long count, double averageRate) {
+    this.productId = productId;
+    this.count = count;
+    this.averageRate = averageRate;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getAverageRate() {
+    return averageRate;
+  }
+}
@@ -1,5 +1,7 @@
 package com.micro.api.core.review;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.*;
 
 import reactor.core.publisher.Flux;
@@ -9,8 +11,24 @@ public interface ReviewService {
 
   Mono<Review> createReview(@RequestBody Review review);
 
-  @GetMapping(value = "/review", produces = "application/json")
+  Flux<Review> createReviews(@RequestBody List<Review> reviews);
+
+  @GetMapping(value = "/review", produces = { "application/json", "application/x-ndjson" })
   Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
 
+  // One page ordered by reviewId, the reviewId of the last review is the cursor for the next page
+  @GetMapping(value = "/review", params = "limit", produces = { "application/json", "application/x-ndjson" })
+  Flux<Review> getReviews(
+      @RequestParam(value = "productId", required = true) int productId,
+      @RequestParam(value = "limit", required = true) int limit,
+      @RequestParam(value = "after", required = false, defaultValue = "0") int after);
+
+  @GetMapping(value = "/review", params = "productIds", produces = { "application/json", "application/x-ndjson" })
+  Flux<Review> getReviews(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+  // Kept up to date as reviews are created and deleted, products without reviews have a count of 0
+  @GetMapping(value = "/review/stats", produces = "application/json")
+  Flux<ReviewStats> getReviewStats(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true) int productId);
 }
@@ -0,0 +1,24 @@
+package com.micro.api.core.review;
+
+public class ReviewStats {
+  private final int productId;
+  private final long count;
+
+  public ReviewStats() {
+    this.productId = 0;
+    this.count = 0;
+  }
+
+  public ReviewStats(int productId, long count) {
+    this.productId = productId;
+    this.count = count;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public long getCount() {
+    return count;
+  }
+}
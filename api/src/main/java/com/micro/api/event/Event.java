@@ -3,33 +3,62 @@ package com.micro.api.event;
 import static java.time.ZonedDateTime.now;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.ser.ZonedDateTimeSerializer;
 
 public class Event<K, T> {
   public enum Type {
     CREATE,
+    CREATE_BULK,
     DELETE
   }
 
+  // Unique per published event, a redelivered message carries the id of the event it was published with
+  private final UUID eventId;
   private final Type eventType;
   private final K key;
   private final T data;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private final List<T> bulkData;
   private final ZonedDateTime creationDate;
 
   public Event() {
+    this.eventId = null;
     this.eventType = null;
     this.key = null;
     this.data = null;
+    this.bulkData = null;
     this.creationDate = null;
   }
 
   public Event(Type evenType, K key, T data) {
-    this.eventType = evenType;
+    this(evenType, key, data, null);
+  }
+
+  private Event(Type eventType, K key, T data, List<T> bulkData) {
+    this(UUID.randomUUID(), eventType, key, data, bulkData, now());
+  }
+
+  // Recreates an event read from a binary message, which carries its own id and creation date
+  public Event(UUID eventId, Type eventType, K key, T data, List<T> bulkData, ZonedDateTime creationDate) {
+    this.eventId = eventId;
+    this.eventType = eventType;
     this.key = key;
     this.data = data;
-    this.creationDate = now();
+    this.bulkData = bulkData;
+    this.creationDate = creationDate;
+  }
+
+  public static <K, T> Event<K, T> bulkCreate(K key, List<T> bulkData) {
+    return new Event<>(Type.CREATE_BULK, key, null, bulkData);
+  }
+
+  public UUID getEventId() {
+    return eventId;
   }
 
   public Type getEventType() {
@@ -44,6 +73,10 @@ public class Event<K, T> {
     return this.data;
   }
 
+  public List<T> getBulkData() {
+    return this.bulkData;
+  }
+
   @JsonSerialize(using = ZonedDateTimeSerializer.class)
   public ZonedDateTime getCreationDate() {
     return creationDate;
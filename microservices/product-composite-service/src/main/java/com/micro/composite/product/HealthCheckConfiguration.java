@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
+import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.ReactiveHealthContributor;
 import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
 import org.springframework.context.annotation.Bean;
@@ -12,21 +13,46 @@ import org.springframework.context.annotation.Configuration;
 
 import com.micro.composite.product.services.ProductCompositeIntegration;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import reactor.core.publisher.Mono;
+
 @Configuration
 public class HealthCheckConfiguration {
 
   @Autowired
   ProductCompositeIntegration integration;
 
+  @Autowired
+  CircuitBreakerRegistry circuitBreakers;
+
+  @Autowired
+  BulkheadRegistry bulkheads;
+
   @Bean
   ReactiveHealthContributor coreServices() {
     final Map<String, ReactiveHealthIndicator> registry = new LinkedHashMap<>();
 
-    registry.put("products", () -> integration.getProductHealth());
-    registry.put("recommendations", () -> integration.getRecommendationsHealth());
-    registry.put("reviews", () -> integration.getReviewsHealth());
+    registry.put("products", () -> withGuards("product", integration.getProductHealth()));
+    registry.put("recommendations", () -> withGuards("recommendation", integration.getRecommendationsHealth()));
+    registry.put("reviews", () -> withGuards("review", integration.getReviewsHealth()));
 
     return CompositeReactiveHealthContributor.fromMap(registry);
   }
 
+  // The status stays the one of the health endpoint of the service, which is called past the circuit breaker, the
+  // state of the breaker and the free bulkhead permits are added as details
+  private Mono<Health> withGuards(String dependency, Mono<Health> health) {
+    CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(dependency);
+    Bulkhead bulkhead = bulkheads.bulkhead(dependency);
+
+    return health.map(h -> Health.status(h.getStatus())
+        .withDetails(h.getDetails())
+        .withDetail("circuitBreaker", circuitBreaker.getState())
+        .withDetail("failureRate", circuitBreaker.getMetrics().getFailureRate())
+        .withDetail("bulkheadAvailableCalls", bulkhead.getMetrics().getAvailableConcurrentCalls())
+        .build());
+  }
 }
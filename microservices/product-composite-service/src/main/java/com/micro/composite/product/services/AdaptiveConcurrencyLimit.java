@@ -0,0 +1,110 @@
+package com.micro.composite.product.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Concurrency limit that follows the latency of the requests it lets through, an AIMD limit driven by a latency
+ * gradient like TCP Vegas: the lowest latency seen is taken as the no load latency, a request that took more than
+ * tolerance times as long or failed shows that requests are queueing somewhere downstream and shrinks the limit by
+ * backoffRatio, any other request grows it by one as long as at least half of the limit is in use. Like TCP backs
+ * off once per round trip, the limit shrinks at most once per limit samples: the requests that were already in flight
+ * when it shrank saw the old queue and would otherwise shrink it again for the same congestion.
+ *
+ * Every probeSamples requests the no load latency is replaced by the lowest latency of those requests, so the limit
+ * recovers when the services got slower for good, e.g. after a deployment, instead of shedding against a baseline
+ * that can no longer be reached.
+ */
+public class AdaptiveConcurrencyLimit {
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final double backoffRatio;
+  private final int probeSamples;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private volatile double limit;
+  private long noLoadNanos;
+  private long windowMinNanos = Long.MAX_VALUE;
+  private int samples;
+  private int samplesSinceBackoff = Integer.MAX_VALUE;
+
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio,
+      int probeSamples) {
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.backoffRatio = backoffRatio;
+    this.probeSamples = probeSamples;
+  }
+
+  public void bindTo(MeterRegistry registry, String name, Tags tags) {
+    Gauge.builder(name + ".limit", this, AdaptiveConcurrencyLimit::getLimit)
+        .description("Requests the adaptive limit currently lets in concurrently")
+        .tags(tags)
+        .register(registry);
+    Gauge.builder(name + ".inflight", inFlight, AtomicInteger::get)
+        .description("Requests currently in flight under the adaptive limit")
+        .tags(tags)
+        .register(registry);
+  }
+
+  // Returns false when the limit is reached, the caller must then shed the request and not call onSample
+  public boolean tryAcquire() {
+    int limitNow = getLimit();
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limitNow) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  // Releases the slot without a sample, for requests whose latency says nothing about the load, e.g. cancelled ones
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  public void onSample(long latencyNanos, boolean failed) {
+    int inFlightNow = inFlight.getAndDecrement();
+
+    synchronized (this) {
+      windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+      if (noLoadNanos == 0 || latencyNanos < noLoadNanos) {
+        noLoadNanos = latencyNanos;
+      }
+      if (++samples >= probeSamples) {
+        samples = 0;
+        noLoadNanos = windowMinNanos;
+        windowMinNanos = Long.MAX_VALUE;
+      }
+
+      if (samplesSinceBackoff < limit) {
+        samplesSinceBackoff++;
+      }
+      if (failed || latencyNanos > noLoadNanos * tolerance) {
+        if (samplesSinceBackoff >= limit) {
+          samplesSinceBackoff = 0;
+          limit = Math.max(minLimit, limit * backoffRatio);
+        }
+      } else if (inFlightNow * 2 >= limit) {
+        limit = Math.min(maxLimit, limit + 1);
+      }
+    }
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -0,0 +1,34 @@
+package com.micro.composite.product.services;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.micro.api.event.Event;
+
+@Configuration
+public class CacheInvalidationConfig {
+  private static final Logger LOG = LoggerFactory.getLogger(CacheInvalidationConfig.class);
+
+  private final ProductAggregateCache cache;
+
+  public CacheInvalidationConfig(ProductAggregateCache cache) {
+    this.cache = cache;
+  }
+
+  @Bean
+  Consumer<Event<Integer, Object>> cacheInvalidator() {
+    return event -> {
+      if (event.getKey() == null) {
+        LOG.warn("Ignoring {} event without a key", event.getEventType());
+        return;
+      }
+
+      LOG.debug("Got a {} event for product id {}, invalidating cache", event.getEventType(), event.getKey());
+      cache.invalidate(event.getKey());
+    };
+  }
+}
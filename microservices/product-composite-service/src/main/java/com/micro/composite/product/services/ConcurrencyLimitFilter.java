@@ -0,0 +1,155 @@
+package com.micro.composite.product.services;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.util.http.HttpErrorInfo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Sheds /product-composite requests above the {@link AdaptiveConcurrencyLimit} of their route with a 503 before any
+ * work is done for them, instead of letting them queue in Netty, the WebClient pool and the publish-pool until the
+ * heap is full. Every route, a method and a path pattern, learns its own limit, a batch read or a summary fans out
+ * differently than a single product and would otherwise be judged by its latency.
+ *
+ * Every request let through feeds its latency back into the limit of its route, failed means an error or a 5xx
+ * answer other than 503, a 503 is a circuit breaker failing fast and says nothing about the load. Streams count
+ * against the limit but their duration is not a latency sample, nor is that of a request answered from the cache or
+ * the read model, see {@link LatencySample}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter implements WebFilter {
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+  private static final String PATH = "/product-composite";
+  private static final String STREAM = "/product-composite/{productId}/stream";
+
+  // The routes of ProductCompositeService, summary before the {productId} it would match as well
+  private static final List<PathPattern> ROUTES = List.of(
+      "/product-composite/summary",
+      "/product-composite/{productId}/recommendations",
+      "/product-composite/{productId}/reviews",
+      STREAM,
+      "/product-composite/{productId}",
+      "/product-composite")
+      .stream().map(PathPatternParser.defaultInstance::parse).toList();
+
+  private final MeterRegistry registry;
+  private final ObjectMapper mapper;
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final double backoffRatio;
+  private final int probeSamples;
+  private final ConcurrentMap<String, RouteLimit> limits = new ConcurrentHashMap<>();
+
+  public ConcurrencyLimitFilter(MeterRegistry registry, ObjectMapper mapper,
+      @Value("${app.limiter.initialLimit:20}") Integer initialLimit,
+      @Value("${app.limiter.minLimit:4}") Integer minLimit,
+      @Value("${app.limiter.maxLimit:200}") Integer maxLimit,
+      @Value("${app.limiter.tolerance:2.0}") Double tolerance,
+      @Value("${app.limiter.backoffRatio:0.9}") Double backoffRatio,
+      @Value("${app.limiter.probeSamples:1000}") Integer probeSamples) {
+    this.registry = registry;
+    this.mapper = mapper;
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.backoffRatio = backoffRatio;
+    this.probeSamples = probeSamples;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+    if (!path.value().startsWith(PATH)) {
+      return chain.filter(exchange);
+    }
+    PathPattern pattern = ROUTES.stream().filter(route -> route.matches(path)).findFirst().orElse(null);
+    if (pattern == null) {
+      return chain.filter(exchange);
+    }
+
+    RouteLimit route = limits.computeIfAbsent(exchange.getRequest().getMethod().name() + " " + pattern,
+        RouteLimit::new);
+    if (!route.limit.tryAcquire()) {
+      route.shed.increment();
+      LOG.debug("Shedding {}, limit {} of {} reached", path, route.limit.getLimit(), route.name);
+      return reject(exchange.getResponse(), path.value(), route.limit);
+    }
+
+    long start = System.nanoTime();
+    boolean stream = pattern.getPatternString().equals(STREAM);
+    LatencySample sample = new LatencySample();
+    return chain.filter(exchange).contextWrite(sample::addTo).doFinally(signal -> {
+      if (signal == SignalType.CANCEL || stream || sample.isSkipped()) {
+        route.limit.release();
+        return;
+      }
+      HttpStatusCode status = exchange.getResponse().getStatusCode();
+      boolean failed = signal == SignalType.ON_ERROR
+          || (status != null && status.is5xxServerError() && !status.isSameCodeAs(SERVICE_UNAVAILABLE));
+      route.limit.onSample(System.nanoTime() - start, failed);
+    });
+  }
+
+  private Mono<Void> reject(ServerHttpResponse response, String path, AdaptiveConcurrencyLimit limit) {
+    response.setStatusCode(SERVICE_UNAVAILABLE);
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    try {
+      byte[] body = mapper.writeValueAsBytes(
+          new HttpErrorInfo(SERVICE_UNAVAILABLE, path, "Too many concurrent requests, limit " + limit.getLimit()));
+      DataBuffer buffer = response.bufferFactory().wrap(body);
+      return response.writeWith(Mono.just(buffer));
+    } catch (JsonProcessingException e) {
+      return response.setComplete();
+    }
+  }
+
+  private class RouteLimit {
+    private final String name;
+    private final AdaptiveConcurrencyLimit limit;
+    private final Counter shed;
+
+    RouteLimit(String name) {
+      LOG.info("Creating the adaptive concurrency limit of {}", name);
+      this.name = name;
+      this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, backoffRatio,
+          probeSamples);
+      this.limit.bindTo(registry, "composite.concurrency", Tags.of("route", name));
+      this.shed = Counter.builder("composite.concurrency.shed")
+          .description("Requests answered with 503 because the adaptive limit was reached")
+          .tag("route", name)
+          .register(registry);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.micro.composite.product.services;
+
+import org.springframework.cloud.stream.binder.PartitionSelectorStrategy;
+import org.springframework.stereotype.Component;
+
+// Picks the partition of an event from its partitionKey with jump consistent hashing (Lamping and Veach) instead of
+// the hash code modulo the partition count. When the count grows from n to n + 1 only 1/(n + 1) of the products move,
+// all of them to the new partition, where the modulo moves nearly every product to another partition.
+@Component("consistentHashPartitionSelector")
+public class ConsistentHashPartitionSelector implements PartitionSelectorStrategy {
+
+  @Override
+  public int selectPartition(Object key, int partitionCount) {
+    return jump(mix(key.hashCode()), partitionCount);
+  }
+
+  static int jump(long key, int buckets) {
+    long bucket = -1;
+    long next = 0;
+    while (next < buckets) {
+      bucket = next;
+      key = key * 2862933555777941757L + 1;
+      next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+    }
+    return (int) bucket;
+  }
+
+  // Integer keys hash to themselves, the SplitMix64 finalizer spreads them over the bits the jump reads
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+}
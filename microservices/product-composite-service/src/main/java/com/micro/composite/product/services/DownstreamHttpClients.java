@@ -0,0 +1,109 @@
+package com.micro.composite.product.services;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * One Reactor Netty connection pool per core service, so a slow service cannot take the connections of the others
+ * and each pool can be sized for its service. The pools keep their connections alive and reuse the most recently
+ * released one first, idle connections are closed by the pool after maxIdleTimeMillis instead of piling up in
+ * TIME_WAIT when the server closes them under the client, which is why it has to stay below the keep-alive timeout
+ * of the core services. A request waits at most pendingAcquireTimeoutMillis for a connection.
+ *
+ * With app.downstream.h2c the calls are sent as HTTP/2 without TLS, with prior knowledge as the core services accept
+ * it next to HTTP/1.1. The calls of the fan-out are then multiplexed as streams over at most h2MaxConnections long
+ * lived connections per service instance, each carrying up to h2MaxConcurrentStreams calls at a time, maxConnections
+ * does not apply to them.
+ *
+ * Settings are read once per service from app.downstream.pool and can be overridden under
+ * app.downstream.&lt;dependency&gt;.pool. Pool usage and the time spent waiting for a connection are published as
+ * reactor.netty.connection.provider.* meters tagged with the name of the service, with h2c including the active and
+ * pending streams.
+ */
+@Component
+public class DownstreamHttpClients {
+  private static final Logger LOG = LoggerFactory.getLogger(DownstreamHttpClients.class);
+
+  private final Environment environment;
+  private final ConcurrentMap<String, ConnectionProvider> pools = new ConcurrentHashMap<>();
+
+  public DownstreamHttpClients(Environment environment) {
+    this.environment = environment;
+  }
+
+  public ClientHttpConnector connector(String dependency) {
+    ConnectionProvider pool = pools.computeIfAbsent(dependency, this::createPool);
+    HttpClient client = HttpClient.create(pool)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, setting(dependency, "connectTimeoutMillis", 1000))
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        .keepAlive(true);
+    if (h2c(dependency)) {
+      client = client.protocol(HttpProtocol.H2C);
+    }
+    return new ReactorClientHttpConnector(client);
+  }
+
+  @PreDestroy
+  void stop() {
+    pools.values().forEach(ConnectionProvider::dispose);
+  }
+
+  private ConnectionProvider createPool(String name) {
+    int maxConnections = setting(name, "maxConnections", 50);
+    int pendingAcquireMaxCount = setting(name, "pendingAcquireMaxCount", 500);
+    Duration pendingAcquireTimeout = Duration.ofMillis(setting(name, "pendingAcquireTimeoutMillis", 1000));
+    Duration maxIdleTime = Duration.ofMillis(setting(name, "maxIdleTimeMillis", 20000));
+    Duration maxLifeTime = Duration.ofMillis(setting(name, "maxLifeTimeMillis", 300000));
+
+    ConnectionProvider.Builder builder = ConnectionProvider.builder(name);
+    if (h2c(name)) {
+      int h2MaxConnections = setting(name, "h2MaxConnections", 4);
+      int h2MaxConcurrentStreams = setting(name, "h2MaxConcurrentStreams", 100);
+      LOG.info("Connection pool to {}: h2c, {} connections with {} streams each, maxConnections {} does not apply",
+          name, h2MaxConnections, h2MaxConcurrentStreams, maxConnections);
+      builder.allocationStrategy(Http2AllocationStrategy.builder()
+          .minConnections(1)
+          .maxConnections(h2MaxConnections)
+          .maxConcurrentStreams(h2MaxConcurrentStreams)
+          .build());
+    } else {
+      LOG.info("Connection pool to {}: {} connections, {} pending acquires, idle connections closed after {}",
+          name, maxConnections, pendingAcquireMaxCount, maxIdleTime);
+      builder.maxConnections(maxConnections);
+    }
+    return builder
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(maxIdleTime)
+        .maxLifeTime(maxLifeTime)
+        .evictInBackground(Duration.ofMillis(setting(name, "evictInBackgroundMillis", 10000)))
+        .lifo()
+        .metrics(true)
+        .build();
+  }
+
+  private boolean h2c(String dependency) {
+    return environment.getProperty("app.downstream." + dependency + ".h2c", Boolean.class,
+        environment.getProperty("app.downstream.h2c", Boolean.class, false));
+  }
+
+  private int setting(String dependency, String key, int defaultValue) {
+    return environment.getProperty("app.downstream." + dependency + ".pool." + key, Integer.class,
+        environment.getProperty("app.downstream.pool." + key, Integer.class, defaultValue));
+  }
+}
@@ -0,0 +1,171 @@
+package com.micro.composite.product.services;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import com.micro.api.event.Event;
+import com.micro.api.exceptions.EventProcessingException;
+import com.micro.api.exceptions.ServiceUnavailableException;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Sends the composite events in batches. Events for the same binding and key always hash to the same of lanes lanes,
+ * each lane collects up to batchSize events or lingerMillis and sends a batch as a single publish-pool task, grouped
+ * per binding and key, and does not start on its next batch before every event of the batch is acknowledged, so the
+ * order per key is kept.
+ *
+ * With confirms the publish of an event completes when the broker acknowledged it, a Rabbit publisher confirm
+ * correlated through the message header, or fails when it was not acknowledged within confirmTimeoutMillis. Without,
+ * e.g. under the kafka profile, it completes when the binder took the message and the producer batches and
+ * acknowledges on its own. At most queueSize events wait for a lane, publishing beyond that fails with a
+ * ServiceUnavailableException, a 503, instead of growing the heap until the broker catches up.
+ */
+@Component
+public class EventPublisher {
+  private static final Logger LOG = LoggerFactory.getLogger(EventPublisher.class);
+
+  private final StreamBridge streamBridge;
+  private final Scheduler publisherScheduler;
+  private final boolean confirms;
+  private final Duration confirmTimeout;
+  private final Sinks.Many<PendingEvent> pending;
+  private final Disposable publishing;
+
+  public EventPublisher(
+      StreamBridge streamBridge,
+      Scheduler publisherScheduler,
+      @Value("${app.publish.queueSize:10000}") Integer queueSize,
+      @Value("${app.publish.lanes:4}") Integer lanes,
+      @Value("${app.publish.batchSize:100}") Integer batchSize,
+      @Value("${app.publish.lingerMillis:5}") Integer lingerMillis,
+      @Value("${app.publish.confirms:false}") Boolean confirms,
+      @Value("${app.publish.confirmTimeoutMillis:5000}") Integer confirmTimeoutMillis) {
+
+    LOG.info("Creating event publisher with queueSize {}, {} lanes, batchSize {}, linger {}ms and confirms {}",
+        queueSize, lanes, batchSize, lingerMillis, confirms);
+    this.streamBridge = streamBridge;
+    this.publisherScheduler = publisherScheduler;
+    this.confirms = confirms;
+    this.confirmTimeout = Duration.ofMillis(confirmTimeoutMillis);
+    this.pending = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingEvent>get(queueSize).get());
+
+    // Every stage requests only what it can hold, so a lane waiting for its acknowledgements leaves the events in
+    // the bounded queue of the sink
+    this.publishing = pending.asFlux()
+        .groupBy(p -> Math.floorMod(p.key().hashCode(), lanes))
+        .flatMap(lane -> lane
+            .bufferTimeout(batchSize, Duration.ofMillis(lingerMillis), true)
+            .concatMap(this::sendBatch, 1), lanes)
+        .subscribe();
+  }
+
+  public Mono<Void> publish(String bindingName, Event<?, ?> event) {
+    return Mono.create(sink -> {
+      PendingEvent p = new PendingEvent(bindingName, event, sink);
+      Sinks.EmitResult result;
+      do {
+        result = pending.tryEmitNext(p);
+      } while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+
+      if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+        LOG.warn("Event queue full, refusing a {} message to {}", event.getEventType(), bindingName);
+        sink.error(new ServiceUnavailableException("Too many events waiting to be published to " + bindingName));
+      } else if (result.isFailure()) {
+        sink.error(new EventProcessingException("Event publisher stopped, " + result));
+      }
+    });
+  }
+
+  @PreDestroy
+  void stop() {
+    publishing.dispose();
+  }
+
+  private Mono<Void> sendBatch(List<PendingEvent> batch) {
+    LOG.debug("Publishing a batch of {} events", batch.size());
+
+    return Mono.fromCallable(() -> batch.stream()
+            .collect(groupingBy(PendingEvent::key, LinkedHashMap::new, toList()))
+            .values().stream()
+            .flatMap(List::stream)
+            .map(this::send)
+            .collect(toList()))
+        .subscribeOn(publisherScheduler)
+        .flatMap(Mono::when);
+  }
+
+  // Returns a Mono that completes when the publish of the event completed or failed
+  private Mono<Void> send(PendingEvent p) {
+    LOG.debug("Sending a {} message to a {}", p.event.getEventType(), p.bindingName);
+    try {
+      MessageBuilder<?> message = MessageBuilder.withPayload(p.event).setHeader("partitionKey", p.event.getKey());
+      CorrelationData correlation = confirms ? new CorrelationData() : null;
+      if (correlation != null) {
+        message.setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlation);
+      }
+
+      if (!streamBridge.send(p.bindingName, message.build())) {
+        p.sink.error(new EventProcessingException("Failed to send a message to " + p.bindingName));
+      } else if (correlation == null) {
+        p.sink.success();
+      } else {
+        return Mono.fromFuture(correlation.getFuture())
+            .timeout(confirmTimeout)
+            .doOnNext(confirm -> {
+              if (confirm.isAck()) {
+                p.sink.success();
+              } else {
+                p.sink.error(new EventProcessingException(
+                    "Message to " + p.bindingName + " not acknowledged: " + confirm.getReason()));
+              }
+            })
+            .onErrorResume(ex -> {
+              LOG.warn("No acknowledgement of a message to {}: {}", p.bindingName, ex.toString());
+              p.sink.error(new EventProcessingException("No acknowledgement of a message to " + p.bindingName));
+              return Mono.empty();
+            })
+            .then();
+      }
+    } catch (RuntimeException ex) {
+      LOG.warn("Sending a message to {} failed: {}", p.bindingName, ex.toString());
+      p.sink.error(ex);
+    }
+    return Mono.empty();
+  }
+
+  private static class PendingEvent {
+    private final String bindingName;
+    private final Event<?, ?> event;
+    private final MonoSink<Void> sink;
+
+    PendingEvent(String bindingName, Event<?, ?> event, MonoSink<Void> sink) {
+      this.bindingName = bindingName;
+      this.event = event;
+      this.sink = sink;
+    }
+
+    String key() {
+      return bindingName + ":" + event.getKey();
+    }
+  }
+}
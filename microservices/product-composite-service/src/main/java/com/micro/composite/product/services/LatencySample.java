@@ -0,0 +1,32 @@
+package com.micro.composite.product.services;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Lets a handler tell {@link ConcurrencyLimitFilter} that its request never reached the core services, e.g. because
+ * it was answered from the cache or the read model. Such a request still holds its slot under the limit, but its
+ * latency is left out of the samples: a hit in microseconds would become the no load latency of the route and make
+ * every ordinary fan-out look like congestion. The sample travels in the Reactor context of the request.
+ */
+final class LatencySample {
+  private static final String CONTEXT_KEY = LatencySample.class.getName();
+
+  private volatile boolean skipped;
+
+  Context addTo(Context context) {
+    return context.put(CONTEXT_KEY, this);
+  }
+
+  boolean isSkipped() {
+    return skipped;
+  }
+
+  // Outside a request under the limit, e.g. with the limiter off, this changes nothing
+  static <T> Mono<T> skip(Mono<T> mono) {
+    return Mono.deferContextual(context -> {
+      context.<LatencySample>getOrEmpty(CONTEXT_KEY).ifPresent(sample -> sample.skipped = true);
+      return mono;
+    });
+  }
+}
@@ -0,0 +1,61 @@
+package com.micro.composite.product.services;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.micro.api.composite.product.ProductAggregate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+@Component
+public class ProductAggregateCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+  private final AsyncCache<Integer, ProductAggregate> cache;
+
+  public ProductAggregateCache(
+      @Value("${app.cache.maxSize:10000}") Integer maxSize,
+      @Value("${app.cache.timeToLiveSeconds:30}") Integer timeToLiveSeconds,
+      MeterRegistry registry) {
+
+    LOG.info("Creating product aggregate cache with maxSize {} and timeToLive {}s", maxSize, timeToLiveSeconds);
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofSeconds(timeToLiveSeconds))
+        .recordStats()
+        .buildAsync();
+
+    CaffeineCacheMetrics.monitor(registry, cache, "productAggregates");
+  }
+
+  // Concurrent misses for the same product id share one in-flight load; failed or empty loads are not cached.
+  // Only the call that runs the load gives a latency sample to the concurrency limit, a hit or a call that joins a
+  // load in flight waits for less than a fan-out and would pull the no load latency down
+  public Mono<ProductAggregate> get(int productId, Function<Integer, Mono<ProductAggregate>> loader) {
+    return Mono.defer(() -> {
+      AtomicBoolean loaded = new AtomicBoolean();
+      CompletableFuture<ProductAggregate> aggregate = cache.get(productId, (key, executor) -> {
+        loaded.set(true);
+        return loader.apply(key).toFuture();
+      });
+      Mono<ProductAggregate> result = Mono.fromFuture(aggregate, true);
+      return loaded.get() ? result : LatencySample.skip(result);
+    });
+  }
+
+  public void invalidate(int productId) {
+    LOG.debug("Invalidating cached product aggregate for product id {}", productId);
+    cache.synchronous().invalidate(productId);
+  }
+}
@@ -6,14 +6,16 @@ import static com.micro.api.event.Event.Type.CREATE;
 import static com.micro.api.event.Event.Type.DELETE;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.health.Health;
-import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -23,16 +25,25 @@ import com.micro.api.core.product.Product;
 import com.micro.api.core.product.ProductService;
 import com.micro.api.core.recommendation.Recommendation;
 import com.micro.api.core.recommendation.RecommendationService;
+import com.micro.api.core.recommendation.RecommendationStats;
 import com.micro.api.core.review.Review;
 import com.micro.api.core.review.ReviewService;
+import com.micro.api.core.review.ReviewStats;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.InvalidInputException;
 import com.micro.api.exceptions.NotFoundException;
+import com.micro.api.exceptions.ServiceUnavailableException;
 import com.micro.util.http.HttpErrorInfo;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Scheduler;
 
 @Component
 public class ProductCompositeIntegration implements ProductService, RecommendationService, ReviewService {
@@ -40,31 +51,45 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
 
 
     private final ObjectMapper mapper;
-    private final WebClient webClient;
+    private final WebClient productClient;
+    private final WebClient recommendationClient;
+    private final WebClient reviewClient;
 
     private final String productServiceUrl = "http://product";
     private final String recommendationServiceUrl = "http://recommendation";
     private final String reviewServiceUrl = "http://review";
-    private final StreamBridge streamBridge;
-    private final Scheduler publicherScheduler;
+    private final EventPublisher publisher;
+    private final ProductAggregateCache cache;
+    private final RequestCoalescer coalescer;
+    private final RequestHedger hedger;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
 
     public ProductCompositeIntegration(
             ObjectMapper mapper,
             WebClient.Builder webClient,
-            StreamBridge streamBridge,
-            Scheduler publicherScheduler) {
+            DownstreamHttpClients httpClients,
+            EventPublisher publisher,
+            ProductAggregateCache cache,
+            RequestCoalescer coalescer,
+            RequestHedger hedger,
+            CircuitBreakerRegistry circuitBreakers,
+            BulkheadRegistry bulkheads) {
         this.mapper = mapper;
-        this.webClient = webClient.build();
-        this.streamBridge = streamBridge;
-        this.publicherScheduler = publicherScheduler;
+        this.productClient = webClient.clone().clientConnector(httpClients.connector("product")).build();
+        this.recommendationClient = webClient.clone().clientConnector(httpClients.connector("recommendation")).build();
+        this.reviewClient = webClient.clone().clientConnector(httpClients.connector("review")).build();
+        this.publisher = publisher;
+        this.cache = cache;
+        this.coalescer = coalescer;
+        this.hedger = hedger;
+        this.circuitBreakers = circuitBreakers;
+        this.bulkheads = bulkheads;
     }
 
     @Override
     public Mono<Product> createProduct(Product body) {
-        return Mono.fromCallable(() -> {
-            sendMessage("products-out-0", new Event<>(CREATE, body.getProductId(), body));
-            return body;
-        }).subscribeOn(publicherScheduler);
+        return sendMessage("products-out-0", new Event<>(CREATE, body.getProductId(), body)).thenReturn(body);
     }
 
     @Override
@@ -72,22 +97,36 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = productServiceUrl + "/product/" + productId;
         LOG.debug("Will call getProduct Api on url: {}", url);
 
-        return webClient.get().uri(url).retrieve().bodyToMono(Product.class).log(LOG.getName(), FINE)
+        return coalescer.mono("product", productId,
+                () -> guard("product", () -> productClient.get().uri(url).retrieve().bodyToMono(Product.class))
+                        .log(LOG.getName(), FINE)
+                        .onErrorMap(WebClientResponseException.class, this::handleException));
+    }
+
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        String url = productServiceUrl + "/product?productIds=" + joinIds(productIds);
+        LOG.debug("Will call getProducts Api on url: {}", url);
+
+        return guardMany("product", () -> productClient.get().uri(url).retrieve().bodyToFlux(Product.class))
+                .log(LOG.getName(), FINE)
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
     @Override
     public Mono<Void> deleteProduct(int productId) {
-        return Mono.fromRunnable(() -> sendMessage("products-out-0", new Event<>(DELETE, productId, null)))
-                .subscribeOn(publicherScheduler).then();
+        return sendMessage("products-out-0", new Event<>(DELETE, productId, null));
     }
 
     @Override
     public Mono<Recommendation> createRecommendation(Recommendation body) {
-        return Mono.fromCallable(() -> {
-            sendMessage("recommendations-out-0", new Event<>(CREATE, body.getProductId(), body));
-            return body;
-        }).subscribeOn(publicherScheduler);
+        return sendMessage("recommendations-out-0", new Event<>(CREATE, body.getProductId(), body)).thenReturn(body);
+    }
+
+    @Override
+    public Flux<Recommendation> createRecommendations(List<Recommendation> body) {
+        int productId = bulkKey(body.stream().map(Recommendation::getProductId).collect(Collectors.toList()));
+        return sendMessage("recommendations-out-0", Event.bulkCreate(productId, body)).thenMany(Flux.fromIterable(body));
     }
 
     @Override
@@ -95,23 +134,71 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = recommendationServiceUrl + "/recommendation?productId=" + productId;
         LOG.debug("Will call getRecommendations API on url {}", url);
 
-        return webClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class).log(LOG.getName(), FINE)
+        return coalescer.flux("recommendations", productId,
+                () -> guardMany("recommendation",
+                                () -> recommendationClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class))
+                        .log(LOG.getName(), FINE)
+                        .onErrorResume(ex -> empty()));
+
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendations(int productId, int limit, int after) {
+        String url = recommendationServiceUrl + "/recommendation?productId=" + productId + "&limit=" + limit + "&after=" + after;
+        LOG.debug("Will call getRecommendations API on url {}", url);
+
+        return coalescer.flux("recommendations", productId + ":" + after + ":" + limit,
+                () -> guardMany("recommendation",
+                                () -> recommendationClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class))
+                        .log(LOG.getName(), FINE)
+                        .onErrorMap(WebClientResponseException.class, this::handleException));
+    }
+
+    // Streams the recommendations line by line as newline delimited JSON, not coalesced since that would collect them
+    public Flux<Recommendation> streamRecommendations(int productId) {
+        String url = recommendationServiceUrl + "/recommendation?productId=" + productId;
+        LOG.debug("Will stream getRecommendations API on url {}", url);
+
+        return guardStream("recommendation", recommendationClient.get().uri(url).accept(MediaType.APPLICATION_NDJSON).retrieve()
+                .bodyToFlux(Recommendation.class)).log(LOG.getName(), FINE)
                 .onErrorResume(ex -> empty());
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+        String url = recommendationServiceUrl + "/recommendation?productIds=" + joinIds(productIds);
+        LOG.debug("Will call getRecommendations API on url {}", url);
 
+        return guardMany("recommendation", () -> recommendationClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class))
+                .log(LOG.getName(), FINE)
+                .onErrorResume(ex -> empty());
+    }
+
+    @Override
+    public Flux<RecommendationStats> getRecommendationStats(List<Integer> productIds) {
+        String url = recommendationServiceUrl + "/recommendation/stats?productIds=" + joinIds(productIds);
+        LOG.debug("Will call getRecommendationStats API on url {}", url);
+
+        return guardMany("recommendation",
+                        () -> recommendationClient.get().uri(url).retrieve().bodyToFlux(RecommendationStats.class))
+                .log(LOG.getName(), FINE)
+                .onErrorResume(ex -> empty());
     }
 
     @Override
     public Mono<Void> deleteRecommendations(int productId) {
-        return Mono.fromRunnable(() -> sendMessage("recommendations-out-0", new Event<>(DELETE, productId, null)))
-                .subscribeOn(publicherScheduler).then();
+        return sendMessage("recommendations-out-0", new Event<>(DELETE, productId, null));
     }
 
     @Override
     public Mono<Review> createReview(Review body) {
-        return Mono.fromCallable(() -> {
-            sendMessage("reviews-out-0", new Event<>(CREATE, body.getProductId(), body));
-            return body;
-        }).subscribeOn(publicherScheduler);
+        return sendMessage("reviews-out-0", new Event<>(CREATE, body.getProductId(), body)).thenReturn(body);
+    }
+
+    @Override
+    public Flux<Review> createReviews(List<Review> body) {
+        int productId = bulkKey(body.stream().map(Review::getProductId).collect(Collectors.toList()));
+        return sendMessage("reviews-out-0", Event.bulkCreate(productId, body)).thenMany(Flux.fromIterable(body));
     }
 
     @Override
@@ -119,42 +206,120 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = reviewServiceUrl + "/review?productId=" + productId;
         LOG.debug("Will call getReviews API on url {}", url);
 
-        return webClient.get().uri(url).retrieve().bodyToFlux(Review.class).log(LOG.getName(), FINE)
+        return coalescer.flux("reviews", productId,
+                () -> guardMany("review", () -> reviewClient.get().uri(url).retrieve().bodyToFlux(Review.class))
+                        .log(LOG.getName(), FINE)
+                        .onErrorResume(ex -> empty()));
+    }
+
+    @Override
+    public Flux<Review> getReviews(int productId, int limit, int after) {
+        String url = reviewServiceUrl + "/review?productId=" + productId + "&limit=" + limit + "&after=" + after;
+        LOG.debug("Will call getReviews API on url {}", url);
+
+        return coalescer.flux("reviews", productId + ":" + after + ":" + limit,
+                () -> guardMany("review", () -> reviewClient.get().uri(url).retrieve().bodyToFlux(Review.class))
+                        .log(LOG.getName(), FINE)
+                        .onErrorMap(WebClientResponseException.class, this::handleException));
+    }
+
+    public Flux<Review> streamReviews(int productId) {
+        String url = reviewServiceUrl + "/review?productId=" + productId;
+        LOG.debug("Will stream getReviews API on url {}", url);
+
+        return guardStream("review", reviewClient.get().uri(url).accept(MediaType.APPLICATION_NDJSON).retrieve()
+                .bodyToFlux(Review.class)).log(LOG.getName(), FINE)
+                .onErrorResume(ex -> empty());
+    }
+
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+        String url = reviewServiceUrl + "/review?productIds=" + joinIds(productIds);
+        LOG.debug("Will call getReviews API on url {}", url);
+
+        return guardMany("review", () -> reviewClient.get().uri(url).retrieve().bodyToFlux(Review.class))
+                .log(LOG.getName(), FINE)
+                .onErrorResume(ex -> empty());
+    }
+
+    @Override
+    public Flux<ReviewStats> getReviewStats(List<Integer> productIds) {
+        String url = reviewServiceUrl + "/review/stats?productIds=" + joinIds(productIds);
+        LOG.debug("Will call getReviewStats API on url {}", url);
+
+        return guardMany("review", () -> reviewClient.get().uri(url).retrieve().bodyToFlux(ReviewStats.class))
+                .log(LOG.getName(), FINE)
                 .onErrorResume(ex -> empty());
     }
 
     @Override
     public Mono<Void> deleteReviews(int productId) {
-        return Mono.fromRunnable(() -> sendMessage("reviews-out-0", new Event<>(DELETE, productId, null)))
-                .subscribeOn(publicherScheduler).then();
+        return sendMessage("reviews-out-0", new Event<>(DELETE, productId, null));
     }
 
     public Mono<Health> getProductHealth() {
-        return getHealth(productServiceUrl);
+        return getHealth(productClient, productServiceUrl);
     }
 
     public Mono<Health> getRecommendationsHealth() {
-        return getHealth(recommendationServiceUrl);
+        return getHealth(recommendationClient, recommendationServiceUrl);
     }
 
     public Mono<Health> getReviewsHealth() {
-        return getHealth(reviewServiceUrl);
+        return getHealth(reviewClient, reviewServiceUrl);
     }
 
-    private Mono<Health> getHealth(String url) {
+    private Mono<Health> getHealth(WebClient client, String url) {
         url += "/actuator/health";
         LOG.debug("Will call health endpoint on url {}", url);
-        return webClient.get().uri(url).retrieve().bodyToMono(String.class)
+        return client.get().uri(url).retrieve().bodyToMono(String.class)
                 .map(s -> new Health.Builder().up().build())
                 .onErrorResume(ex -> Mono.just(new Health.Builder().down(ex).build()))
                 .log(LOG.getName(), FINE);
     }
 
-    @SuppressWarnings("rawtypes")
-    private void sendMessage(String bindingName, Event event) {
-        LOG.debug("Sending a {} message to a {}", event.getEventType(), bindingName);
-        Message<?> message = MessageBuilder.withPayload(event).setHeader("partitionKey", event.getKey()).build();
-        streamBridge.send(bindingName, message);
+    // A bulk event is partitioned on its product id, so all entities in it must belong to the same product.
+    private int bulkKey(List<Integer> productIds) {
+        if (productIds.isEmpty() || productIds.stream().distinct().count() > 1) {
+            throw new InvalidInputException("A bulk event must contain entities of exactly one product, got: " + productIds);
+        }
+        return productIds.get(0);
+    }
+
+    // The circuit breaker and the bulkhead both see one call per request, timed out and hedged as a whole. A hedge
+    // runs under the permit of its call, so the bulkhead can never refuse it while the first attempt still runs,
+    // there are at most twice as many requests in flight as permits. Both fail fast when they refuse a call, the
+    // recommendation and review reads then degrade to empty like on any other error, product reads return 503. A call
+    // that times out is reported the same way, the dependency is there but too slow to answer.
+    private <T> Mono<T> guard(String dependency, Supplier<Mono<T>> request) {
+        return hedger.mono(dependency, request)
+                .transformDeferred(BulkheadOperator.of(bulkheads.bulkhead(dependency)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakers.circuitBreaker(dependency)))
+                .onErrorMap(CallNotPermittedException.class,
+                        ex -> new ServiceUnavailableException("Circuit breaker of " + dependency + " is open", ex))
+                .onErrorMap(BulkheadFullException.class,
+                        ex -> new ServiceUnavailableException("Too many concurrent calls to " + dependency, ex))
+                .onErrorMap(TimeoutException.class,
+                        ex -> new ServiceUnavailableException("Call to " + dependency + " timed out", ex));
+    }
+
+    private <T> Flux<T> guardMany(String dependency, Supplier<Flux<T>> request) {
+        return guard(dependency, () -> request.get().collectList()).flatMapIterable(list -> list);
+    }
+
+    // Streams are neither timed out nor hedged, a stream holds its bulkhead permit until the last element
+    private <T> Flux<T> guardStream(String dependency, Flux<T> stream) {
+        return stream.transformDeferred(BulkheadOperator.of(bulkheads.bulkhead(dependency)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakers.circuitBreaker(dependency)));
+    }
+
+    private String joinIds(List<Integer> productIds) {
+        return productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private Mono<Void> sendMessage(String bindingName, Event<Integer, ?> event) {
+        LOG.debug("Queueing a {} message to a {}", event.getEventType(), bindingName);
+        return publisher.publish(bindingName, event).doOnSuccess(v -> cache.invalidate(event.getKey()));
     }
 
     private Throwable handleException(Throwable ex) {
@@ -2,35 +2,68 @@ package com.micro.composite.product.services;
 
 import static java.util.logging.Level.FINE;
 
+import static java.util.Collections.emptyList;
+
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.micro.api.composite.product.ProductAggregate;
+import com.micro.api.composite.product.ProductAggregatePart;
 import com.micro.api.composite.product.ProductCompositeService;
+import com.micro.api.composite.product.ProductSummary;
 import com.micro.api.composite.product.RecommendationSummary;
 import com.micro.api.composite.product.ReviewSummary;
 import com.micro.api.composite.product.ServiceAddresses;
 import com.micro.api.core.product.Product;
 import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.recommendation.RecommendationStats;
 import com.micro.api.core.review.Review;
+import com.micro.api.core.review.ReviewStats;
+import com.micro.api.exceptions.BadRequestException;
+import com.micro.api.exceptions.InvalidInputException;
 import com.micro.util.http.ServiceUtil;
 
-import lombok.AllArgsConstructor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
-@AllArgsConstructor
 public class ProductCompositeServiceImpl implements ProductCompositeService {
 
   private final Logger LOG = LoggerFactory.getLogger(ProductCompositeServiceImpl.class);
 
   private final ServiceUtil serviceUtil;
   private ProductCompositeIntegration integration;
+  private final ProductAggregateCache cache;
+  private final int pageSize;
+  private final int maxPageSize;
+  private final int maxBatchSize;
+  private final Optional<ProductReadModel> readModel;
+
+  public ProductCompositeServiceImpl(
+      ServiceUtil serviceUtil,
+      ProductCompositeIntegration integration,
+      ProductAggregateCache cache,
+      Optional<ProductReadModel> readModel,
+      @Value("${app.page.size:20}") Integer pageSize,
+      @Value("${app.page.maxSize:200}") Integer maxPageSize,
+      @Value("${app.batch.maxSize:100}") Integer maxBatchSize) {
+    this.serviceUtil = serviceUtil;
+    this.integration = integration;
+    this.cache = cache;
+    this.readModel = readModel;
+    this.pageSize = pageSize;
+    this.maxPageSize = maxPageSize;
+    this.maxBatchSize = maxBatchSize;
+  }
 
   @Override
   public Mono<Void> createProduct(ProductAggregate body) {
@@ -42,26 +75,35 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
           new Product(body.getProductId(), body.getName(), body.getWeight(), null)));
 
       if (body.getRecommendations() != null) {
-        body.getRecommendations()
-            .forEach(r -> {
-              Recommendation rec = new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(),
-                  r.getRate(),
-                  r.getContent(), null);
-              monoList.add(integration.createRecommendation(rec));
-            });
+        List<Recommendation> recommendations = body.getRecommendations().stream()
+            .map(r -> new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(),
+                r.getContent(), null))
+            .collect(Collectors.toList());
+
+        // More than one child goes out as a single CREATE_BULK event
+        if (recommendations.size() == 1) {
+          monoList.add(integration.createRecommendation(recommendations.get(0)));
+        } else if (recommendations.size() > 1) {
+          monoList.add(integration.createRecommendations(recommendations).collectList());
+        }
       }
 
       if (body.getReviews() != null) {
-        body.getReviews().forEach(r -> {
-          Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(),
-              r.getContent(), null);
-          monoList.add(integration.createReview(review));
-        });
+        List<Review> reviews = body.getReviews().stream()
+            .map(r -> new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(),
+                r.getContent(), null))
+            .collect(Collectors.toList());
+
+        if (reviews.size() == 1) {
+          monoList.add(integration.createReview(reviews.get(0)));
+        } else if (reviews.size() > 1) {
+          monoList.add(integration.createReviews(reviews).collectList());
+        }
       }
 
       LOG.debug("Prodcut composite created for product id {}", body.getProductId());
       return Mono.zip(r -> "", monoList.toArray(new Mono[0]))
-          .doOnError(ex -> LOG.warn("product composite failed {}" + ex.toString())).then();
+          .doOnError(ex -> LOG.warn("product composite failed {}", ex.toString())).then();
 
     } catch (RuntimeException e) {
       LOG.warn("CreateComposite failed {}", e);
@@ -73,12 +115,105 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
   @Override
   public Mono<ProductAggregate> getProduct(int productId) {
     LOG.info("Going to get product composite for product id: " + productId);
+
+    // The read model is updated by the events themselves, so it is not put behind the invalidated cache
+    Optional<ProductReadModel.Materialized> materialized = readModel.flatMap(model -> model.find(productId,
+        pageSize + 1));
+    if (materialized.isPresent()) {
+      LOG.debug("Serving product id {} from the read model", productId);
+      return LatencySample.skip(Mono.just(createFirstPageAggregate(materialized.get().getProduct(),
+          materialized.get().getRecommendations(), materialized.get().getReviews(), serviceUtil.getServiceAddress())));
+    }
+
+    return cache.get(productId, this::getProductAggregate);
+  }
+
+  // Only the first page of the children is embedded, one extra is asked for to know whether there is a next page
+  @SuppressWarnings("unchecked")
+  private Mono<ProductAggregate> getProductAggregate(int productId) {
     return Mono.zip(
-        values -> createProductAggregate((Product) values[0], (List<Recommendation>) values[1],
+        values -> createFirstPageAggregate((Product) values[0], (List<Recommendation>) values[1],
             (List<Review>) values[2], serviceUtil.getServiceAddress()),
-        integration.getProduct(productId), integration.getRecommendations(productId).collectList(),
-        integration.getReviews(productId).collectList())
-        .doOnError(ex -> LOG.warn("getProductComposite failed {} " + ex.toString()))
+        integration.getProduct(productId),
+        integration.getRecommendations(productId, pageSize + 1, 0).onErrorResume(ex -> Flux.empty()).collectList(),
+        integration.getReviews(productId, pageSize + 1, 0).onErrorResume(ex -> Flux.empty()).collectList())
+        .doOnError(ex -> LOG.warn("getProductComposite failed {}", ex.toString()))
+        .log(LOG.getName(), FINE);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Flux<ProductAggregate> getProducts(List<Integer> productIds) {
+    LOG.info("Going to get product composites for product ids: " + productIds);
+    validBatch(productIds);
+    return Mono.zip(
+        values -> createProductAggregates((List<Product>) values[0],
+            (Map<Integer, Collection<Recommendation>>) values[1], (Map<Integer, Collection<Review>>) values[2],
+            serviceUtil.getServiceAddress()),
+        integration.getProducts(productIds).collectList(),
+        integration.getRecommendations(productIds).collectMultimap(Recommendation::getProductId),
+        integration.getReviews(productIds).collectMultimap(Review::getProductId))
+        .flatMapMany(Flux::fromIterable)
+        .doOnError(ex -> LOG.warn("getProductComposites failed {}", ex.toString()))
+        .log(LOG.getName(), FINE);
+  }
+
+  // The counts come from the counters the core services keep per product, no recommendation or review is read
+  @SuppressWarnings("unchecked")
+  @Override
+  public Flux<ProductSummary> getProductSummaries(List<Integer> productIds) {
+    LOG.info("Going to get product summaries for product ids: " + productIds);
+    validBatch(productIds);
+    return Mono.zip(
+        values -> createProductSummaries((List<Product>) values[0],
+            (Map<Integer, RecommendationStats>) values[1], (Map<Integer, ReviewStats>) values[2]),
+        integration.getProducts(productIds).collectList(),
+        integration.getRecommendationStats(productIds).collectMap(RecommendationStats::getProductId),
+        integration.getReviewStats(productIds).collectMap(ReviewStats::getProductId))
+        .flatMapMany(Flux::fromIterable)
+        .doOnError(ex -> LOG.warn("getProductSummaries failed {}", ex.toString()))
+        .log(LOG.getName(), FINE);
+  }
+
+  @Override
+  public Flux<RecommendationSummary> getProductRecommendations(int productId, int after, Integer limit) {
+    int pageLimit = validPageLimit(after, limit);
+    LOG.debug("Going to get {} recommendations after {} for product id: {}", pageLimit, after, productId);
+
+    return integration.getRecommendations(productId, pageLimit, after)
+        .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))
+        .log(LOG.getName(), FINE);
+  }
+
+  @Override
+  public Flux<ReviewSummary> getProductReviews(int productId, int after, Integer limit) {
+    int pageLimit = validPageLimit(after, limit);
+    LOG.debug("Going to get {} reviews after {} for product id: {}", pageLimit, after, productId);
+
+    return integration.getReviews(productId, pageLimit, after)
+        .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
+        .log(LOG.getName(), FINE);
+  }
+
+  // Nothing is collected or cached, the header goes out as soon as the product is found and every recommendation and
+  // review follows as soon as it is decoded, so a product with thousands of reviews never sits in memory as a whole
+  @Override
+  public Flux<ProductAggregatePart> streamProduct(int productId) {
+    LOG.info("Going to stream product composite for product id: " + productId);
+    String serviceAddress = serviceUtil.getServiceAddress();
+
+    return integration.getProduct(productId)
+        .flatMapMany(product -> Flux.concat(
+            Mono.just(ProductAggregatePart.product(product.getProductId(), product.getName(), product.getWeight(),
+                new ServiceAddresses(serviceAddress, product.getServiceAddress(), null, null))),
+            Flux.merge(
+                integration.streamRecommendations(productId)
+                    .map(r -> ProductAggregatePart.recommendation(productId,
+                        new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))),
+                integration.streamReviews(productId)
+                    .map(r -> ProductAggregatePart.review(productId,
+                        new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))))))
+        .doOnError(ex -> LOG.warn("streamProductComposite failed {}", ex.toString()))
         .log(LOG.getName(), FINE);
   }
 
@@ -86,17 +221,77 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
   public Mono<Void> deleteProduct(int productId) {
     try {
       LOG.debug("Going to delete composite for product id {}", productId);
-      return Mono.zip(r -> "",
+      // Mono.when waits for all three deletes, zip would complete on the first empty Mono and cancel the rest
+      return Mono.when(
           integration.deleteProduct(productId),
           integration.deleteRecommendations(productId),
           integration.deleteReviews(productId))
-          .doOnError(ex -> LOG.warn("delete product composiet failed {} " + ex.toString())).then();
+          .doOnError(ex -> LOG.warn("delete product composiet failed {}", ex.toString()));
     } catch (RuntimeException e) {
-      LOG.warn("delete composition failed {} " + e.toString());
+      LOG.warn("delete composition failed {}", e.toString());
       throw e;
     }
   }
 
+  private int validPageLimit(int after, Integer limit) {
+    int pageLimit = limit == null ? pageSize : limit;
+    if (after < 0 || pageLimit < 1 || pageLimit > maxPageSize) {
+      throw new InvalidInputException(
+          "Invalid page, after: " + after + ", limit: " + pageLimit + ", the limit must be 1 to " + maxPageSize);
+    }
+    return pageLimit;
+  }
+
+  private void validBatch(List<Integer> productIds) {
+    if (productIds.size() > maxBatchSize) {
+      throw new BadRequestException(
+          "Invalid batch, " + productIds.size() + " product ids asked for, at most " + maxBatchSize + " are allowed");
+    }
+  }
+
+  private ProductAggregate createFirstPageAggregate(Product product, List<Recommendation> recommendations,
+      List<Review> reviews, String serviceAddress) {
+
+    Integer recommendationsCursor = recommendations.size() > pageSize
+        ? recommendations.get(pageSize - 1).getRecommendationId()
+        : null;
+    Integer reviewsCursor = reviews.size() > pageSize ? reviews.get(pageSize - 1).getReviewId() : null;
+
+    ProductAggregate aggregate = createProductAggregate(product,
+        recommendations.subList(0, Math.min(pageSize, recommendations.size())),
+        reviews.subList(0, Math.min(pageSize, reviews.size())), serviceAddress);
+
+    return new ProductAggregate(aggregate.getProductId(), aggregate.getName(), aggregate.getWeight(),
+        aggregate.getRecommendations(), aggregate.getReviews(), aggregate.getServiceAddresses(),
+        recommendationsCursor, reviewsCursor);
+  }
+
+  private List<ProductAggregate> createProductAggregates(List<Product> products,
+      Map<Integer, Collection<Recommendation>> recommendations, Map<Integer, Collection<Review>> reviews,
+      String serviceAddress) {
+
+    return products.stream()
+        .map(p -> createProductAggregate(p,
+            new ArrayList<>(recommendations.getOrDefault(p.getProductId(), emptyList())),
+            new ArrayList<>(reviews.getOrDefault(p.getProductId(), emptyList())), serviceAddress))
+        .collect(Collectors.toList());
+  }
+
+  private List<ProductSummary> createProductSummaries(List<Product> products,
+      Map<Integer, RecommendationStats> recommendationStats, Map<Integer, ReviewStats> reviewStats) {
+
+    return products.stream()
+        .map(p -> {
+          RecommendationStats recommendations = recommendationStats.get(p.getProductId());
+          ReviewStats reviews = reviewStats.get(p.getProductId());
+          return new ProductSummary(p.getProductId(), p.getName(), p.getWeight(),
+              recommendations == null ? 0 : recommendations.getCount(),
+              recommendations == null ? 0 : recommendations.getAverageRate(),
+              reviews == null ? 0 : reviews.getCount());
+        })
+        .collect(Collectors.toList());
+  }
+
   private ProductAggregate createProductAggregate(Product product, List<Recommendation> recommendations,
       List<Review> reviews, String serviceAddress) {
 
@@ -0,0 +1,279 @@
+package com.micro.composite.product.services;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Denormalized product, recommendations and reviews per product id, kept up to date from the same events the core
+ * services consume, so a composite read is one keyed lookup instead of three calls.
+ *
+ * The model is in memory and only knows what it has seen since it was started, a product whose CREATE event it
+ * never got is not materialized and reads for it fall back to the core services. Started with the rebuild profile it
+ * replays the topics from the beginning instead.
+ *
+ * A create for a product, recommendation or review the model already holds follows app.duplicatePolicy like the core
+ * services do, only overwrite replaces it.
+ *
+ * Only the first page is served from the model, so of the recommendations and of the reviews of a product it keeps
+ * the maxChildren with the lowest ids, app.page.size plus the one that tells whether there is a next page. A child
+ * with a higher id is dropped, the later pages and a find for more children than that are left to the core services.
+ * Children are only created one by one or in bulk and deleted all together, so the kept ones are always the first.
+ *
+ * The topics are consumed independently, so the product can be applied before its recommendations and reviews. A
+ * product is only served once both child topics have applied an event created no earlier than the product, on the
+ * same partition when the binder tells the partition, until then its reads fall back to the core services. On a
+ * topic without new events that can take until the next event arrives.
+ *
+ * For every applied event the time since the event was created is recorded in readmodel.lag, per topic. The lag of
+ * the last event of each product is kept, readmodel.lag.max is the highest of them, i.e. the product that is furthest
+ * behind.
+ */
+public class ProductReadModel {
+  private static final Logger LOG = LoggerFactory.getLogger(ProductReadModel.class);
+
+  // Events without a partition, e.g. from an unpartitioned binding, are all counted under this one
+  public static final int NO_PARTITION = -1;
+
+  private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Long> recommendationsApplied = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Long> reviewsApplied = new ConcurrentHashMap<>();
+  private final DuplicatePolicy duplicatePolicy;
+  private final int maxChildren;
+  private final Timer productLag;
+  private final Timer recommendationLag;
+  private final Timer reviewLag;
+
+  public ProductReadModel(MeterRegistry registry, DuplicatePolicy duplicatePolicy, int maxChildren) {
+    this.duplicatePolicy = duplicatePolicy;
+    this.maxChildren = maxChildren;
+    this.productLag = lagTimer(registry, "products");
+    this.recommendationLag = lagTimer(registry, "recommendations");
+    this.reviewLag = lagTimer(registry, "reviews");
+
+    Gauge.builder("readmodel.products", entries, ConcurrentMap::size)
+        .description("Product ids held by the read model")
+        .register(registry);
+    Gauge.builder("readmodel.lag.max", this, model -> model.maxLagMillis())
+        .description("Highest lag of the last applied event of any product")
+        .baseUnit("milliseconds")
+        .register(registry);
+  }
+
+  public void applyProductEvent(Event<Integer, Product> event) {
+    applyProductEvent(event, NO_PARTITION);
+  }
+
+  public void applyProductEvent(Event<Integer, Product> event, int partition) {
+    switch (event.getEventType()) {
+      case CREATE:
+        update(event, entry -> {
+          if (entry.product == null || duplicatePolicy == DuplicatePolicy.OVERWRITE) {
+            entry.product = event.getData();
+            entry.productCreated = createdMillis(event);
+            entry.partition = partition;
+          }
+        });
+        break;
+      case DELETE:
+        update(event, entry -> entry.product = null);
+        break;
+      default:
+        LOG.warn("Ignoring {} product event for product id {}", event.getEventType(), event.getKey());
+        return;
+    }
+    record(productLag, event);
+  }
+
+  public void applyRecommendationEvent(Event<Integer, Recommendation> event) {
+    applyRecommendationEvent(event, NO_PARTITION);
+  }
+
+  public void applyRecommendationEvent(Event<Integer, Recommendation> event, int partition) {
+    switch (event.getEventType()) {
+      case CREATE:
+        update(event, entry -> put(entry.recommendations, event.getData(), Recommendation::getRecommendationId));
+        break;
+      case CREATE_BULK:
+        update(event, entry -> event.getBulkData()
+            .forEach(r -> put(entry.recommendations, r, Recommendation::getRecommendationId)));
+        break;
+      case DELETE:
+        update(event, entry -> entry.recommendations.clear());
+        break;
+      default:
+        LOG.warn("Ignoring {} recommendation event for product id {}", event.getEventType(), event.getKey());
+        return;
+    }
+    record(recommendationLag, event);
+    recommendationsApplied.merge(partition, createdMillis(event), Math::max);
+  }
+
+  public void applyReviewEvent(Event<Integer, Review> event) {
+    applyReviewEvent(event, NO_PARTITION);
+  }
+
+  public void applyReviewEvent(Event<Integer, Review> event, int partition) {
+    switch (event.getEventType()) {
+      case CREATE:
+        update(event, entry -> put(entry.reviews, event.getData(), Review::getReviewId));
+        break;
+      case CREATE_BULK:
+        update(event, entry -> event.getBulkData().forEach(r -> put(entry.reviews, r, Review::getReviewId)));
+        break;
+      case DELETE:
+        update(event, entry -> entry.reviews.clear());
+        break;
+      default:
+        LOG.warn("Ignoring {} review event for product id {}", event.getEventType(), event.getKey());
+        return;
+    }
+    record(reviewLag, event);
+    reviewsApplied.merge(partition, createdMillis(event), Math::max);
+  }
+
+  // The recommendations and reviews are ordered by id and cut at limit, the same as a first page from the core
+  // services. Empty when the product itself is not materialized, its children may still be on their way or limit
+  // is more than the model keeps.
+  public Optional<Materialized> find(int productId, int limit) {
+    if (limit > maxChildren) {
+      LOG.debug("A page of {} is more than the {} children the read model keeps", limit, maxChildren);
+      return Optional.empty();
+    }
+    Entry entry = entries.get(productId);
+    if (entry == null || entry.product == null) {
+      return Optional.empty();
+    }
+    if (!caughtUp(recommendationsApplied, entry) || !caughtUp(reviewsApplied, entry)) {
+      LOG.debug("The children of product id {} have not caught up in the read model yet", productId);
+      return Optional.empty();
+    }
+
+    return Optional.of(new Materialized(entry.product,
+        entry.recommendations.values().stream().limit(limit).collect(Collectors.toList()),
+        entry.reviews.values().stream().limit(limit).collect(Collectors.toList())));
+  }
+
+  private void update(Event<Integer, ?> event, Consumer<Entry> change) {
+    Integer productId = event.getKey();
+    if (productId == null) {
+      LOG.warn("Ignoring {} event without a key", event.getEventType());
+      return;
+    }
+
+    // compute serializes the events of one product id, which arrive on different binder threads per topic
+    entries.compute(productId, (id, entry) -> {
+      Entry updated = entry == null ? new Entry() : entry;
+      change.accept(updated);
+      updated.lagMillis = lagMillis(event);
+      return updated.isEmpty() ? null : updated;
+    });
+    LOG.debug("Applied {} event for product id {} to the read model", event.getEventType(), productId);
+  }
+
+  private <T> void put(NavigableMap<Integer, T> children, T child, Function<T, Integer> idOf) {
+    Integer id = idOf.apply(child);
+    if (children.size() >= maxChildren && !children.containsKey(id) && id > children.lastKey()) {
+      return;
+    }
+
+    if (duplicatePolicy == DuplicatePolicy.OVERWRITE) {
+      children.put(id, child);
+    } else {
+      children.putIfAbsent(id, child);
+    }
+    if (children.size() > maxChildren) {
+      children.pollLastEntry();
+    }
+  }
+
+  private boolean caughtUp(ConcurrentMap<Integer, Long> applied, Entry entry) {
+    return applied.getOrDefault(entry.partition, Long.MIN_VALUE) >= entry.productCreated;
+  }
+
+  private void record(Timer timer, Event<Integer, ?> event) {
+    timer.record(Duration.ofMillis(lagMillis(event)));
+  }
+
+  // Events without a creation date do not hold a product back
+  private long createdMillis(Event<Integer, ?> event) {
+    ZonedDateTime created = event.getCreationDate();
+    return created == null ? Long.MIN_VALUE : created.toInstant().toEpochMilli();
+  }
+
+  private long lagMillis(Event<Integer, ?> event) {
+    ZonedDateTime created = event.getCreationDate();
+    return created == null ? 0 : Math.max(0, Duration.between(created, ZonedDateTime.now()).toMillis());
+  }
+
+  private double maxLagMillis() {
+    return entries.values().stream().mapToLong(entry -> entry.lagMillis).max().orElse(0);
+  }
+
+  private static Timer lagTimer(MeterRegistry registry, String topic) {
+    return Timer.builder("readmodel.lag")
+        .description("Time from an event being created until it is applied to the read model")
+        .tag("topic", topic)
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+  }
+
+  public static class Materialized {
+    private final Product product;
+    private final List<Recommendation> recommendations;
+    private final List<Review> reviews;
+
+    Materialized(Product product, List<Recommendation> recommendations, List<Review> reviews) {
+      this.product = product;
+      this.recommendations = recommendations;
+      this.reviews = reviews;
+    }
+
+    public Product getProduct() {
+      return product;
+    }
+
+    public List<Recommendation> getRecommendations() {
+      return recommendations;
+    }
+
+    public List<Review> getReviews() {
+      return reviews;
+    }
+  }
+
+  // Children are kept in sorted concurrent maps so reads can iterate them while an event is being applied
+  private static class Entry {
+    private volatile Product product;
+    private volatile long productCreated;
+    private volatile int partition = NO_PARTITION;
+    private final NavigableMap<Integer, Recommendation> recommendations = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Integer, Review> reviews = new ConcurrentSkipListMap<>();
+    private volatile long lagMillis;
+
+    boolean isEmpty() {
+      return product == null && recommendations.isEmpty() && reviews.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.micro.composite.product.services;
+
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// One typed consumer per topic, the read_model profile adds them to spring.cloud.function.definition. The messages
+// are consumed whole for the partition Kafka received them on, the read model holds a product back per partition
+@Configuration
+@ConditionalOnProperty(name = "app.readModel.enabled", havingValue = "true")
+public class ReadModelConfig {
+
+  @Bean
+  ProductReadModel productReadModel(MeterRegistry registry,
+      @Value("${app.duplicatePolicy:reject}") DuplicatePolicy duplicatePolicy,
+      @Value("${app.page.size:20}") Integer pageSize) {
+    return new ProductReadModel(registry, duplicatePolicy, pageSize + 1);
+  }
+
+  @Bean
+  Consumer<Message<Event<Integer, Product>>> readModelProducts(ProductReadModel readModel) {
+    return message -> readModel.applyProductEvent(message.getPayload(), partitionOf(message));
+  }
+
+  @Bean
+  Consumer<Message<Event<Integer, Recommendation>>> readModelRecommendations(ProductReadModel readModel) {
+    return message -> readModel.applyRecommendationEvent(message.getPayload(), partitionOf(message));
+  }
+
+  @Bean
+  Consumer<Message<Event<Integer, Review>>> readModelReviews(ProductReadModel readModel) {
+    return message -> readModel.applyReviewEvent(message.getPayload(), partitionOf(message));
+  }
+
+  private int partitionOf(Message<?> message) {
+    Integer partition = message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, Integer.class);
+    return partition == null ? ProductReadModel.NO_PARTITION : partition;
+  }
+}
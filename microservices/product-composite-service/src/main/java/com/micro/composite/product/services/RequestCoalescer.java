@@ -0,0 +1,49 @@
+package com.micro.composite.product.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Component
+public class RequestCoalescer {
+  private static final Logger LOG = LoggerFactory.getLogger(RequestCoalescer.class);
+
+  private final ConcurrentMap<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+  private final MeterRegistry registry;
+
+  public RequestCoalescer(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  // Identical calls that arrive while one is in flight subscribe to it instead of issuing their own.
+  @SuppressWarnings("unchecked")
+  public <T> Mono<T> mono(String call, Object id, Supplier<Mono<T>> request) {
+    String key = call + ":" + id;
+
+    return Mono.defer(() -> {
+      AtomicBoolean issued = new AtomicBoolean();
+      Mono<?> shared = inFlight.computeIfAbsent(key, k -> {
+        issued.set(true);
+        return Mono.defer(request).doFinally(signal -> inFlight.remove(k)).share();
+      });
+
+      LOG.trace("{} call {}", issued.get() ? "Issuing" : "Coalescing", key);
+      registry.counter("composite.downstream.calls", "call", call, "outcome", issued.get() ? "issued" : "coalesced")
+          .increment();
+      return (Mono<T>) shared;
+    });
+  }
+
+  public <T> Flux<T> flux(String call, Object id, Supplier<Flux<T>> request) {
+    return mono(call, id, () -> request.get().collectList()).flatMapIterable(list -> list);
+  }
+}
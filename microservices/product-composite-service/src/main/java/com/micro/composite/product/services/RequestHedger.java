@@ -0,0 +1,153 @@
+package com.micro.composite.product.services;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounds every read call to a core service by a timeout per dependency and optionally hedges it: when the first
+ * attempt has not answered after the hedgePercentile latency of that dependency, a second attempt is sent and
+ * whichever answers first is used, the other one is cancelled. A failed second attempt is dropped and the first one
+ * keeps running, a fast connection refused from another instance must not fail a call that is still healthy. Both
+ * attempts go through the load balanced client, whose round robin hands the second one to the next instance, so one
+ * instance stalled in a GC pause no longer holds the whole composite.
+ *
+ * Settings are read once per dependency, app.downstream.timeoutMillis and app.downstream.hedge apply to all of them
+ * and can be overridden under app.downstream.&lt;dependency&gt;. Until hedgeMinSamples calls of a dependency are
+ * recorded the hedge waits hedgeDelayMillis instead of the percentile.
+ */
+@Component
+public class RequestHedger {
+  private static final Logger LOG = LoggerFactory.getLogger(RequestHedger.class);
+
+  // How long a computed hedge delay is reused before the latency percentile is read again
+  private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final MeterRegistry registry;
+  private final Environment environment;
+  private final double hedgePercentile;
+  private final Duration initialHedgeDelay;
+  private final long hedgeMinSamples;
+  private final ConcurrentMap<String, Dependency> dependencies = new ConcurrentHashMap<>();
+
+  public RequestHedger(MeterRegistry registry, Environment environment) {
+    this.registry = registry;
+    this.environment = environment;
+    this.hedgePercentile = environment.getProperty("app.downstream.hedgePercentile", Double.class, 0.95);
+    this.initialHedgeDelay = Duration.ofMillis(
+        environment.getProperty("app.downstream.hedgeDelayMillis", Long.class, 50L));
+    this.hedgeMinSamples = environment.getProperty("app.downstream.hedgeMinSamples", Long.class, 100L);
+  }
+
+  public <T> Mono<T> mono(String dependency, Supplier<Mono<T>> request) {
+    Dependency target = dependencies.computeIfAbsent(dependency, this::createDependency);
+    Mono<T> call = target.hedge ? hedged(target, request) : attempt(target, request);
+    return call.timeout(target.timeout);
+  }
+
+  private <T> Mono<T> hedged(Dependency target, Supplier<Mono<T>> request) {
+    return Mono.defer(() -> {
+      AtomicBoolean decided = new AtomicBoolean();
+      Mono<T> first = attempt(target, request).doOnEach(signal -> decided.compareAndSet(false, true));
+      Mono<T> second = Mono.delay(target.hedgeDelay())
+          .then(Mono.defer(() -> {
+            LOG.trace("Hedging a {} call after {}", target.name, target.hedgeDelay());
+            target.issued.increment();
+            return attempt(target, request);
+          }))
+          .onErrorResume(ex -> {
+            LOG.debug("Hedged {} call failed, waiting for the first attempt: {}", target.name, ex.toString());
+            return Mono.never();
+          })
+          .doOnEach(signal -> {
+            if (decided.compareAndSet(false, true)) {
+              target.won.increment();
+            }
+          });
+
+      return Mono.firstWithSignal(first, second);
+    });
+  }
+
+  private <T> Mono<T> attempt(Dependency target, Supplier<Mono<T>> request) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return Mono.defer(request)
+          .doOnSuccess(value -> target.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    });
+  }
+
+  private Dependency createDependency(String name) {
+    long timeoutMillis = environment.getProperty("app.downstream." + name + ".timeoutMillis", Long.class,
+        environment.getProperty("app.downstream.timeoutMillis", Long.class, 3000L));
+    boolean hedge = environment.getProperty("app.downstream." + name + ".hedge", Boolean.class,
+        environment.getProperty("app.downstream.hedge", Boolean.class, false));
+
+    LOG.info("Calls to {} time out after {} ms, hedging {}", name, timeoutMillis, hedge ? "enabled" : "disabled");
+    return new Dependency(name, Duration.ofMillis(timeoutMillis), hedge);
+  }
+
+  private class Dependency {
+    private final String name;
+    private final Duration timeout;
+    private final boolean hedge;
+    private final Timer latency;
+    private final Counter issued;
+    private final Counter won;
+    private volatile Duration hedgeDelay;
+    private volatile long hedgeDelayRefreshed;
+
+    Dependency(String name, Duration timeout, boolean hedge) {
+      this.name = name;
+      this.timeout = timeout;
+      this.hedge = hedge;
+      this.latency = Timer.builder("composite.downstream.latency")
+          .description("Latency of the successful read attempts to a core service")
+          .tag("dependency", name)
+          .publishPercentiles(hedgePercentile)
+          .register(registry);
+      this.issued = Counter.builder("composite.hedge.issued")
+          .description("Second attempts sent because the first one was slower than the hedge delay")
+          .tag("dependency", name)
+          .register(registry);
+      this.won = Counter.builder("composite.hedge.won")
+          .description("Second attempts that answered before the first one")
+          .tag("dependency", name)
+          .register(registry);
+      this.hedgeDelay = initialHedgeDelay;
+      this.hedgeDelayRefreshed = System.nanoTime();
+    }
+
+    Duration hedgeDelay() {
+      long now = System.nanoTime();
+      if (now - hedgeDelayRefreshed > DELAY_REFRESH_NANOS) {
+        hedgeDelayRefreshed = now;
+        hedgeDelay = latency.count() < hedgeMinSamples ? initialHedgeDelay : percentileDelay();
+      }
+      return hedgeDelay;
+    }
+
+    private Duration percentileDelay() {
+      for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+        if (value.percentile() == hedgePercentile) {
+          return Duration.ofNanos(Math.max(1, (long) value.value(TimeUnit.NANOSECONDS)));
+        }
+      }
+      return initialHedgeDelay;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.micro.composite.product.services.AdaptiveConcurrencyLimit;
+
+public class AdaptiveConcurrencyLimitTests {
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+  @Test
+  void requestsAboveTheLimitAreRefused() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5, 1000);
+
+    assertTrue(limit.tryAcquire());
+    assertTrue(limit.tryAcquire());
+    assertFalse(limit.tryAcquire());
+
+    limit.release();
+    assertTrue(limit.tryAcquire());
+  }
+
+  @Test
+  void limitGrowsWhileFastAndBusy() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 6, 2.0, 0.5, 1000);
+
+    for (int i = 0; i < 5; i++) {
+      fill(limit);
+      limit.onSample(FAST, false);
+      drain(limit);
+    }
+
+    assertEquals(6, limit.getLimit());
+  }
+
+  @Test
+  void limitDoesNotGrowWhenMostlyIdle() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 2.0, 0.5, 1000);
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(limit.tryAcquire());
+      limit.onSample(FAST, false);
+    }
+
+    assertEquals(10, limit.getLimit());
+  }
+
+  @Test
+  void limitShrinksOnSlowOrFailedRequests() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 2, 100, 2.0, 0.5, 1000);
+
+    sample(limit, FAST, false);
+    sample(limit, SLOW, false);
+    assertEquals(8, limit.getLimit());
+
+    for (int i = 0; i < 7; i++) {
+      sample(limit, FAST, false);
+    }
+    sample(limit, FAST, true);
+    assertEquals(4, limit.getLimit());
+  }
+
+  @Test
+  void limitShrinksOncePerRound() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 100, 2.0, 0.5, 1000);
+
+    sample(limit, FAST, false);
+    for (int i = 0; i < 4; i++) {
+      sample(limit, SLOW, false);
+    }
+    assertEquals(4, limit.getLimit());
+
+    sample(limit, SLOW, false);
+    assertEquals(2, limit.getLimit());
+  }
+
+  @Test
+  void noLoadLatencyIsMeasuredAgainAfterProbeSamples() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 2, 100, 2.0, 0.5, 3);
+
+    sample(limit, FAST, false);
+    sample(limit, SLOW, false);
+    sample(limit, SLOW, false);
+    assertEquals(8, limit.getLimit());
+
+    for (int i = 0; i < 12; i++) {
+      sample(limit, SLOW, false);
+    }
+    assertEquals(8, limit.getLimit());
+  }
+
+  private void sample(AdaptiveConcurrencyLimit limit, long latencyNanos, boolean failed) {
+    assertTrue(limit.tryAcquire());
+    limit.onSample(latencyNanos, failed);
+  }
+
+  private void fill(AdaptiveConcurrencyLimit limit) {
+    while (limit.tryAcquire()) {
+    }
+  }
+
+  private void drain(AdaptiveConcurrencyLimit limit) {
+    while (limit.getInFlight() > 0) {
+      limit.release();
+    }
+  }
+}
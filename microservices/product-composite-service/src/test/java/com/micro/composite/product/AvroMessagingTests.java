@@ -0,0 +1,105 @@
+package com.micro.composite.product;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static reactor.core.publisher.Mono.just;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.MimeType;
+
+import com.micro.api.composite.product.ProductAggregate;
+import com.micro.api.composite.product.RecommendationSummary;
+import com.micro.api.composite.product.ReviewSummary;
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.util.messaging.AvroEventMessageConverter;
+import com.micro.util.messaging.EventSchemaRegistry;
+
+// The bindings of the avro_events profile
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "spring.main.allow-bean-definition-overriding=true",
+    "spring.cloud.function.definition=",
+    "spring.cloud.stream.function.autodetect=false",
+    "app.publish.confirms=false",
+    "spring.cloud.stream.bindings.products-out-0.content-type=application/vnd.product-event.v2+avro",
+    "spring.cloud.stream.bindings.recommendations-out-0.content-type=application/vnd.recommendation-event.v2+avro",
+    "spring.cloud.stream.bindings.reviews-out-0.content-type=application/vnd.review-event.v2+avro" })
+@Import(TestChannelBinderConfiguration.class)
+class AvroMessagingTests {
+
+  @Autowired
+  private WebTestClient client;
+
+  @Autowired
+  private OutputDestination target;
+
+  @Autowired
+  private EventSchemaRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    purgeMessages("products");
+    purgeMessages("recommendations");
+    purgeMessages("reviews");
+  }
+
+  @Test
+  void createCompositeProduct() {
+    ProductAggregate composite = new ProductAggregate(1, "name", 1,
+        asList(new RecommendationSummary(1, "a", 1, "c"), new RecommendationSummary(2, "a", 2, "c")),
+        singletonList(new ReviewSummary(1, "a", "s", "c")), null);
+    client.post()
+        .uri("/product-composite")
+        .body(just(composite), ProductAggregate.class)
+        .exchange()
+        .expectStatus().isEqualTo(ACCEPTED);
+
+    Event<Integer, Product> product = read(target.receive(0, "products"), "product-event");
+    assertEquals(CREATE, product.getEventType());
+    assertEquals("name", product.getData().getName());
+
+    Event<Integer, Recommendation> recommendations = read(target.receive(0, "recommendations"),
+        "recommendation-event");
+    assertNull(recommendations.getData());
+    assertEquals(List.of(1, 2), recommendations.getBulkData().stream().map(Recommendation::getRecommendationId).toList());
+
+    Event<Integer, Review> reviews = read(target.receive(0, "reviews"), "review-event");
+    assertEquals(CREATE, reviews.getEventType());
+    assertEquals("s", reviews.getData().getSubject());
+
+    assertNotNull(product.getEventId());
+    assertEquals(3, Set.of(product.getEventId(), recommendations.getEventId(), reviews.getEventId()).size());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Event<Integer, T> read(Message<byte[]> message, String subject) {
+    assertEquals(EventSchemaRegistry.contentType(subject, 2),
+        MimeType.valueOf(message.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString()));
+    return (Event<Integer, T>) new AvroEventMessageConverter(registry).fromMessage(message, Event.class);
+  }
+
+  private void purgeMessages(String bindingName) {
+    while (target.receive(0, bindingName) != null) {
+    }
+  }
+}
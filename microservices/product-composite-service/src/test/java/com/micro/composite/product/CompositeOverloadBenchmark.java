@@ -0,0 +1,193 @@
+package com.micro.composite.product;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.micro.api.core.product.Product;
+import com.micro.composite.product.services.ProductCompositeIntegration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+// Overload test for GET /product-composite/{id}, run with and without the adaptive concurrency limit by
+// LimitedCompositeOverloadBenchmark and UnlimitedCompositeOverloadBenchmark. The product service is simulated with
+// CAPACITY requests served at a time, SERVICE_TIME each, the rest queue. CLIENTS closed loop clients, far more than
+// the capacity, call the composite for DURATION. Every HOT_SHARE-th call asks for one of HOT_PRODUCTS products, which
+// are answered from the aggregate cache after their first read, the other calls for a new product each, which goes
+// to the product service. A client that gets a 503 backs off for BACKOFF, doubled on every further 503 up to
+// MAX_BACKOFF, the composite and the clients share the CPUs here and clients retrying at full speed would measure
+// the cost of the 503s rather than the limit.
+// Prints the answered requests per second and their latency, misses and hits apart, the shed requests per second,
+// the GC time of the run and the limit of the route at its end.
+// Run with: ./gradlew :microservices:product-composite-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "logging.level.com.micro=WARN" })
+abstract class CompositeOverloadBenchmark {
+  private static final int CAPACITY = 4;
+  private static final Duration SERVICE_TIME = Duration.ofMillis(200);
+  private static final int CLIENTS = 100;
+  private static final Duration WARMUP = Duration.ofSeconds(5);
+  private static final Duration DURATION = Duration.ofSeconds(15);
+  private static final int HOT_SHARE = 2;
+  private static final int HOT_PRODUCTS = 10;
+  private static final Duration BACKOFF = Duration.ofMillis(100);
+  private static final Duration MAX_BACKOFF = Duration.ofMillis(1600);
+
+  @LocalServerPort
+  private int port;
+
+  @MockBean
+  private ProductCompositeIntegration integration;
+
+  @Autowired
+  private MeterRegistry registry;
+
+  private final Sinks.Many<Sinks.One<Product>> productQueue = Sinks.many().unicast().onBackpressureBuffer();
+  private final AtomicInteger nextProductId = new AtomicInteger(HOT_PRODUCTS);
+  private final AtomicLong calls = new AtomicLong();
+  private WebClient client;
+
+  abstract String mode();
+
+  @BeforeAll
+  void setUp() {
+    productQueue.asFlux()
+        .flatMap(request -> Mono.delay(SERVICE_TIME)
+            .doOnNext(tick -> request.tryEmitValue(new Product(1, "name", 1, "mock address"))), CAPACITY)
+        .subscribe();
+
+    when(integration.getProduct(anyInt())).thenAnswer(invocation -> Mono.defer(() -> {
+      Sinks.One<Product> request = Sinks.one();
+      productQueue.emitNext(request, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+      return request.asMono();
+    }));
+    when(integration.getRecommendations(anyInt(), anyInt(), anyInt())).thenReturn(Flux.empty());
+    when(integration.getReviews(anyInt(), anyInt(), anyInt())).thenReturn(Flux.empty());
+
+    // One connection per client, the default pool would queue most of them on the client side instead
+    ConnectionProvider connections = ConnectionProvider.builder("overload").maxConnections(CLIENTS).build();
+    client = WebClient.builder()
+        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+        .baseUrl("http://localhost:" + port)
+        .build();
+
+    run(WARMUP);
+  }
+
+  @Test
+  void overload() {
+    long gcBefore = gcMillis();
+    Result result = run(DURATION);
+    long gcMillis = gcMillis() - gcBefore;
+
+    long[] misses = sorted(result.misses);
+    long[] hits = sorted(result.hits);
+    // The calls under way at the deadline still finish, so the rates are over the time the run took
+    double seconds = seconds(result.elapsed);
+    Gauge limit = registry.find("composite.concurrency.limit")
+        .tag("route", "GET /product-composite/{productId}").gauge();
+    System.out.printf("limiter=%-9s clients=%d misses %5.0f req/s, p50 %7.2f ms, p99 %7.2f ms | "
+        + "hits %5.0f req/s, p50 %6.2f ms, p99 %7.2f ms | shed %5.0f req/s, errors %d, gc %d ms, limit %s%n",
+        mode(), CLIENTS, misses.length / seconds, millis(percentile(misses, 50)),
+        millis(percentile(misses, 99)), hits.length / seconds, millis(percentile(hits, 50)),
+        millis(percentile(hits, 99)), result.shed.get() / seconds, result.errors.get(), gcMillis,
+        limit == null ? "-" : String.valueOf((int) limit.value()));
+  }
+
+  private Result run(Duration duration) {
+    Result result = new Result();
+    long start = System.nanoTime();
+    long deadline = start + duration.toNanos();
+
+    Flux.range(0, CLIENTS)
+        .flatMap(clientId -> callUntil(deadline, result, new AtomicLong(BACKOFF.toMillis())), CLIENTS)
+        .blockLast(duration.plusMinutes(1));
+    result.elapsed = Duration.ofNanos(System.nanoTime() - start);
+    return result;
+  }
+
+  private Mono<Void> callUntil(long deadline, Result result, AtomicLong backoffMillis) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      boolean hot = calls.incrementAndGet() % HOT_SHARE == 0;
+      int productId = hot ? (int) (start % HOT_PRODUCTS) + 1 : nextProductId.incrementAndGet();
+      return client.get().uri("/product-composite/{productId}", productId)
+          .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+          .onErrorReturn(-1)
+          .flatMap(status -> {
+            if (status == 200) {
+              (hot ? result.hits : result.misses).add(System.nanoTime() - start);
+              backoffMillis.set(BACKOFF.toMillis());
+              return Mono.empty();
+            }
+            if (status == 503) {
+              result.shed.incrementAndGet();
+              long backoff = backoffMillis.getAndUpdate(millis -> Math.min(millis * 2, MAX_BACKOFF.toMillis()));
+              return Mono.delay(Duration.ofMillis(backoff)).then();
+            }
+            result.errors.incrementAndGet();
+            return Mono.empty();
+          });
+    }).repeat(() -> System.nanoTime() < deadline).then();
+  }
+
+  private static long[] sorted(ConcurrentLinkedQueue<Long> latencies) {
+    return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+  }
+
+  private static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static double seconds(Duration duration) {
+    return duration.toMillis() / 1000.0;
+  }
+
+  private static class Result {
+    final ConcurrentLinkedQueue<Long> misses = new ConcurrentLinkedQueue<>();
+    final ConcurrentLinkedQueue<Long> hits = new ConcurrentLinkedQueue<>();
+    final AtomicLong shed = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+    Duration elapsed;
+  }
+}
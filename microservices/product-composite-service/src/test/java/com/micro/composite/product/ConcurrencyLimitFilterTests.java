@@ -0,0 +1,88 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.api.composite.product.ProductAggregate;
+import com.micro.composite.product.services.ConcurrencyLimitFilter;
+import com.micro.composite.product.services.ProductAggregateCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+public class ConcurrencyLimitFilterTests {
+  private static final Duration LOAD_TIME = Duration.ofMillis(50);
+
+  private SimpleMeterRegistry registry;
+  private ProductAggregateCache cache;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    cache = new ProductAggregateCache(100, 30, registry);
+  }
+
+  @Test
+  void eachRouteHasALimitOfItsOwn() {
+    ConcurrencyLimitFilter filter = filter(1);
+
+    Disposable product = filter.filter(get("/product-composite/1"), exchange -> Mono.never()).subscribe();
+
+    MockServerWebExchange reviews = get("/product-composite/1/reviews");
+    filter.filter(reviews, exchange -> Mono.empty()).block();
+    assertNull(reviews.getResponse().getStatusCode());
+
+    MockServerWebExchange secondProduct = get("/product-composite/2");
+    filter.filter(secondProduct, exchange -> Mono.empty()).block();
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, secondProduct.getResponse().getStatusCode());
+
+    assertEquals(1, inFlight("GET /product-composite/{productId}"));
+    assertEquals(0, inFlight("GET /product-composite/{productId}/reviews"));
+    product.dispose();
+  }
+
+  @Test
+  void cacheHitsAreNoLatencySamples() {
+    ConcurrencyLimitFilter filter = filter(10);
+
+    // The first load sets the no load latency, a sampled hit would lower it far enough to make the second load
+    // look like congestion and halve the limit
+    filter.filter(get("/product-composite/1"), readThroughCache(1)).block();
+    filter.filter(get("/product-composite/1"), readThroughCache(1)).block();
+    filter.filter(get("/product-composite/2"), readThroughCache(2)).block();
+
+    assertEquals(10, limit("GET /product-composite/{productId}"));
+  }
+
+  private ConcurrencyLimitFilter filter(int initialLimit) {
+    return new ConcurrencyLimitFilter(registry, new ObjectMapper(), initialLimit, 1, 100, 2.0, 0.5, 1000);
+  }
+
+  private WebFilterChain readThroughCache(int productId) {
+    return exchange -> cache.get(productId, id -> Mono.delay(LOAD_TIME)
+        .thenReturn(new ProductAggregate(id, "name", 1, null, null, null))).then();
+  }
+
+  private MockServerWebExchange get(String path) {
+    return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+  }
+
+  private double limit(String route) {
+    return registry.get("composite.concurrency.limit").tag("route", route).gauge().value();
+  }
+
+  private double inFlight(String route) {
+    return registry.get("composite.concurrency.inflight").tag("route", route).gauge().value();
+  }
+}
@@ -0,0 +1,44 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.stream.binder.PartitionSelectorStrategy;
+
+import com.micro.composite.product.services.ConsistentHashPartitionSelector;
+
+class ConsistentHashPartitionSelectorTests {
+  private static final int PRODUCTS = 100_000;
+
+  private final PartitionSelectorStrategy selector = new ConsistentHashPartitionSelector();
+
+  @Test
+  void productsAreSpreadEvenlyOverThePartitions() {
+    int[] products = new int[16];
+    for (int productId = 1; productId <= PRODUCTS; productId++) {
+      int partition = selector.selectPartition(productId, 16);
+      assertEquals(partition, selector.selectPartition(productId, 16));
+      products[partition]++;
+    }
+
+    for (int count : products) {
+      assertTrue(Math.abs(count - PRODUCTS / 16) < PRODUCTS / 16 / 10, "Partition of " + count + " products");
+    }
+  }
+
+  @Test
+  void addingAPartitionOnlyMovesProductsToIt() {
+    int moved = 0;
+    for (int productId = 1; productId <= PRODUCTS; productId++) {
+      int before = selector.selectPartition(productId, 16);
+      int after = selector.selectPartition(productId, 17);
+      if (before != after) {
+        assertEquals(16, after);
+        moved++;
+      }
+    }
+
+    assertTrue(Math.abs(moved - PRODUCTS / 17) < PRODUCTS / 17 / 10, moved + " products moved");
+  }
+}
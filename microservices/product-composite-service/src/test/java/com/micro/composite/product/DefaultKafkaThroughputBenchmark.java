@@ -0,0 +1,9 @@
+package com.micro.composite.product;
+
+class DefaultKafkaThroughputBenchmark extends KafkaThroughputBenchmark {
+
+  @Override
+  String mode() {
+    return "default";
+  }
+}
@@ -0,0 +1,101 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.micro.composite.product.services.DownstreamHttpClients;
+
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+public class DownstreamHttpClientsTests {
+  private final AtomicInteger connections = new AtomicInteger();
+  private DisposableServer server;
+  private MockEnvironment environment;
+  private DownstreamHttpClients clients;
+
+  @BeforeEach
+  void setUp() {
+    server = HttpServer.create()
+        .port(0)
+        .doOnChannelInit((observer, channel, address) -> connections.incrementAndGet())
+        .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+        .handle((request, response) -> {
+          // HTTP/2 streams reach the handler converted to HTTP/1.1 requests, each on its own child channel
+          StringBuilder protocol = new StringBuilder();
+          request.withConnection(connection ->
+              protocol.append(connection.channel() instanceof Http2StreamChannel ? "h2c" : "http/1.1"));
+          return response.sendString(Mono.just(protocol.toString()));
+        })
+        .bindNow();
+    environment = new MockEnvironment();
+    clients = new DownstreamHttpClients(environment);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.disposeNow();
+  }
+
+  @Test
+  void sequentialCallsReuseOneConnection() throws InterruptedException {
+    WebClient client = client("product");
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals("http/1.1", client.get().retrieve().bodyToMono(String.class).block());
+      // The body completes just before the connection is back in the pool, the next call would open another one
+      Thread.sleep(10);
+    }
+
+    assertEquals(1, connections.get());
+  }
+
+  @Test
+  void concurrentCallsAreBoundedByThePoolOfTheService() {
+    environment.setProperty("app.downstream.review.pool.maxConnections", "2");
+    WebClient review = client("review");
+    WebClient product = client("product");
+
+    Flux.range(0, 10).flatMap(i -> review.get().retrieve().bodyToMono(String.class)).blockLast();
+    assertTrue(connections.get() <= 2, "review opened " + connections.get() + " connections");
+
+    Flux.range(0, 10).flatMap(i -> product.get().retrieve().bodyToMono(String.class)).blockLast();
+    assertTrue(connections.get() > 2, "product shares the connections of review");
+  }
+
+  @Test
+  void h2cMultiplexesConcurrentCallsOverOneConnection() {
+    environment.setProperty("app.downstream.h2c", "true");
+    environment.setProperty("app.downstream.pool.h2MaxConnections", "1");
+    WebClient client = client("product");
+
+    List<String> protocols = Flux.range(0, 10)
+        .flatMap(i -> client.get().retrieve().bodyToMono(String.class))
+        .collectList()
+        .block();
+
+    assertEquals(Collections.nCopies(10, "h2c"), protocols);
+    assertEquals(1, connections.get());
+  }
+
+  private WebClient client(String dependency) {
+    return WebClient.builder()
+        .clientConnector(clients.connector(dependency))
+        .baseUrl("http://localhost:" + server.port())
+        .build();
+  }
+}
@@ -0,0 +1,168 @@
+package com.micro.composite.product;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.composite.product.services.DownstreamHttpClients;
+import com.micro.composite.product.services.ProductCompositeIntegration;
+import com.micro.composite.product.services.RequestCoalescer;
+import com.micro.composite.product.services.RequestHedger;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+// Compares the composite fan-out over HTTP/1.1 with the same fan-out over h2c. Three stub core services accept both
+// protocols, like the core services do with server.http2.enabled, and answer after SERVICE_TIME. For each
+// concurrency, that many closed loop clients run the product, recommendations and reviews calls of one composite
+// read in parallel through ProductCompositeIntegration for DURATION. Prints the composite reads per second, their
+// latency and the connections the stubs accepted from the pools of that run.
+// Run with: ./gradlew :microservices:product-composite-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DownstreamProtocolBenchmark {
+  private static final Duration SERVICE_TIME = Duration.ofMillis(5);
+  private static final Duration WARMUP = Duration.ofSeconds(10);
+  private static final Duration DURATION = Duration.ofSeconds(10);
+  private static final String PRODUCT = "{\"productId\":1,\"name\":\"name\",\"weight\":1,\"serviceAddress\":\"stub\"}";
+  private static final String RECOMMENDATIONS = children(
+      "{\"productId\":1,\"recommendationId\":%d,\"author\":\"author\",\"rate\":1,\"content\":\"content\"}");
+  private static final String REVIEWS = children(
+      "{\"productId\":1,\"reviewId\":%d,\"author\":\"author\",\"subject\":\"subject\",\"content\":\"content\"}");
+
+  private final AtomicInteger connections = new AtomicInteger();
+  private final AtomicInteger nextProductId = new AtomicInteger();
+  private DisposableServer product;
+  private DisposableServer recommendation;
+  private DisposableServer review;
+
+  @BeforeAll
+  void setUp() {
+    product = stub(PRODUCT);
+    recommendation = stub(RECOMMENDATIONS);
+    review = stub(REVIEWS);
+  }
+
+  @AfterAll
+  void tearDown() {
+    product.disposeNow();
+    recommendation.disposeNow();
+    review.disposeNow();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 16, 64, 256 })
+  void compositeRead(int concurrency) {
+    Result http11 = run(false, concurrency);
+    Result h2c = run(true, concurrency);
+
+    System.out.printf("concurrency=%-4d http/1.1: %6.0f reads/s, p50 %6.2f ms, p99 %6.2f ms, %3d connections | "
+        + "h2c: %6.0f reads/s, p50 %6.2f ms, p99 %6.2f ms, %3d connections%n", concurrency,
+        http11.throughput(), http11.percentile(50), http11.percentile(99), http11.connections,
+        h2c.throughput(), h2c.percentile(50), h2c.percentile(99), h2c.connections);
+  }
+
+  private Result run(boolean h2c, int concurrency) {
+    MockEnvironment environment = new MockEnvironment();
+    environment.setProperty("app.downstream.h2c", String.valueOf(h2c));
+    DownstreamHttpClients httpClients = new DownstreamHttpClients(environment);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ProductCompositeIntegration integration = new ProductCompositeIntegration(new ObjectMapper(),
+        WebClient.builder().filter((request, next) -> next.exchange(toStub(request))), httpClients, null, null,
+        new RequestCoalescer(registry), new RequestHedger(registry, environment), CircuitBreakerRegistry.ofDefaults(),
+        BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(Integer.MAX_VALUE).build()));
+
+    connections.set(0);
+    load(integration, concurrency, WARMUP);
+    Result result = load(integration, concurrency, DURATION);
+    result.connections = connections.get();
+    return result;
+  }
+
+  private Result load(ProductCompositeIntegration integration, int concurrency, Duration duration) {
+    Result result = new Result();
+    long deadline = System.nanoTime() + duration.toNanos();
+
+    Flux.range(0, concurrency)
+        .flatMap(client -> Mono.defer(() -> {
+          int productId = nextProductId.incrementAndGet();
+          long start = System.nanoTime();
+          return Mono.zip(
+              integration.getProduct(productId),
+              integration.getRecommendations(productId, 5, 0).collectList(),
+              integration.getReviews(productId, 5, 0).collectList())
+              .doOnNext(read -> result.latencies.add(System.nanoTime() - start));
+        }).repeat(() -> System.nanoTime() < deadline), concurrency)
+        .blockLast(duration.plusMinutes(1));
+    return result;
+  }
+
+  // The integration calls the core services by their Eureka names, the stubs listen on local ports
+  private ClientRequest toStub(ClientRequest request) {
+    int port = switch (request.url().getHost()) {
+      case "product" -> product.port();
+      case "recommendation" -> recommendation.port();
+      default -> review.port();
+    };
+    URI url = UriComponentsBuilder.fromUri(request.url()).host("localhost").port(port).build(true).toUri();
+    return ClientRequest.from(request).url(url).build();
+  }
+
+  private DisposableServer stub(String body) {
+    return HttpServer.create()
+        .port(0)
+        .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+        .doOnChannelInit((observer, channel, address) -> connections.incrementAndGet())
+        .handle((request, response) -> response
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .sendString(Mono.delay(SERVICE_TIME).thenReturn(body)))
+        .bindNow();
+  }
+
+  private static String children(String child) {
+    return IntStream.range(0, 5).mapToObj(i -> String.format(child, i))
+        .collect(Collectors.joining(",", "[", "]"));
+  }
+
+  private static class Result {
+    final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    int connections;
+
+    double throughput() {
+      return latencies.size() / (DURATION.toMillis() / 1000.0);
+    }
+
+    double percentile(int percentile) {
+      long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.micro.composite.product;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Import;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.composite.product.services.EventPublisher;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+// Compares batched with unbatched sends of the events of one created aggregate, the EventPublisher with
+// app.publish.batchSize against the same publisher with batches of one event, at the same app.publish.queueSize and
+// lanes. The test binder confirms nothing, so this measures the publish path and not the broker round trips a
+// batch saves.
+// Run with: ./gradlew :microservices:product-composite-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = NONE, properties = {
+    "eureka.client.enabled=false",
+    "spring.cloud.function.definition=",
+    "spring.cloud.stream.function.autodetect=false",
+    "app.publish.confirms=false" })
+@Import(TestChannelBinderConfiguration.class)
+class EventPublisherBenchmark {
+  private static final Logger LOG = LoggerFactory.getLogger(EventPublisherBenchmark.class);
+
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 20;
+
+  @Autowired
+  private StreamBridge streamBridge;
+
+  @Autowired
+  private Scheduler publisherScheduler;
+
+  @Autowired
+  private OutputDestination target;
+
+  @Value("${app.publish.queueSize}")
+  private int queueSize;
+
+  @Value("${app.publish.lanes}")
+  private int lanes;
+
+  @Value("${app.publish.batchSize}")
+  private int batchSize;
+
+  @Value("${app.publish.lingerMillis}")
+  private int lingerMillis;
+
+  private EventPublisher batched;
+  private EventPublisher unbatched;
+
+  @BeforeAll
+  void createPublishers() {
+    batched = new EventPublisher(streamBridge, publisherScheduler, queueSize, lanes, batchSize, lingerMillis, false,
+        5000);
+    unbatched = new EventPublisher(streamBridge, publisherScheduler, queueSize, lanes, 1, lingerMillis, false, 5000);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1, 10, 100, 1000 })
+  void createProduct(int children) {
+    List<Event<Integer, ?>> events = createEvents(children);
+
+    Result batchedResult = run(batched, events);
+    Result unbatchedResult = run(unbatched, events);
+
+    LOG.info(String.format("children=%-5d batched: avg %8.3f ms, failed %2d | unbatched: avg %8.3f ms, failed %2d",
+        children, batchedResult.avgMillis(), batchedResult.failed, unbatchedResult.avgMillis(),
+        unbatchedResult.failed));
+  }
+
+  private Result run(EventPublisher publisher, List<Event<Integer, ?>> events) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      publishAll(publisher, events);
+      purgeMessages();
+    }
+
+    Result result = new Result();
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      if (publishAll(publisher, events)) {
+        result.nanos += System.nanoTime() - start;
+        result.succeeded++;
+      } else {
+        result.failed++;
+      }
+      purgeMessages();
+    }
+    return result;
+  }
+
+  // Publishes every event at once, like the composite zips the events of a created aggregate
+  private boolean publishAll(EventPublisher publisher, List<Event<Integer, ?>> events) {
+    try {
+      Mono.when(events.stream().map(event -> publisher.publish(bindingName(event), event))
+          .collect(Collectors.toList())).block();
+      return true;
+    } catch (RuntimeException ex) {
+      LOG.warn("Publishing {} events failed: {}", events.size(), ex.toString());
+      return false;
+    }
+  }
+
+  private String bindingName(Event<Integer, ?> event) {
+    if (event.getData() instanceof Recommendation) {
+      return "recommendations-out-0";
+    }
+    return event.getData() instanceof Review ? "reviews-out-0" : "products-out-0";
+  }
+
+  private List<Event<Integer, ?>> createEvents(int children) {
+    int productId = 1;
+    List<Event<Integer, ?>> events = new ArrayList<>();
+    events.add(new Event<>(CREATE, productId, new Product(productId, "name", 1, null)));
+    IntStream.rangeClosed(1, children).forEach(i -> events.add(
+        new Event<>(CREATE, productId, new Recommendation(productId, i, "a", i % 5, "c", null))));
+    IntStream.rangeClosed(1, children).forEach(i -> events.add(
+        new Event<>(CREATE, productId, new Review(productId, i, "a", "s", "c", null))));
+    return events;
+  }
+
+  private void purgeMessages() {
+    for (String destination : List.of("products", "recommendations", "reviews")) {
+      while (target.receive(0, destination) != null) {
+      }
+    }
+  }
+
+  private static class Result {
+    long nanos;
+    int succeeded;
+    int failed;
+
+    double avgMillis() {
+      return succeeded == 0 ? 0 : nanos / 1_000_000.0 / succeeded;
+    }
+  }
+}
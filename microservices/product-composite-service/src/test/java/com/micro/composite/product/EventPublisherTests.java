@@ -0,0 +1,174 @@
+package com.micro.composite.product;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.event.Event;
+import com.micro.api.exceptions.EventProcessingException;
+import com.micro.api.exceptions.ServiceUnavailableException;
+import com.micro.composite.product.services.EventPublisher;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+public class EventPublisherTests {
+
+  private Scheduler scheduler;
+  private StreamBridge streamBridge;
+  private List<Event<Integer, Product>> sent;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    scheduler = Schedulers.newBoundedElastic(4, 100, "publish-pool-test");
+    streamBridge = mock(StreamBridge.class);
+    sent = Collections.synchronizedList(new ArrayList<>());
+    when(streamBridge.send(any(String.class), any(Message.class))).thenAnswer(invocation -> {
+      sent.add((Event<Integer, Product>) invocation.getArgument(1, Message.class).getPayload());
+      return true;
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.dispose();
+  }
+
+  @Test
+  void eventsOfAKeyAreSentInOrder() {
+    EventPublisher publisher = publisher(10000, false);
+
+    // Each publish is subscribed to as soon as it is created, like the composite does when it zips its events
+    List<Mono<Void>> published = IntStream.range(0, 1000)
+        .mapToObj(i -> publisher.publish("products-out-0", event(i % 10, i)))
+        .collect(Collectors.toList());
+    StepVerifier.create(Flux.merge(published)).expectComplete().verify(Duration.ofSeconds(5));
+
+    assertEquals(1000, sent.size());
+    Map<Integer, List<Integer>> weightsPerKey = sent.stream().collect(Collectors.groupingBy(Event::getKey,
+        Collectors.mapping(e -> e.getData().getWeight(), Collectors.toList())));
+    weightsPerKey.forEach((key, weights) -> assertEquals(weights.stream().sorted().collect(Collectors.toList()),
+        weights, "events of key " + key + " are out of order"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void failedSendFailsOnlyItsOwnPublish() {
+    when(streamBridge.send(eq("reviews-out-0"), any(Message.class))).thenReturn(false);
+    when(streamBridge.send(eq("recommendations-out-0"), any(Message.class)))
+        .thenThrow(new IllegalStateException("broker down"));
+    EventPublisher publisher = publisher(10000, false);
+
+    StepVerifier.create(publisher.publish("reviews-out-0", event(1, 1)))
+        .expectError(EventProcessingException.class)
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(publisher.publish("recommendations-out-0", event(1, 2)))
+        .expectError(IllegalStateException.class)
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(publisher.publish("products-out-0", event(1, 3)))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertEquals(1, sent.size());
+    assertEquals(3, sent.get(0).getData().getWeight());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void publishBeyondTheQueueIsRefused() throws Exception {
+    CountDownLatch brokerBack = new CountDownLatch(1);
+    when(streamBridge.send(any(String.class), any(Message.class))).thenAnswer(invocation -> {
+      brokerBack.await();
+      sent.add((Event<Integer, Product>) invocation.getArgument(1, Message.class).getPayload());
+      return true;
+    });
+    EventPublisher publisher = publisher(16, false);
+
+    // While the broker hangs, the events fill the lanes and the queue, the rest is refused at once
+    List<CompletableFuture<Void>> published = IntStream.range(0, 1000)
+        .mapToObj(i -> publisher.publish("products-out-0", event(i % 10, i)).toFuture())
+        .collect(Collectors.toList());
+    List<CompletableFuture<Void>> refused = published.stream().filter(CompletableFuture::isDone)
+        .collect(Collectors.toList());
+    assertFalse(refused.isEmpty());
+    for (CompletableFuture<Void> future : refused) {
+      ExecutionException ex = assertThrows(ExecutionException.class, future::get);
+      assertTrue(ex.getCause() instanceof ServiceUnavailableException, ex.getCause().toString());
+    }
+
+    brokerBack.countDown();
+    List<CompletableFuture<Void>> accepted = published.stream().filter(future -> !refused.contains(future))
+        .collect(Collectors.toList());
+    CompletableFuture.allOf(accepted.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    assertEquals(accepted.size(), sent.size());
+  }
+
+  @Test
+  void publishCompletesOnTheConfirmOfTheBroker() throws Exception {
+    BlockingQueue<CorrelationData> correlations = new LinkedBlockingQueue<>();
+    when(streamBridge.send(any(String.class), any(Message.class))).thenAnswer(invocation -> {
+      correlations.add((CorrelationData) invocation.getArgument(1, Message.class).getHeaders()
+          .get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION));
+      return true;
+    });
+    EventPublisher publisher = publisher(10000, true);
+
+    CompletableFuture<Void> acked = publisher.publish("products-out-0", event(1, 1)).toFuture();
+    CorrelationData correlation = correlations.poll(5, TimeUnit.SECONDS);
+    assertFalse(acked.isDone());
+    correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+    acked.get(5, TimeUnit.SECONDS);
+
+    CompletableFuture<Void> nacked = publisher.publish("products-out-0", event(1, 2)).toFuture();
+    correlations.poll(5, TimeUnit.SECONDS).getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+    ExecutionException ex = assertThrows(ExecutionException.class, () -> nacked.get(5, TimeUnit.SECONDS));
+    assertTrue(ex.getCause() instanceof EventProcessingException, ex.getCause().toString());
+
+    // Never confirmed, it fails after confirmTimeoutMillis
+    StepVerifier.create(publisher.publish("products-out-0", event(1, 3)))
+        .expectError(EventProcessingException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  private EventPublisher publisher(int queueSize, boolean confirms) {
+    return new EventPublisher(streamBridge, scheduler, queueSize, 2, 10, 5, confirms, 500);
+  }
+
+  // The weight carries the order the event was published in
+  private Event<Integer, Product> event(int productId, int sequence) {
+    return new Event<>(CREATE, productId, new Product(productId, "name", sequence, null));
+  }
+}
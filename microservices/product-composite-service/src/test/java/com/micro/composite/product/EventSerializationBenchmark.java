@@ -0,0 +1,141 @@
+package com.micro.composite.product;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static com.micro.api.event.Event.Type.DELETE;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.util.messaging.AvroEventMessageConverter;
+import com.micro.util.messaging.EventSchemaRegistry;
+
+// Compares the JSON events with the Avro binary events of the avro_events profile. For each event it prints the
+// size of a message and the time to write and read one, after a warmup, with the mapper the JSON converter of
+// Spring Cloud Stream uses and with AvroEventMessageConverter.
+// Run with: ./gradlew :microservices:product-composite-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventSerializationBenchmark {
+  private static final Duration WARMUP = Duration.ofSeconds(3);
+  private static final Duration DURATION = Duration.ofSeconds(3);
+
+  private final ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+  private AvroEventMessageConverter converter;
+  private volatile Object sink;
+
+  @BeforeAll
+  void setUp() throws IOException {
+    converter = new AvroEventMessageConverter(
+        EventSchemaRegistry.load(new PathMatchingResourcePatternResolver(), "classpath*:schemas/*.avsc"));
+  }
+
+  @Test
+  void serialize() {
+    compare("product create", "product-event", Product.class,
+        new Event<>(CREATE, 1, new Product(1, "name", 1, "product-service-7d9f8b6c4-x2x9k/10.42.0.17:80")));
+    compare("product delete", "product-event", Product.class, new Event<>(DELETE, 1, null));
+    compare("5 recommendations", "recommendation-event", Recommendation.class, Event.bulkCreate(1,
+        IntStream.range(0, 5).mapToObj(i -> new Recommendation(1, i, "author " + i, i, "content " + i, null))
+            .toList()));
+    compare("100 reviews", "review-event", Review.class, Event.bulkCreate(1,
+        IntStream.range(0, 100).mapToObj(i -> new Review(1, i, "author " + i, "subject " + i, "content " + i, null))
+            .toList()));
+  }
+
+  private void compare(String name, String subject, Class<?> payload, Event<Integer, ?> event) {
+    JavaType type = mapper.getTypeFactory().constructParametricType(Event.class, Integer.class, payload);
+    Result json = measure(
+        e -> message(writeJson(e), MimeTypeUtils.APPLICATION_JSON),
+        message -> readJson(message.getPayload(), type),
+        event);
+
+    MessageHeaders headers = new MessageHeaders(
+        Map.of(MessageHeaders.CONTENT_TYPE, EventSchemaRegistry.contentType(subject, 2)));
+    Result avro = measure(
+        e -> converter.toMessage(e, headers),
+        message -> converter.fromMessage(message, Event.class),
+        event);
+
+    System.out.printf("%-18s json: %6d bytes, write %8.0f ns, read %8.0f ns | avro: %6d bytes, write %8.0f ns, "
+        + "read %8.0f ns%n", name, json.bytes, json.writeNanos, json.readNanos,
+        avro.bytes, avro.writeNanos, avro.readNanos);
+  }
+
+  // Both formats write a whole message, like the converters of the bindings do, and read the payload of one
+  @SuppressWarnings("unchecked")
+  private Result measure(Function<Event<Integer, ?>, Message<?>> write, Function<Message<byte[]>, Object> read,
+      Event<Integer, ?> event) {
+    Message<byte[]> written = (Message<byte[]>) write.apply(event);
+    time(() -> write.apply(event), WARMUP);
+    time(() -> read.apply(written), WARMUP);
+
+    Result result = new Result();
+    result.bytes = written.getPayload().length;
+    result.writeNanos = time(() -> write.apply(event), DURATION);
+    result.readNanos = time(() -> read.apply(written), DURATION);
+    return result;
+  }
+
+  // Average nanoseconds per call, the results are kept so the calls cannot be optimized away
+  private double time(Supplier<Object> call, Duration duration) {
+    long calls = 0;
+    long start = System.nanoTime();
+    long deadline = start + duration.toNanos();
+    while (System.nanoTime() < deadline) {
+      for (int i = 0; i < 100; i++) {
+        sink = call.get();
+      }
+      calls += 100;
+    }
+    return (System.nanoTime() - start) / (double) calls;
+  }
+
+  private byte[] writeJson(Event<Integer, ?> event) {
+    try {
+      return mapper.writeValueAsBytes(event);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private Object readJson(byte[] bytes, JavaType type) {
+    try {
+      return mapper.readValue(bytes, type);
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static Message<byte[]> message(byte[] payload, MimeType contentType) {
+    return MessageBuilder.withPayload(payload).setHeader(MessageHeaders.CONTENT_TYPE, contentType).build();
+  }
+
+  private static class Result {
+    int bytes;
+    double writeNanos;
+    double readNanos;
+  }
+}
@@ -36,8 +36,9 @@ public class IsSameEvent extends TypeSafeMatcher<String> {
     LOG.trace("creating map from json {}", eventAsJson);
     Map messageAsMap = createMapFromJson(eventAsJson);
     messageAsMap.remove("creationDate");
+    messageAsMap.remove("eventId");
 
-    Map eventAsMap = createMapFromEventWithoutCreationDate(eventExpected);
+    Map eventAsMap = createMapFromEventWithoutGeneratedFields(eventExpected);
 
     LOG.trace("converted event to a map {}", messageAsMap);
     LOG.trace("compare event with the expected event ", eventAsMap);
@@ -62,9 +63,10 @@ public class IsSameEvent extends TypeSafeMatcher<String> {
     return new IsSameEvent(expectedEvent);
   }
 
-  private Map createMapFromEventWithoutCreationDate(Event expectedEvent) {
+  private Map createMapFromEventWithoutGeneratedFields(Event expectedEvent) {
     Map eventMap = createMapFromEvent(expectedEvent);
     eventMap.remove("creationDate");
+    eventMap.remove("eventId");
     return eventMap;
   }
 
@@ -0,0 +1,156 @@
+package com.micro.composite.product;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.LogDirDescription;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.event.Event;
+import com.micro.composite.product.services.EventPublisher;
+
+import reactor.core.publisher.Flux;
+
+// End to end throughput of the product events over Kafka. DefaultKafkaThroughputBenchmark runs it with the default
+// producer and consumer settings, ZstdKafkaThroughputBenchmark with the kafka_throughput profiles and
+// Lz4KafkaThroughputBenchmark with lz4 instead of zstd. An embedded broker stands in for the kafka container.
+// EVENTS product creates are published through the EventPublisher with up to IN_FLIGHT of them pending, while a
+// consumer with the settings of the core services reads them back. Prints the events per second from the first
+// publish to the last event read and the bytes the topic grew by, the record batches as they went over the wire,
+// against the bytes of the payloads.
+// Run with: ./gradlew :microservices:product-composite-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = NONE, properties = {
+    "eureka.client.enabled=false",
+    "logging.level.com.micro=WARN",
+    "management.health.rabbit.enabled=false",
+    "spring.cloud.function.definition=",
+    "spring.cloud.stream.function.autodetect=false",
+    "app.publish.confirms=false",
+    "spring.cloud.stream.defaultBinder=kafka",
+    "spring.cloud.stream.kafka.binder.brokers=${spring.embedded.kafka.brokers}" })
+@EmbeddedKafka(topics = "products", partitions = 2)
+abstract class KafkaThroughputBenchmark {
+  private static final int WARMUP_EVENTS = 20_000;
+  private static final int EVENTS = 100_000;
+  private static final int IN_FLIGHT = 1_000;
+  private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+  @Autowired
+  private EventPublisher publisher;
+
+  @Autowired
+  private EmbeddedKafkaBroker broker;
+
+  abstract String mode();
+
+  // The messageProcessor-in-0 consumer configuration of the core services in this mode
+  Map<String, Object> consumerConfiguration() {
+    return Map.of();
+  }
+
+  @Test
+  void publishProducts() throws Exception {
+    run(WARMUP_EVENTS);
+
+    long logSize = logSize();
+    Result result = run(EVENTS);
+    long wireBytes = logSize() - logSize;
+
+    System.out.printf("%-8s %7.0f events/s, %7.1f bytes/event on the wire for %7.1f bytes/event of payload%n",
+        mode(), EVENTS / (result.nanos / 1e9), wireBytes / (double) EVENTS, result.payloadBytes / (double) EVENTS);
+  }
+
+  private Result run(int events) throws Exception {
+    CountDownLatch consuming = new CountDownLatch(1);
+    CompletableFuture<Long> payloadBytes = CompletableFuture.supplyAsync(() -> consume(events, consuming));
+    consuming.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+    long start = System.nanoTime();
+    Flux.range(0, events)
+        .flatMap(i -> publisher.publish("products-out-0",
+            new Event<>(CREATE, i, new Product(i, "product " + i, i % 100, null))), IN_FLIGHT)
+        .blockLast(TIMEOUT);
+
+    Result result = new Result();
+    result.payloadBytes = payloadBytes.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    result.nanos = System.nanoTime() - start;
+    return result;
+  }
+
+  // Reads from the end of the topic until events more records arrived, returns the bytes of their values
+  private long consume(int events, CountDownLatch consuming) {
+    Map<String, Object> properties = new HashMap<>(
+        KafkaTestUtils.consumerProps(broker.getBrokersAsString(), "benchmark", "false"));
+    properties.putAll(consumerConfiguration());
+    try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(properties,
+        new ByteArrayDeserializer(), new ByteArrayDeserializer())) {
+      List<TopicPartition> partitions = List.of(new TopicPartition("products", 0), new TopicPartition("products", 1));
+      consumer.assign(partitions);
+      consumer.seekToEnd(partitions);
+      partitions.forEach(consumer::position);
+      consuming.countDown();
+
+      long deadline = System.nanoTime() + TIMEOUT.toNanos();
+      int received = 0;
+      long bytes = 0;
+      while (received < events && System.nanoTime() < deadline) {
+        for (ConsumerRecord<byte[], byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+          received++;
+          bytes += record.serializedValueSize();
+        }
+      }
+      if (received < events) {
+        throw new IllegalStateException("Read " + received + " of " + events + " events within " + TIMEOUT);
+      }
+      return bytes;
+    }
+  }
+
+  // The size of the products partitions on the broker
+  private long logSize() throws Exception {
+    try (Admin admin = Admin.create(
+        Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+      List<Integer> brokers = admin.describeCluster().nodes().get().stream().map(Node::id).toList();
+      long size = 0;
+      for (Map<String, LogDirDescription> logDirs : admin.describeLogDirs(brokers).allDescriptions().get().values()) {
+        for (LogDirDescription logDir : logDirs.values()) {
+          size += logDir.replicaInfos().entrySet().stream()
+              .filter(replica -> replica.getKey().topic().equals("products"))
+              .mapToLong(replica -> replica.getValue().size())
+              .sum();
+        }
+      }
+      return size;
+    }
+  }
+
+  private static class Result {
+    long nanos;
+    long payloadBytes;
+  }
+}
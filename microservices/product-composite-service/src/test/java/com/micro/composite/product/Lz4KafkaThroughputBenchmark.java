@@ -0,0 +1,12 @@
+package com.micro.composite.product;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "spring.cloud.stream.kafka.binder.producer-properties.compression.type=lz4")
+class Lz4KafkaThroughputBenchmark extends ZstdKafkaThroughputBenchmark {
+
+  @Override
+  String mode() {
+    return "lz4";
+  }
+}
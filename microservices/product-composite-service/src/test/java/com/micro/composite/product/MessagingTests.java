@@ -1,5 +1,6 @@
 package com.micro.composite.product;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static com.micro.api.event.Event.Type.CREATE;
 import static com.micro.api.event.Event.Type.DELETE;
@@ -35,7 +36,11 @@ import com.micro.api.core.recommendation.Recommendation;
 import com.micro.api.core.review.Review;
 import com.micro.api.event.Event;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "spring.main.allow-bean-definition-overriding=true")
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "spring.main.allow-bean-definition-overriding=true",
+    "spring.cloud.function.definition=",
+    "spring.cloud.stream.function.autodetect=false",
+    "app.publish.confirms=false" })
 @Import(TestChannelBinderConfiguration.class)
 class MessagingTests {
   private final Logger LOG = LoggerFactory.getLogger(MessagingTests.class);
@@ -105,6 +110,33 @@ class MessagingTests {
     assertThat(reviews.get(0), is(sameEventExcept(expectedReviewsEvent)));
   }
 
+  @Test
+  void createCompositeProductBulk() {
+    ProductAggregate composite = new ProductAggregate(1, "name", 2,
+        asList(new RecommendationSummary(1, "a", 1, "r"), new RecommendationSummary(2, "a", 2, "r")),
+        asList(new ReviewSummary(1, "a", "s", "c"), new ReviewSummary(2, "a", "s", "c")),
+        null);
+    postProduct(composite, ACCEPTED);
+
+    List<String> products = getMessages("products");
+    List<String> recommendations = getMessages("recommendations");
+    List<String> reviews = getMessages("reviews");
+
+    assertEquals(1, products.size());
+    assertEquals(1, recommendations.size());
+    assertEquals(1, reviews.size());
+
+    Event<Integer, Recommendation> expectedRecommendationsEvent = Event.bulkCreate(composite.getProductId(),
+        asList(new Recommendation(composite.getProductId(), 1, "a", 1, "r", null),
+            new Recommendation(composite.getProductId(), 2, "a", 2, "r", null)));
+    assertThat(recommendations.get(0), is(sameEventExcept(expectedRecommendationsEvent)));
+
+    Event<Integer, Review> expectedReviewsEvent = Event.bulkCreate(composite.getProductId(),
+        asList(new Review(composite.getProductId(), 1, "a", "s", "c", null),
+            new Review(composite.getProductId(), 2, "a", "s", "c", null)));
+    assertThat(reviews.get(0), is(sameEventExcept(expectedReviewsEvent)));
+  }
+
   @Test
   void deleteComposite() {
     deleteProduct(1, ACCEPTED);
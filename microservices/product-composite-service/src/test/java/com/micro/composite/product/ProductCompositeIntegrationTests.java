@@ -0,0 +1,139 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.api.exceptions.NotFoundException;
+import com.micro.api.exceptions.ServiceUnavailableException;
+import com.micro.composite.product.services.DownstreamHttpClients;
+import com.micro.composite.product.services.ProductCompositeIntegration;
+import com.micro.composite.product.services.RequestCoalescer;
+import com.micro.composite.product.services.RequestHedger;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class ProductCompositeIntegrationTests {
+  private static final String PRODUCT = "{\"productId\":1,\"name\":\"name\",\"weight\":1}";
+
+  private CircuitBreakerRegistry circuitBreakers;
+  private AtomicInteger calls;
+  private HttpStatus status;
+  private Duration latency;
+  private MockEnvironment environment;
+  private ProductCompositeIntegration integration;
+
+  @BeforeEach
+  void setUp() {
+    circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+        .slidingWindowSize(4)
+        .minimumNumberOfCalls(4)
+        .failureRateThreshold(50)
+        .waitDurationInOpenState(Duration.ofMinutes(1))
+        .ignoreExceptions(WebClientResponseException.NotFound.class)
+        .build());
+    BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+        .maxConcurrentCalls(1)
+        .maxWaitDuration(Duration.ZERO)
+        .build());
+
+    calls = new AtomicInteger();
+    status = OK;
+    latency = Duration.ZERO;
+    WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+      calls.incrementAndGet();
+      return Mono.just(ClientResponse.create(status)
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .body(status == OK ? PRODUCT : "{\"message\":\"" + status + "\"}")
+          .build()).delayElement(latency);
+    });
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    environment = new MockEnvironment();
+    integration = new ProductCompositeIntegration(new ObjectMapper(), webClient,
+        new DownstreamHttpClients(environment), null, null, new RequestCoalescer(registry),
+        new RequestHedger(registry, environment), circuitBreakers, bulkheads);
+  }
+
+  @Test
+  void failingDependencyOpensCircuitAndFailsFast() {
+    status = INTERNAL_SERVER_ERROR;
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(integration.getProduct(1)).expectError().verify();
+    }
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.circuitBreaker("product").getState());
+
+    status = OK;
+    StepVerifier.create(integration.getProduct(1)).expectError(ServiceUnavailableException.class).verify();
+    assertEquals(4, calls.get());
+  }
+
+  @Test
+  void openCircuitDegradesRecommendationsToEmpty() {
+    circuitBreakers.circuitBreaker("recommendation").transitionToOpenState();
+
+    StepVerifier.create(integration.getRecommendations(1)).verifyComplete();
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  void notFoundDoesNotOpenCircuit() {
+    status = NOT_FOUND;
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(integration.getProduct(1)).expectError(NotFoundException.class).verify();
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.circuitBreaker("product").getState());
+  }
+
+  @Test
+  void bulkheadRejectsCallsBeyondItsLimit() {
+    latency = Duration.ofMillis(200);
+
+    StepVerifier.create(Mono.zip(integration.getProduct(1).map(p -> "ok").onErrorReturn("rejected"),
+        integration.getProduct(2).map(p -> "ok").onErrorReturn("rejected")))
+        .expectNextMatches(results -> results.getT1().equals("ok") != results.getT2().equals("ok"))
+        .verifyComplete();
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void hedgeRunsUnderThePermitOfItsCall() {
+    environment.setProperty("app.downstream.product.hedge", "true");
+    environment.setProperty("app.downstream.hedgeDelayMillis", "20");
+    latency = Duration.ofMillis(200);
+
+    StepVerifier.create(integration.getProduct(1)).expectNextCount(1).verifyComplete();
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void timedOutProductIsServiceUnavailable() {
+    environment.setProperty("app.downstream.product.timeoutMillis", "50");
+    latency = Duration.ofMillis(500);
+
+    StepVerifier.create(integration.getProduct(1)).expectError(ServiceUnavailableException.class).verify();
+  }
+}
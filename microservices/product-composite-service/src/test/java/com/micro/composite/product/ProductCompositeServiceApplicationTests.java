@@ -1,26 +1,46 @@
 package com.micro.composite.product;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static com.micro.api.event.Event.Type.DELETE;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import com.micro.api.composite.product.ProductAggregatePart;
 import com.micro.api.core.product.Product;
 import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.recommendation.RecommendationStats;
 import com.micro.api.core.review.Review;
+import com.micro.api.core.review.ReviewStats;
+import com.micro.api.event.Event;
 import com.micro.api.exceptions.InvalidInputException;
 import com.micro.api.exceptions.NotFoundException;
+import com.micro.composite.product.services.ProductAggregateCache;
 import com.micro.composite.product.services.ProductCompositeIntegration;
 
 import reactor.core.publisher.Flux;
@@ -31,6 +51,8 @@ class ProductCompositeServiceApplicationTests {
   private static final int PRODUCT_ID_OK = 1;
   private static final int PRODUCT_ID_NOT_FOUND = 2;
   private static final int PRODUCT_ID_NOT_INVALID = 3;
+  private static final int PRODUCT_ID_MANY_REVIEWS = 4;
+  private static final int PAGE_SIZE = 20;
 
   @Autowired
   WebTestClient client;
@@ -38,8 +60,17 @@ class ProductCompositeServiceApplicationTests {
   @MockBean
   ProductCompositeIntegration compositeIntegration;
 
+  @Autowired
+  ProductAggregateCache cache;
+
+  @Autowired
+  @Qualifier("cacheInvalidator")
+  Consumer<Event<Integer, Object>> cacheInvalidator;
+
   @BeforeEach
   void setUp() {
+    cache.invalidate(PRODUCT_ID_OK);
+
     when(compositeIntegration.getProduct(PRODUCT_ID_OK))
         .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock address")));
 
@@ -51,6 +82,51 @@ class ProductCompositeServiceApplicationTests {
         .thenReturn(Flux
             .fromIterable(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address"))));
 
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_OK), anyInt(), eq(0)))
+        .thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock adderss")));
+
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_OK), anyInt(), eq(0)))
+        .thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+
+    when(compositeIntegration.getProduct(PRODUCT_ID_MANY_REVIEWS))
+        .thenReturn(Mono.just(new Product(PRODUCT_ID_MANY_REVIEWS, "name", 1, "mock address")));
+
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_MANY_REVIEWS), anyInt(), anyInt()))
+        .thenReturn(Flux.empty());
+
+    // The composite asks for one review more than a page
+    when(compositeIntegration.getReviews(PRODUCT_ID_MANY_REVIEWS, PAGE_SIZE + 1, 0))
+        .thenReturn(Flux.fromStream(IntStream.rangeClosed(1, PAGE_SIZE + 1)
+            .mapToObj(i -> new Review(PRODUCT_ID_MANY_REVIEWS, i, "author", "subject", "content", "mock address"))));
+
+    when(compositeIntegration.getReviews(PRODUCT_ID_MANY_REVIEWS, 5, PAGE_SIZE))
+        .thenReturn(Flux.fromStream(IntStream.rangeClosed(PAGE_SIZE + 1, PAGE_SIZE + 5)
+            .mapToObj(i -> new Review(PRODUCT_ID_MANY_REVIEWS, i, "author", "subject", "content", "mock address"))));
+
+    when(compositeIntegration.streamRecommendations(PRODUCT_ID_OK))
+        .thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock adderss"),
+            new Recommendation(PRODUCT_ID_OK, 2, "author", 2, "content", "mock adderss")));
+
+    when(compositeIntegration.streamReviews(PRODUCT_ID_OK))
+        .thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+
+    when(compositeIntegration.getProducts(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+        .thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock address")));
+
+    when(compositeIntegration.getRecommendations(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+        .thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock adderss"),
+            new Recommendation(PRODUCT_ID_OK, 2, "author", 2, "content", "mock adderss")));
+
+    when(compositeIntegration.getReviews(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+        .thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+
+    when(compositeIntegration.getRecommendationStats(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+        .thenReturn(Flux.just(new RecommendationStats(PRODUCT_ID_OK, 2, 1.5),
+            new RecommendationStats(PRODUCT_ID_NOT_FOUND, 0, 0)));
+
+    when(compositeIntegration.getReviewStats(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+        .thenReturn(Flux.just(new ReviewStats(PRODUCT_ID_OK, 1), new ReviewStats(PRODUCT_ID_NOT_FOUND, 0)));
+
     when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
         .thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
 
@@ -94,6 +170,123 @@ class ProductCompositeServiceApplicationTests {
         .jsonPath("$.reviews.length()").isEqualTo(1);
   }
 
+  @Test
+  void getProductWithoutMorePagesHasNoCursors() {
+    getAndVerifyProduct(PRODUCT_ID_OK, OK)
+        .jsonPath("$.recommendationsCursor").doesNotExist()
+        .jsonPath("$.reviewsCursor").doesNotExist();
+  }
+
+  @Test
+  void getProductReturnsFirstPageAndCursor() {
+    getAndVerifyProduct(PRODUCT_ID_MANY_REVIEWS, OK)
+        .jsonPath("$.reviews.length()").isEqualTo(PAGE_SIZE)
+        .jsonPath("$.reviews[" + (PAGE_SIZE - 1) + "].reviewId").isEqualTo(PAGE_SIZE)
+        .jsonPath("$.reviewsCursor").isEqualTo(PAGE_SIZE)
+        .jsonPath("$.recommendations.length()").isEqualTo(0)
+        .jsonPath("$.recommendationsCursor").doesNotExist();
+  }
+
+  @Test
+  void getNextReviewsPage() {
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_MANY_REVIEWS + "/reviews?after=" + PAGE_SIZE + "&limit=5")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(5)
+        .jsonPath("$[0].reviewId").isEqualTo(PAGE_SIZE + 1);
+  }
+
+  @Test
+  void getReviewsPageInvalidLimit() {
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_MANY_REVIEWS + "/reviews?limit=0")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY);
+  }
+
+  @Test
+  void getProductIsCachedUntilInvalidated() {
+    getAndVerifyProduct(PRODUCT_ID_OK, OK).jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK);
+    getAndVerifyProduct(PRODUCT_ID_OK, OK).jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK);
+    verify(compositeIntegration, times(1)).getProduct(PRODUCT_ID_OK);
+
+    cacheInvalidator.accept(new Event<>(DELETE, PRODUCT_ID_OK, null));
+
+    getAndVerifyProduct(PRODUCT_ID_OK, OK).jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK);
+    verify(compositeIntegration, times(2)).getProduct(PRODUCT_ID_OK);
+  }
+
+  @Test
+  void getProductsByIds() {
+    client.get()
+        .uri("/product-composite?ids=" + PRODUCT_ID_OK + "," + PRODUCT_ID_NOT_FOUND)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_OK)
+        .jsonPath("$[0].recommendations.length()").isEqualTo(2)
+        .jsonPath("$[0].reviews.length()").isEqualTo(1);
+  }
+
+  @Test
+  void getProductsTooManyIds() {
+    String ids = IntStream.rangeClosed(1, 101).mapToObj(Integer::toString).collect(Collectors.joining(","));
+    client.get()
+        .uri("/product-composite?ids=" + ids)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(BAD_REQUEST);
+  }
+
+  @Test
+  void getProductSummaries() {
+    client.get()
+        .uri("/product-composite/summary?ids=" + PRODUCT_ID_OK + "," + PRODUCT_ID_NOT_FOUND)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectHeader().contentType(APPLICATION_JSON)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_OK)
+        .jsonPath("$[0].recommendationCount").isEqualTo(2)
+        .jsonPath("$[0].averageRate").isEqualTo(1.5)
+        .jsonPath("$[0].reviewCount").isEqualTo(1);
+  }
+
+  @Test
+  void streamProduct() {
+    List<ProductAggregatePart> parts = client.get()
+        .uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+        .accept(APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectHeader().contentType(APPLICATION_NDJSON)
+        .expectBodyList(ProductAggregatePart.class).returnResult().getResponseBody();
+
+    assertEquals(4, parts.size());
+    assertEquals(ProductAggregatePart.Type.PRODUCT, parts.get(0).getType());
+    assertEquals("name", parts.get(0).getName());
+    assertEquals(2, parts.stream().filter(p -> p.getType() == ProductAggregatePart.Type.RECOMMENDATION).count());
+    assertEquals(1, parts.stream().filter(p -> p.getType() == ProductAggregatePart.Type.REVIEW).count());
+  }
+
+  @Test
+  void streamProductNotFound() {
+    client.get()
+        .uri("/product-composite/" + PRODUCT_ID_NOT_FOUND + "/stream")
+        .accept(APPLICATION_NDJSON, APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(NOT_FOUND);
+  }
+
   @Test
   void getProductNotFound() {
     getAndVerifyProduct(PRODUCT_ID_NOT_FOUND, NOT_FOUND)
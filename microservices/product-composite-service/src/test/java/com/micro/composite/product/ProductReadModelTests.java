@@ -0,0 +1,170 @@
+package com.micro.composite.product;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static com.micro.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.composite.product.services.ProductReadModel;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProductReadModelTests {
+  private static final int MAX_CHILDREN = 11;
+
+  private SimpleMeterRegistry registry;
+  private ProductReadModel readModel;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    readModel = new ProductReadModel(registry, DuplicatePolicy.REJECT, MAX_CHILDREN);
+  }
+
+  @Test
+  void materializesProductWithChildren() {
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    readModel.applyReviewEvent(Event.bulkCreate(1, List.of(review(1, 3), review(1, 1), review(1, 2))));
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+
+    ProductReadModel.Materialized materialized = readModel.find(1, 10).orElseThrow();
+    assertEquals("name", materialized.getProduct().getName());
+    assertEquals(1, materialized.getRecommendations().size());
+    assertEquals(List.of(1, 2, 3), reviewIds(materialized));
+  }
+
+  @Test
+  void childrenAreCutAtTheLimitInIdOrder() {
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    for (int reviewId = 5; reviewId >= 1; reviewId--) {
+      readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, reviewId)));
+    }
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+
+    assertEquals(List.of(1, 2), reviewIds(readModel.find(1, 2).orElseThrow()));
+  }
+
+  @Test
+  void onlyTheFirstChildrenAreKept() {
+    readModel = new ProductReadModel(registry, DuplicatePolicy.REJECT, 3);
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    // Every lower id evicts the highest one kept, the bulk only holds ids beyond the kept ones
+    for (int reviewId = 6; reviewId >= 1; reviewId--) {
+      readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, reviewId)));
+    }
+    readModel.applyReviewEvent(Event.bulkCreate(1, List.of(review(1, 7), review(1, 8))));
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+
+    assertEquals(List.of(1, 2, 3), reviewIds(readModel.find(1, 3).orElseThrow()));
+    assertFalse(readModel.find(1, 4).isPresent());
+  }
+
+  @Test
+  void productsWithoutTheirCreateEventAreNotServed() {
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, 1)));
+
+    assertFalse(readModel.find(1, 10).isPresent());
+  }
+
+  @Test
+  void productIsHeldBackUntilBothChildTopicsCaughtUp() {
+    ZonedDateTime created = ZonedDateTime.now();
+    readModel.applyRecommendationEvent(event(CREATE, 2, recommendation(2, 1), created.minusSeconds(1)), 0);
+    readModel.applyProductEvent(event(CREATE, 1, new Product(1, "name", 1, null), created), 0);
+    readModel.applyReviewEvent(event(CREATE, 1, review(1, 1), created), 0);
+    assertFalse(readModel.find(1, 10).isPresent());
+
+    // A later event of another product on another partition says nothing about partition 0
+    readModel.applyRecommendationEvent(event(CREATE, 3, recommendation(3, 1), created.plusSeconds(1)), 1);
+    assertFalse(readModel.find(1, 10).isPresent());
+
+    readModel.applyRecommendationEvent(event(CREATE, 2, recommendation(2, 2), created.plusSeconds(1)), 0);
+    assertTrue(readModel.find(1, 10).isPresent());
+  }
+
+  @Test
+  void duplicateCreatesKeepTheHeldEntities() {
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, 1)));
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "other", 1, null)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, new Review(1, 1, "other", "s", "c", null)));
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+
+    ProductReadModel.Materialized materialized = readModel.find(1, 10).orElseThrow();
+    assertEquals("name", materialized.getProduct().getName());
+    assertEquals("a", materialized.getReviews().get(0).getAuthor());
+  }
+
+  @Test
+  void duplicateCreatesOverwriteWithTheOverwritePolicy() {
+    readModel = new ProductReadModel(registry, DuplicatePolicy.OVERWRITE, MAX_CHILDREN);
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, 1)));
+
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "other", 1, null)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, new Review(1, 1, "other", "s", "c", null)));
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+
+    ProductReadModel.Materialized materialized = readModel.find(1, 10).orElseThrow();
+    assertEquals("other", materialized.getProduct().getName());
+    assertEquals("other", materialized.getReviews().get(0).getAuthor());
+  }
+
+  @Test
+  void deleteEventsRemoveTheProduct() {
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, 1)));
+    readModel.applyRecommendationEvent(new Event<>(CREATE, 1, recommendation(1, 1)));
+    assertTrue(readModel.find(1, 10).isPresent());
+
+    readModel.applyProductEvent(new Event<Integer, Product>(DELETE, 1, null));
+    readModel.applyReviewEvent(new Event<Integer, Review>(DELETE, 1, null));
+    readModel.applyRecommendationEvent(new Event<Integer, Recommendation>(DELETE, 1, null));
+
+    assertFalse(readModel.find(1, 10).isPresent());
+    assertEquals(0, registry.get("readmodel.products").gauge().value());
+  }
+
+  @Test
+  void lagIsRecordedPerTopic() {
+    readModel.applyProductEvent(new Event<>(CREATE, 1, new Product(1, "name", 1, null)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, 1)));
+    readModel.applyReviewEvent(new Event<>(CREATE, 1, review(1, 2)));
+
+    assertEquals(1, registry.get("readmodel.lag").tag("topic", "products").timer().count());
+    assertEquals(2, registry.get("readmodel.lag").tag("topic", "reviews").timer().count());
+    assertEquals(1, registry.get("readmodel.products").gauge().value());
+  }
+
+  private <T> Event<Integer, T> event(Event.Type type, int productId, T data, ZonedDateTime created) {
+    return new Event<>(UUID.randomUUID(), type, productId, data, null, created);
+  }
+
+  private List<Integer> reviewIds(ProductReadModel.Materialized materialized) {
+    return materialized.getReviews().stream().map(Review::getReviewId).collect(Collectors.toList());
+  }
+
+  private Review review(int productId, int reviewId) {
+    return new Review(productId, reviewId, "a", "s", "c", null);
+  }
+
+  private Recommendation recommendation(int productId, int recommendationId) {
+    return new Recommendation(productId, recommendationId, "a", 1, "c", null);
+  }
+}
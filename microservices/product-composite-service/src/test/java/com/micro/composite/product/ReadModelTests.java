@@ -0,0 +1,134 @@
+package com.micro.composite.product;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.composite.product.services.ProductCompositeIntegration;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "app.readModel.enabled=true" })
+class ReadModelTests {
+
+  @Autowired
+  WebTestClient client;
+
+  @MockBean
+  ProductCompositeIntegration compositeIntegration;
+
+  @Autowired
+  @Qualifier("readModelProducts")
+  Consumer<Message<Event<Integer, Product>>> readModelProducts;
+
+  @Autowired
+  @Qualifier("readModelRecommendations")
+  Consumer<Message<Event<Integer, Recommendation>>> readModelRecommendations;
+
+  @Autowired
+  @Qualifier("readModelReviews")
+  Consumer<Message<Event<Integer, Review>>> readModelReviews;
+
+  @Test
+  void getProductIsServedFromTheReadModel() {
+    readModelProducts.accept(message(new Event<>(CREATE, 1, new Product(1, "name", 1, null))));
+    readModelReviews.accept(message(Event.bulkCreate(1, List.of(
+        new Review(1, 1, "a", "s", "c", null),
+        new Review(1, 2, "a", "s", "c", null)))));
+    // Product 1 has no recommendations, a later recommendation of another product shows the topic caught up
+    readModelRecommendations.accept(message(new Event<>(CREATE, 2, new Recommendation(2, 1, "a", 1, "c", null))));
+
+    client.get()
+        .uri("/product-composite/1")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("name")
+        .jsonPath("$.reviews.length()").isEqualTo(2)
+        .jsonPath("$.recommendations.length()").isEqualTo(0);
+
+    verify(compositeIntegration, never()).getProduct(anyInt());
+    verify(compositeIntegration, never()).getReviews(anyInt(), anyInt(), anyInt());
+  }
+
+  @Test
+  void getProductFallsBackUntilTheChildrenCaughtUp() {
+    when(compositeIntegration.getProduct(3)).thenReturn(Mono.just(new Product(3, "core", 1, null)));
+    when(compositeIntegration.getRecommendations(eq(3), anyInt(), anyInt())).thenReturn(Flux.empty());
+    when(compositeIntegration.getReviews(eq(3), anyInt(), anyInt())).thenReturn(Flux.empty());
+    readModelProducts.accept(message(new Event<>(CREATE, 3, new Product(3, "name", 1, null))));
+
+    client.get()
+        .uri("/product-composite/3")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("core");
+
+    verify(compositeIntegration).getProduct(3);
+  }
+
+  @Test
+  void reviewsBeyondTheFirstPageAreReadFromTheCoreServices() {
+    readModelProducts.accept(message(new Event<>(CREATE, 4, new Product(4, "name", 1, null))));
+    readModelReviews.accept(message(Event.bulkCreate(4, IntStream.rangeClosed(1, 25)
+        .mapToObj(reviewId -> new Review(4, reviewId, "a", "s", "c", null)).collect(Collectors.toList()))));
+    readModelRecommendations.accept(message(new Event<>(CREATE, 5, new Recommendation(5, 1, "a", 1, "c", null))));
+    when(compositeIntegration.getReviews(4, 20, 20)).thenReturn(Flux.range(21, 5)
+        .map(reviewId -> new Review(4, reviewId, "a", "s", "c", null)));
+
+    client.get()
+        .uri("/product-composite/4")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectBody()
+        .jsonPath("$.reviews.length()").isEqualTo(20)
+        .jsonPath("$.reviewsCursor").isEqualTo(20);
+
+    client.get()
+        .uri("/product-composite/4/reviews?after=20")
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(5)
+        .jsonPath("$[0].reviewId").isEqualTo(21);
+
+    verify(compositeIntegration, never()).getProduct(anyInt());
+    verify(compositeIntegration).getReviews(4, 20, 20);
+  }
+
+  private <T> Message<Event<Integer, T>> message(Event<Integer, T> event) {
+    return MessageBuilder.withPayload(event).build();
+  }
+}
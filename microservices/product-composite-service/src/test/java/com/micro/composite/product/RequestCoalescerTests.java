@@ -0,0 +1,100 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.micro.composite.product.services.RequestCoalescer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RequestCoalescerTests {
+
+  private SimpleMeterRegistry registry;
+  private RequestCoalescer coalescer;
+  private AtomicInteger calls;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    coalescer = new RequestCoalescer(registry);
+    calls = new AtomicInteger();
+  }
+
+  @Test
+  void concurrentCallsShareOneRequest() {
+    Mono<String> first = coalescer.mono("product", 1, this::slowCall);
+    Mono<String> second = coalescer.mono("product", 1, this::slowCall);
+
+    StepVerifier.create(Mono.zip(first, second))
+        .expectNextMatches(t -> t.getT1().equals("result") && t.getT2().equals("result"))
+        .verifyComplete();
+
+    assertEquals(1, calls.get());
+    assertEquals(1, count("issued"));
+    assertEquals(1, count("coalesced"));
+  }
+
+  @Test
+  void sequentialCallsAreNotCoalesced() {
+    StepVerifier.create(coalescer.mono("product", 1, this::slowCall)).expectNext("result").verifyComplete();
+    StepVerifier.create(coalescer.mono("product", 1, this::slowCall)).expectNext("result").verifyComplete();
+
+    assertEquals(2, calls.get());
+    assertEquals(2, count("issued"));
+  }
+
+  @Test
+  void differentIdsAreNotCoalesced() {
+    StepVerifier.create(Mono.zip(coalescer.mono("product", 1, this::slowCall),
+        coalescer.mono("product", 2, this::slowCall))).expectNextCount(1).verifyComplete();
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void concurrentFluxCallsShareOneRequest() {
+    Flux<Integer> first = coalescer.flux("reviews", 1, this::slowFlux);
+    Flux<Integer> second = coalescer.flux("reviews", 1, this::slowFlux);
+
+    StepVerifier.create(Flux.merge(first, second)).expectNextCount(6).verifyComplete();
+
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void errorsAreSharedAndNotRemembered() {
+    Mono<String> failing = Mono.defer(() -> {
+      calls.incrementAndGet();
+      return Mono.<String>error(new RuntimeException("boom")).delaySubscription(Duration.ofMillis(50));
+    });
+
+    StepVerifier.create(Mono.zip(coalescer.mono("product", 1, () -> failing),
+        coalescer.mono("product", 1, () -> failing))).verifyError(RuntimeException.class);
+    assertEquals(1, calls.get());
+
+    StepVerifier.create(coalescer.mono("product", 1, this::slowCall)).expectNext("result").verifyComplete();
+    assertEquals(2, calls.get());
+  }
+
+  private Mono<String> slowCall() {
+    calls.incrementAndGet();
+    return Mono.just("result").delayElement(Duration.ofMillis(50));
+  }
+
+  private Flux<Integer> slowFlux() {
+    calls.incrementAndGet();
+    return Flux.just(1, 2, 3).delayElements(Duration.ofMillis(10));
+  }
+
+  private double count(String outcome) {
+    return registry.counter("composite.downstream.calls", "call", "product", "outcome", outcome).count();
+  }
+}
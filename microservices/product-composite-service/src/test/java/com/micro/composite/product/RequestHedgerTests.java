@@ -0,0 +1,111 @@
+package com.micro.composite.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.micro.composite.product.services.RequestHedger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RequestHedgerTests {
+
+  private SimpleMeterRegistry registry;
+  private MockEnvironment environment;
+  private AtomicInteger calls;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    environment = new MockEnvironment()
+        .withProperty("app.downstream.timeoutMillis", "2000")
+        .withProperty("app.downstream.hedge", "true")
+        .withProperty("app.downstream.hedgeDelayMillis", "20");
+    calls = new AtomicInteger();
+  }
+
+  @Test
+  void slowAttemptIsHedged() {
+    RequestHedger hedger = new RequestHedger(registry, environment);
+
+    StepVerifier.create(hedger.mono("review", () -> call(Duration.ofMillis(1000), Duration.ZERO)))
+        .expectNext("attempt 2")
+        .expectComplete()
+        .verify(Duration.ofMillis(500));
+
+    assertEquals(2, calls.get());
+    assertEquals(1, count("composite.hedge.issued", "review"));
+    assertEquals(1, count("composite.hedge.won", "review"));
+  }
+
+  @Test
+  void fastAttemptIsNotHedged() {
+    RequestHedger hedger = new RequestHedger(registry, environment);
+
+    StepVerifier.create(hedger.mono("review", () -> call(Duration.ZERO, Duration.ZERO)))
+        .expectNext("attempt 1")
+        .verifyComplete();
+
+    assertEquals(1, calls.get());
+    assertEquals(0, count("composite.hedge.issued", "review"));
+  }
+
+  @Test
+  void hedgedAttemptThatLosesIsNotCountedAsWon() {
+    RequestHedger hedger = new RequestHedger(registry, environment);
+
+    StepVerifier.create(hedger.mono("review", () -> call(Duration.ofMillis(100), Duration.ofMillis(1000))))
+        .expectNext("attempt 1")
+        .verifyComplete();
+
+    assertEquals(1, count("composite.hedge.issued", "review"));
+    assertEquals(0, count("composite.hedge.won", "review"));
+  }
+
+  @Test
+  void failedHedgeFallsBackToTheFirstAttempt() {
+    RequestHedger hedger = new RequestHedger(registry, environment);
+
+    StepVerifier.create(hedger.mono("review", () -> calls.incrementAndGet() == 1
+        ? Mono.just("attempt 1").delayElement(Duration.ofMillis(100))
+        : Mono.<String>error(new IllegalStateException("connection refused"))))
+        .expectNext("attempt 1")
+        .verifyComplete();
+
+    assertEquals(2, calls.get());
+    assertEquals(1, count("composite.hedge.issued", "review"));
+    assertEquals(0, count("composite.hedge.won", "review"));
+  }
+
+  @Test
+  void slowCallTimesOutPerDependency() {
+    environment.setProperty("app.downstream.product.timeoutMillis", "100");
+    environment.setProperty("app.downstream.product.hedge", "false");
+    RequestHedger hedger = new RequestHedger(registry, environment);
+
+    StepVerifier.create(hedger.mono("product", () -> call(Duration.ofMillis(1000), Duration.ZERO)))
+        .expectError(TimeoutException.class)
+        .verify(Duration.ofMillis(500));
+
+    assertEquals(1, calls.get());
+    assertEquals(0, count("composite.hedge.issued", "product"));
+  }
+
+  // The first attempt answers after firstDelay, the hedge after hedgeDelay
+  private Mono<String> call(Duration firstDelay, Duration hedgeDelay) {
+    int attempt = calls.incrementAndGet();
+    return Mono.just("attempt " + attempt).delayElement(attempt == 1 ? firstDelay : hedgeDelay);
+  }
+
+  private double count(String name, String dependency) {
+    return registry.counter(name, "dependency", dependency).count();
+  }
+}
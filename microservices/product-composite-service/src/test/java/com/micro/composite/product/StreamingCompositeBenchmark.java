@@ -0,0 +1,266 @@
+package com.micro.composite.product;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.composite.product.services.DownstreamHttpClients;
+import com.micro.composite.product.services.ProductCompositeIntegration;
+import com.micro.composite.product.services.RequestCoalescer;
+import com.micro.composite.product.services.RequestHedger;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+// Compares the time to first byte and the heap of a composite read with every recommendation and review, collected
+// into lists like an application/json composite would be, with the NDJSON stream of /product-composite/{id}/stream.
+// The stub core services answer both formats alike, CHUNK children every CHUNK_TIME, like a cursor over the
+// database, so only the composite side differs. The first byte of the collected read can only go out once both
+// lists are complete, the stream writes the product header first and each child as soon as it is decoded.
+// The heap is the peak used heap sampled every millisecond over the baseline after a GC, garbage included, so it is
+// an upper bound that shows the trend rather than the retained size.
+// Run with: ./gradlew :microservices:product-composite-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StreamingCompositeBenchmark {
+  private static final int CHUNK = 100;
+  private static final Duration CHUNK_TIME = Duration.ofMillis(1);
+  private static final int ITERATIONS = 5;
+  private static final String PRODUCT = "{\"productId\":1,\"name\":\"name\",\"weight\":1,\"serviceAddress\":\"stub\"}";
+  private static final String CONTENT = "c".repeat(200);
+  private static final String RECOMMENDATION = "{\"productId\":1,\"recommendationId\":%d,\"author\":\"author\","
+      + "\"rate\":1,\"content\":\"" + CONTENT + "\"}";
+  private static final String REVIEW = "{\"productId\":1,\"reviewId\":%d,\"author\":\"author\",\"subject\":\"subject\","
+      + "\"content\":\"" + CONTENT + "\"}";
+
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private volatile int children;
+  private DisposableServer product;
+  private DisposableServer recommendation;
+  private DisposableServer review;
+  private ProductCompositeIntegration integration;
+
+  @BeforeAll
+  void setUp() {
+    product = HttpServer.create().port(0)
+        .handle((request, response) -> response
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .sendString(Mono.just(PRODUCT)))
+        .bindNow();
+    recommendation = stub(RECOMMENDATION);
+    review = stub(REVIEW);
+
+    MockEnvironment environment = new MockEnvironment();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    integration = new ProductCompositeIntegration(new ObjectMapper(),
+        WebClient.builder().filter((request, next) -> next.exchange(toStub(request))),
+        new DownstreamHttpClients(environment), null, null, new RequestCoalescer(registry),
+        new RequestHedger(registry, environment), CircuitBreakerRegistry.ofDefaults(),
+        BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(Integer.MAX_VALUE).build()));
+  }
+
+  @AfterAll
+  void tearDown() {
+    product.disposeNow();
+    recommendation.disposeNow();
+    review.disposeNow();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1000, 10000, 50000 })
+  void compositeRead(int children) {
+    this.children = children;
+    collected(1);
+    streamed(1);
+
+    Result collected = new Result();
+    Result streamed = new Result();
+    for (int i = 0; i < ITERATIONS; i++) {
+      collected.add(collected(i + 2));
+      streamed.add(streamed(i + 2));
+    }
+
+    System.out.printf("children=%-6d collected: ttfb %8.2f ms, total %8.2f ms, heap %7.1f MB | "
+        + "streamed: ttfb %6.2f ms, first child %6.2f ms, total %8.2f ms, heap %7.1f MB%n", children,
+        collected.avgTtfb(), collected.avgTotal(), collected.maxHeapMb(),
+        streamed.avgTtfb(), streamed.avgFirstChild(), streamed.avgTotal(), streamed.maxHeapMb());
+  }
+
+  // Nothing can be written before the zip of the product and both complete lists
+  private Run collected(int productId) {
+    return measure(run -> Mono.zip(
+        integration.getProduct(productId),
+        integration.getRecommendations(productId).collectList(),
+        integration.getReviews(productId).collectList())
+        .doOnNext(values -> {
+          run.ttfb(System.nanoTime());
+          run.firstChild(System.nanoTime());
+        })
+        .then());
+  }
+
+  // The same flow as ProductCompositeServiceImpl.streamProduct, each element is dropped as it would be written
+  private Run streamed(int productId) {
+    return measure(run -> integration.getProduct(productId)
+        .doOnNext(product -> run.ttfb(System.nanoTime()))
+        .flatMapMany(product -> Flux.merge(
+            integration.streamRecommendations(productId).doOnNext(r -> run.firstChild(System.nanoTime())),
+            integration.streamReviews(productId).doOnNext(r -> run.firstChild(System.nanoTime()))))
+        .then());
+  }
+
+  private Run measure(Function<Run, Mono<Void>> read) {
+    System.gc();
+    long baseline = memory.getHeapMemoryUsage().getUsed();
+    AtomicLong peak = new AtomicLong(baseline);
+    AtomicBoolean done = new AtomicBoolean();
+    Thread sampler = new Thread(() -> {
+      while (!done.get()) {
+        peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException ex) {
+          return;
+        }
+      }
+    });
+    sampler.start();
+
+    Run run = new Run(System.nanoTime());
+    read.apply(run).block(Duration.ofMinutes(1));
+    run.end = System.nanoTime();
+    done.set(true);
+    try {
+      sampler.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    run.heapBytes = Math.max(0, peak.get() - baseline);
+    return run;
+  }
+
+  // Answers application/json with an array and application/x-ndjson with a line per child, chunk by chunk
+  private DisposableServer stub(String child) {
+    return HttpServer.create().port(0)
+        .handle((request, response) -> {
+          boolean ndjson = request.requestHeaders().get(HttpHeaders.ACCEPT, "")
+              .contains(MediaType.APPLICATION_NDJSON_VALUE);
+          Flux<String> chunks = Flux.range(0, children / CHUNK)
+              .delayElements(CHUNK_TIME)
+              .map(chunk -> chunk(child, chunk, ndjson));
+          if (!ndjson) {
+            chunks = Flux.concat(Mono.just("["), chunks, Mono.just("]"));
+          }
+          return response
+              .header(HttpHeaders.CONTENT_TYPE,
+                  ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE)
+              .sendString(chunks);
+        })
+        .bindNow();
+  }
+
+  private String chunk(String child, int chunk, boolean ndjson) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = chunk * CHUNK; i < (chunk + 1) * CHUNK; i++) {
+      if (!ndjson && i > 0) {
+        builder.append(',');
+      }
+      builder.append(String.format(child, i));
+      if (ndjson) {
+        builder.append('\n');
+      }
+    }
+    return builder.toString();
+  }
+
+  // The integration calls the core services by their Eureka names, the stubs listen on local ports
+  private ClientRequest toStub(ClientRequest request) {
+    int port = switch (request.url().getHost()) {
+      case "product" -> product.port();
+      case "recommendation" -> recommendation.port();
+      default -> review.port();
+    };
+    URI url = UriComponentsBuilder.fromUri(request.url()).host("localhost").port(port).build(true).toUri();
+    return ClientRequest.from(request).url(url).build();
+  }
+
+  private static class Run {
+    final long start;
+    volatile long ttfb;
+    volatile long firstChild;
+    long end;
+    long heapBytes;
+
+    Run(long start) {
+      this.start = start;
+    }
+
+    void ttfb(long now) {
+      if (ttfb == 0) {
+        ttfb = now;
+      }
+    }
+
+    void firstChild(long now) {
+      if (firstChild == 0) {
+        firstChild = now;
+      }
+    }
+  }
+
+  private static class Result {
+    long ttfbNanos;
+    long firstChildNanos;
+    long totalNanos;
+    long maxHeapBytes;
+    int runs;
+
+    void add(Run run) {
+      ttfbNanos += run.ttfb - run.start;
+      firstChildNanos += run.firstChild - run.start;
+      totalNanos += run.end - run.start;
+      maxHeapBytes = Math.max(maxHeapBytes, run.heapBytes);
+      runs++;
+    }
+
+    double avgTtfb() {
+      return ttfbNanos / 1_000_000.0 / runs;
+    }
+
+    double avgFirstChild() {
+      return firstChildNanos / 1_000_000.0 / runs;
+    }
+
+    double avgTotal() {
+      return totalNanos / 1_000_000.0 / runs;
+    }
+
+    double maxHeapMb() {
+      return maxHeapBytes / 1024.0 / 1024.0;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.micro.composite.product;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "app.limiter.enabled=false")
+class UnlimitedCompositeOverloadBenchmark extends CompositeOverloadBenchmark {
+
+  @Override
+  String mode() {
+    return "off";
+  }
+}
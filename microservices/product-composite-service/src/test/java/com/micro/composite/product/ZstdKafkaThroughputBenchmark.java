@@ -0,0 +1,22 @@
+package com.micro.composite.product;
+
+import java.util.Map;
+
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("kafka_throughput")
+class ZstdKafkaThroughputBenchmark extends KafkaThroughputBenchmark {
+
+  @Override
+  String mode() {
+    return "zstd";
+  }
+
+  @Override
+  Map<String, Object> consumerConfiguration() {
+    return Map.of(
+        "fetch.min.bytes", 65536,
+        "fetch.max.wait.ms", 50,
+        "max.partition.fetch.bytes", 1048576);
+  }
+}
@@ -1,49 +1,128 @@
 package com.micro.core.product.services;
 
+import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.messaging.Message;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.micro.api.core.product.Product;
 import com.micro.api.core.product.ProductService;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.EventProcessingException;
+import com.micro.util.messaging.AvroEventMessageConverter;
+import com.micro.util.messaging.BatchEventReader;
+import com.micro.util.messaging.EventDeduplicator;
+import com.micro.util.messaging.EventProcessorFactory;
+import com.micro.util.messaging.ProcessedEventStore;
+import com.micro.util.messaging.ReactiveEventProcessor;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Configuration
 public class MessageProcessorConfig {
   private final Logger LOG = LoggerFactory.getLogger(MessageProcessorConfig.class);
 
   private final ProductService productService;
+  private final EventDeduplicator deduplicator;
 
-  public MessageProcessorConfig(ProductService productService) {
+  public MessageProcessorConfig(ProductService productService, ProcessedEventStore processedEventStore,
+      @Value("${app.dedupe.capacity:10000}") Integer dedupeCapacity) {
     this.productService = productService;
+    this.deduplicator = new EventDeduplicator(processedEventStore, dedupeCapacity);
   }
 
   @Bean
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "blocking", matchIfMissing = true)
   Consumer<Event<Integer, Product>> messageProcessor() {
     return event -> {
-      switch (event.getEventType()) {
-        case CREATE:
-          Product product = event.getData();
-          LOG.info("creating product with id " + event.getKey());
-          productService.createProduct(product).block();
-          break;
-        case DELETE:
-          int productId = event.getKey();
-          LOG.info("deleting product with product id " + productId);
-          productService.deleteProduct(productId).block();
-          break;
-
-        default:
-          String errorMessage = "Incorrect event type " + event.getEventType() + "expected CREATE or DELETE";
-          LOG.warn(errorMessage);
-          throw new EventProcessingException(errorMessage);
-      }
-
+      processEventOnce(event).block();
       LOG.info("message processing done");
     };
   }
+
+  @Bean(name = "messageProcessor")
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "reactive")
+  Function<Flux<Message<Event<Integer, Product>>>, Mono<Void>> reactiveMessageProcessor(
+      EventProcessorFactory processors) {
+    LOG.info("Processing product events reactively");
+    return processors.messageProcessor(this::processEventOnce);
+  }
+
+  // Needs spring.cloud.stream.bindings.messageProcessor-in-0.consumer.batch-mode, see the batch_consumer profile.
+  // A failing event is retried and dead lettered on its own by the same processor as the reactive mode, the rest
+  // of the batch is still written in bulk. The records are bound raw and read by BatchEventReader, so JSON and Avro
+  // events can share a batch
+  @Bean(name = "messageProcessor")
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "batch")
+  Consumer<Message<?>> batchMessageProcessor(
+      EventProcessorFactory processors,
+      ReactiveMongoTemplate mongoTemplate,
+      ProductMapper mapper,
+      AvroEventMessageConverter avroConverter,
+      ObjectMapper objectMapper) {
+
+    LOG.info("Processing product events in batches");
+    ReactiveEventProcessor<Integer, Product> singleEventProcessor =
+        processors.eventProcessor(this::processEventOnce, 1, 1);
+    BatchEventReader reader = new BatchEventReader(avroConverter, objectMapper);
+
+    // Each run is marked processed as soon as it is written, a redelivery after a later run failed skips it. The
+    // events handed to the fallback are marked by it, when it applied them
+    ProductEventBatchProcessor batchProcessor = new ProductEventBatchProcessor(mongoTemplate, mapper,
+        event -> singleEventProcessor.process(Flux.just(event)).block(),
+        this::markProcessed);
+    return batch -> {
+      List<Event<Integer, Product>> events = reader.events(batch, Product.class);
+      batchProcessor.process(deduplicator.unprocessed(events).block());
+      LOG.info("batch of {} messages processing done", events.size());
+    };
+  }
+
+  // A run that is written but not marked is applied again on a redelivery and fails on the duplicate key, like before
+  // the deduplication
+  private void markProcessed(List<Event<Integer, Product>> run) {
+    deduplicator.markProcessed(run.stream()
+        .map(Event::getEventId)
+        .filter(Objects::nonNull)
+        .toList())
+        .onErrorResume(ex -> {
+          LOG.warn("Marking {} written events processed failed: {}", run.size(), ex.toString());
+          return Mono.empty();
+        })
+        .block();
+  }
+
+  // A redelivered event that was already applied is skipped instead of failing on the duplicate key
+  private Mono<Void> processEventOnce(Event<Integer, Product> event) {
+    return deduplicator.applyOnce(event, this::processEvent);
+  }
+
+  private Mono<Void> processEvent(Event<Integer, Product> event) {
+    switch (event.getEventType()) {
+      case CREATE:
+        Product product = event.getData();
+        LOG.info("creating product with id " + event.getKey());
+        return productService.createProduct(product).then();
+      case DELETE:
+        int productId = event.getKey();
+        LOG.info("deleting product with product id " + productId);
+        return productService.deleteProduct(productId);
+
+      default:
+        String errorMessage = "Incorrect event type " + event.getEventType() + "expected CREATE or DELETE";
+        LOG.warn(errorMessage);
+        throw new EventProcessingException(errorMessage);
+    }
+  }
 }
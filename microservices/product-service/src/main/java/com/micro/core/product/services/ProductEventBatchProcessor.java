@@ -0,0 +1,166 @@
+package com.micro.core.product.services;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.event.Event;
+import com.micro.core.product.persistence.ProductEntity;
+import com.mongodb.MongoBulkWriteException;
+
+/**
+ * Writes a polled batch of product events with as few Mongo round trips as possible.
+ *
+ * The batch is cut into runs of consecutive events of the same type, a run of CREATEs becomes one ordered
+ * insertMany and a run of DELETEs one deleteMany on productId $in, so the order between creates and deletes of the
+ * same product is kept. When an event of a run fails, the events in front of it are already written, the failed
+ * event is handed to the single event fallback, which retries and dead letters it, and the batch carries on right
+ * after it. When a run fails as a whole, e.g. on a lost connection, nothing tells which of its events were written,
+ * so every event of the run goes to the fallback and the batch carries on after the run. Nothing is rethrown once
+ * a run is written, a redelivery of the whole batch would apply the written runs again. The events a bulk write
+ * stored are handed to the written callback right after it, so they can be marked processed before the next run.
+ */
+public class ProductEventBatchProcessor {
+  private static final Logger LOG = LoggerFactory.getLogger(ProductEventBatchProcessor.class);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final ProductMapper mapper;
+  private final Consumer<Event<Integer, Product>> singleEventFallback;
+  private final Consumer<List<Event<Integer, Product>>> written;
+
+  public ProductEventBatchProcessor(ReactiveMongoTemplate mongoTemplate, ProductMapper mapper,
+      Consumer<Event<Integer, Product>> singleEventFallback, Consumer<List<Event<Integer, Product>>> written) {
+    this.mongoTemplate = mongoTemplate;
+    this.mapper = mapper;
+    this.singleEventFallback = singleEventFallback;
+    this.written = written;
+  }
+
+  public void process(List<Event<Integer, Product>> events) {
+    LOG.debug("Processing a batch of {} product events", events.size());
+
+    int start = 0;
+    while (start < events.size()) {
+      int end = endOfRun(events, start);
+      List<Event<Integer, Product>> run = events.subList(start, end);
+
+      int stored;
+      try {
+        stored = writeRun(run);
+      } catch (RuntimeException ex) {
+        LOG.warn("Bulk write of {} {} events failed, falling back to single event processing: {}", run.size(),
+            run.get(0).getEventType(), ex.toString());
+        run.forEach(singleEventFallback);
+        start = end;
+        continue;
+      }
+
+      if (stored > 0) {
+        written.accept(run.subList(0, stored));
+      }
+      if (stored == run.size()) {
+        start = end;
+      } else {
+        Event<Integer, Product> failed = run.get(stored);
+        LOG.debug("Falling back to single event processing for {} event of product id {}", failed.getEventType(),
+            failed.getKey());
+        singleEventFallback.accept(failed);
+        start += stored + 1;
+      }
+    }
+  }
+
+  // Returns how many events of the run were written before the first one that could not be
+  private int writeRun(List<Event<Integer, Product>> run) {
+    switch (run.get(0).getEventType()) {
+      case CREATE:
+        return insertProducts(run);
+      case DELETE:
+        return deleteProducts(run);
+      default:
+        return 0;
+    }
+  }
+
+  private int insertProducts(List<Event<Integer, Product>> run) {
+    int valid = validPrefix(run);
+    if (valid == 0) {
+      return 0;
+    }
+
+    List<ProductEntity> entities = run.subList(0, valid).stream()
+        .map(event -> mapper.apiToEntity(event.getData()))
+        .collect(Collectors.toList());
+
+    try {
+      mongoTemplate.insert(entities, ProductEntity.class).then().block();
+      LOG.info("Inserted {} products in one bulk write", entities.size());
+      return valid;
+    } catch (RuntimeException ex) {
+      MongoBulkWriteException bulkWriteException = findBulkWriteException(ex);
+      if (bulkWriteException == null || bulkWriteException.getWriteErrors().isEmpty()) {
+        throw ex;
+      }
+      // The insert is ordered, everything in front of the first write error is stored
+      int failedIndex = bulkWriteException.getWriteErrors().get(0).getIndex();
+      LOG.info("Inserted {} of {} products before a write error at product id {}", failedIndex, entities.size(),
+          entities.get(failedIndex).getProductId());
+      return failedIndex;
+    }
+  }
+
+  private int deleteProducts(List<Event<Integer, Product>> run) {
+    int valid = validPrefix(run);
+    if (valid == 0) {
+      return 0;
+    }
+
+    List<Integer> productIds = run.subList(0, valid).stream().map(Event::getKey).collect(Collectors.toList());
+    long deleted = mongoTemplate.remove(query(where("productId").in(productIds)), ProductEntity.class)
+        .map(result -> result.getDeletedCount())
+        .block();
+    LOG.info("Deleted {} products for {} delete events in one bulk write", deleted, productIds.size());
+    return valid;
+  }
+
+  // Invalid events are left to the single event path, which reports them the same way as before
+  private int validPrefix(List<Event<Integer, Product>> run) {
+    for (int i = 0; i < run.size(); i++) {
+      Event<Integer, Product> event = run.get(i);
+      if (event.getKey() == null || event.getKey() < 1) {
+        return i;
+      }
+      if (event.getEventType() == Event.Type.CREATE
+          && (event.getData() == null || event.getData().getProductId() < 1)) {
+        return i;
+      }
+    }
+    return run.size();
+  }
+
+  private int endOfRun(List<Event<Integer, Product>> events, int start) {
+    Event.Type type = events.get(start).getEventType();
+    int end = start + 1;
+    while (end < events.size() && events.get(end).getEventType() == type) {
+      end++;
+    }
+    return end;
+  }
+
+  private MongoBulkWriteException findBulkWriteException(Throwable ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof MongoBulkWriteException bulkWriteException) {
+        return bulkWriteException;
+      }
+    }
+    return null;
+  }
+}
@@ -1,10 +1,19 @@
 package com.micro.core.product.services;
 
 import static java.util.logging.Level.FINE;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.micro.api.core.product.Product;
@@ -14,7 +23,9 @@ import com.micro.api.exceptions.NotFoundException;
 import com.micro.core.product.persistence.ProductEntity;
 import com.micro.core.product.persistence.ProductRepository;
 import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -24,11 +35,16 @@ public class ProductServiceIml implements ProductService {
   private final ServiceUtil serviceUtil;
   private final ProductRepository repository;
   private final ProductMapper mapper;
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final DuplicatePolicy duplicatePolicy;
 
-  public ProductServiceIml(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+  public ProductServiceIml(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil,
+      ReactiveMongoTemplate mongoTemplate, @Value("${app.duplicatePolicy:reject}") DuplicatePolicy duplicatePolicy) {
     this.serviceUtil = serviceUtil;
     this.repository = repository;
     this.mapper = mapper;
+    this.mongoTemplate = mongoTemplate;
+    this.duplicatePolicy = duplicatePolicy;
   }
 
   @Override
@@ -40,7 +56,7 @@ public class ProductServiceIml implements ProductService {
     LOG.debug("Creating a new prodcut of id: " + product.getProductId());
 
     ProductEntity mappedEntity = mapper.apiToEntity(product);
-    Mono<Product> entity = repository.save(mappedEntity).log(LOG.getName(), FINE)
+    Mono<Product> entity = write(mappedEntity).log(LOG.getName(), FINE)
         .onErrorMap(DuplicateKeyException.class,
             ex -> new InvalidInputException("Duplicate key, product id: " + product.getProductId()))
         .map(e -> mapper.entityToApi(e));
@@ -48,6 +64,29 @@ public class ProductServiceIml implements ProductService {
     return entity;
   }
 
+  // One findAndModify upsert, it returns the product found before the write and nothing when it inserted. Two
+  // concurrent upserts of a new product can still fail on the unique index, which is mapped as before
+  private Mono<ProductEntity> write(ProductEntity entity) {
+    Query byProductId = query(where("productId").is(entity.getProductId()));
+
+    if (duplicatePolicy == DuplicatePolicy.OVERWRITE) {
+      return mongoTemplate.findAndModify(byProductId,
+          new Update().set("name", entity.getName()).set("weight", entity.getWeight()),
+          options().upsert(true).returnNew(true), ProductEntity.class);
+    }
+
+    // Only $setOnInsert, an existing product is left as it is, version included
+    return mongoTemplate.findAndModify(byProductId,
+        new Update().setOnInsert("name", entity.getName()).setOnInsert("weight", entity.getWeight())
+            .setOnInsert("version", 0),
+        options().upsert(true), ProductEntity.class)
+        .flatMap(existing -> duplicatePolicy == DuplicatePolicy.REJECT
+            ? Mono.<ProductEntity>error(new InvalidInputException("Duplicate key, product id: "
+                + entity.getProductId()))
+            : Mono.just(existing))
+        .defaultIfEmpty(entity);
+  }
+
   @Override
   public Mono<Product> getProduct(int productId) {
     if (productId < 1) {
@@ -67,6 +106,24 @@ public class ProductServiceIml implements ProductService {
     return entity;
   }
 
+  @Override
+  public Flux<Product> getProducts(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product Id: " + productId);
+      }
+    });
+
+    LOG.debug("Getting products of ids: " + productIds);
+    return repository.findByProductIdIn(productIds)
+        .log(LOG.getName(), FINE)
+        .map(foundEntity -> mapper.entityToApi(foundEntity))
+        .map(e -> {
+          e.setServiceAddress(serviceUtil.getServiceAddress());
+          return e;
+        });
+  }
+
   @Override
   public Mono<Void> deleteProduct(int productId) {
     if (productId < 1) {
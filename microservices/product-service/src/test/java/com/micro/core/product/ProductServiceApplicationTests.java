@@ -6,7 +6,13 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.HttpStatus.*;
 import static com.micro.api.event.Event.Type.CREATE;
 import static com.micro.api.event.Event.Type.DELETE;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -14,14 +20,24 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import com.micro.api.core.product.Product;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.InvalidInputException;
+import com.micro.core.product.persistence.ProductEntity;
 import com.micro.core.product.persistence.ProductRepository;
+import com.micro.core.product.services.ProductEventBatchProcessor;
+import com.micro.core.product.services.ProductMapper;
+import com.micro.core.product.services.ProductServiceIml;
+import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
 
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT, properties = "eureka.client.enabled=false")
@@ -33,6 +49,15 @@ class ProductServiceApplicationTests extends MongoTestBase {
   @Autowired
   private ProductRepository repository;
 
+  @Autowired
+  private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired
+  private ProductMapper mapper;
+
+  @Autowired
+  private ServiceUtil serviceUtil;
+
   @Autowired
   @Qualifier("messageProcessor")
   private Consumer<Event<Integer, Product>> messageProcessor;
@@ -56,6 +81,24 @@ class ProductServiceApplicationTests extends MongoTestBase {
     getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
   }
 
+  @Test
+  void getProductsByIds() {
+    sendCreateEvent(1);
+    sendCreateEvent(2);
+    sendCreateEvent(3);
+
+    client.get().uri("/product?productIds=1,3,4").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectHeader().contentType(APPLICATION_JSON).expectBody()
+        .jsonPath("$.length()").isEqualTo(2);
+  }
+
+  @Test
+  void getProductsInvalidParameterNegative() {
+    client.get().uri("/product?productIds=1,-1").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY).expectBody()
+        .jsonPath("$.message").isEqualTo("Invalid product Id: -1");
+  }
+
   @Test
   void duplicateKey() {
     int productId = 1;
@@ -70,6 +113,39 @@ class ProductServiceApplicationTests extends MongoTestBase {
     assertEquals("Duplicate key, product id: " + productId, thrown.getMessage());
   }
 
+  @Test
+  void duplicateIsIgnored() {
+    sendCreateEvent(1);
+
+    StepVerifier.create(service(DuplicatePolicy.IGNORE).createProduct(new Product(1, "other", 2, null)))
+        .expectNextMatches(product -> product.getName().equals("name"))
+        .verifyComplete();
+
+    assertEquals("name", repository.findByProductId(1).block().getName());
+  }
+
+  @Test
+  void duplicateIsOverwritten() {
+    sendCreateEvent(1);
+
+    service(DuplicatePolicy.OVERWRITE).createProduct(new Product(1, "other", 2, null)).block();
+    service(DuplicatePolicy.OVERWRITE).createProduct(new Product(2, "new", 2, null)).block();
+
+    assertEquals("other", repository.findByProductId(1).block().getName());
+    assertEquals(1, repository.findByProductId(1).block().getVersion());
+    assertEquals("new", repository.findByProductId(2).block().getName());
+  }
+
+  @Test
+  void redeliveredEventIsAppliedOnce() {
+    Event<Integer, Product> event = createEvent(1);
+
+    messageProcessor.accept(event);
+    messageProcessor.accept(event);
+
+    assertEquals(1, (Long) repository.count().block());
+  }
+
   @Test
   void deleteProduct() {
     int productId = 1;
@@ -84,6 +160,61 @@ class ProductServiceApplicationTests extends MongoTestBase {
     sendDeleteEvent(productId);
   }
 
+  @Test
+  void processBatchInBulk() {
+    List<Event<Integer, Product>> fallback = new ArrayList<>();
+    List<List<Event<Integer, Product>>> written = new ArrayList<>();
+    ProductEventBatchProcessor batchProcessor = new ProductEventBatchProcessor(mongoTemplate, mapper, fallback::add,
+        written::add);
+
+    batchProcessor.process(List.of(createEvent(1), createEvent(2), createEvent(3), deleteEvent(2), deleteEvent(5),
+        createEvent(4)));
+
+    assertEquals(0, fallback.size());
+    assertEquals(List.of(3, 2, 1), written.stream().map(List::size).toList());
+    assertEquals(3, (Long) repository.count().block());
+    assertNull(repository.findByProductId(2).block());
+    assertNotNull(repository.findByProductId(4).block());
+  }
+
+  @Test
+  void processBatchFallsBackForFailedEventsOnly() {
+    sendCreateEvent(2);
+
+    List<Event<Integer, Product>> fallback = new ArrayList<>();
+    List<Integer> written = new ArrayList<>();
+    ProductEventBatchProcessor batchProcessor = new ProductEventBatchProcessor(mongoTemplate, mapper, fallback::add,
+        run -> run.forEach(event -> written.add(event.getKey())));
+
+    batchProcessor.process(List.of(createEvent(1), createEvent(2), createEvent(3), createEvent(-1), createEvent(4)));
+
+    assertEquals(List.of(1, 3, 4), written);
+    assertEquals(2, fallback.size());
+    assertEquals(2, fallback.get(0).getKey());
+    assertEquals(-1, fallback.get(1).getKey());
+    assertEquals(4, (Long) repository.count().block());
+  }
+
+  @Test
+  void processBatchFallsBackForARunThatFailsAsAWhole() {
+    ReactiveMongoTemplate failingTemplate = spy(mongoTemplate);
+    doReturn(Mono.error(new DataAccessResourceFailureException("connection reset"))).when(failingTemplate)
+        .remove(any(Query.class), eq(ProductEntity.class));
+
+    List<Event<Integer, Product>> fallback = new ArrayList<>();
+    List<Event<Integer, Product>> written = new ArrayList<>();
+    ProductEventBatchProcessor batchProcessor = new ProductEventBatchProcessor(failingTemplate, mapper,
+        fallback::add, written::addAll);
+
+    batchProcessor.process(List.of(createEvent(1), createEvent(2), deleteEvent(1), deleteEvent(2), createEvent(3)));
+
+    assertEquals(2, fallback.size());
+    assertEquals(DELETE, fallback.get(0).getEventType());
+    assertEquals(DELETE, fallback.get(1).getEventType());
+    assertEquals(List.of(1, 2, 3), written.stream().map(Event::getKey).toList());
+    assertEquals(3, (Long) repository.count().block());
+  }
+
   @Test
   void getInvalidParametereString() {
     getAndVerifyProduct("/no-intger", BAD_REQUEST)
@@ -140,14 +271,24 @@ class ProductServiceApplicationTests extends MongoTestBase {
   // .expectBody();
   // }
 
+  private ProductServiceIml service(DuplicatePolicy duplicatePolicy) {
+    return new ProductServiceIml(repository, mapper, serviceUtil, mongoTemplate, duplicatePolicy);
+  }
+
   private void sendCreateEvent(int productId) {
-    Product product = new Product(productId, "name", 1, null);
-    Event<Integer, Product> event = new Event<Integer, Product>(CREATE, productId, product);
-    messageProcessor.accept(event);
+    messageProcessor.accept(createEvent(productId));
   }
 
   private void sendDeleteEvent(int productId) {
-    Event<Integer, Product> event = new Event<Integer, Product>(DELETE, productId, null);
-    messageProcessor.accept(event);
+    messageProcessor.accept(deleteEvent(productId));
+  }
+
+  private Event<Integer, Product> createEvent(int productId) {
+    Product product = new Product(productId, "name", 1, null);
+    return new Event<Integer, Product>(CREATE, productId, product);
+  }
+
+  private Event<Integer, Product> deleteEvent(int productId) {
+    return new Event<Integer, Product>(DELETE, productId, null);
   }
 }
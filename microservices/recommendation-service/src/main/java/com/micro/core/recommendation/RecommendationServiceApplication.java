@@ -16,10 +16,12 @@ import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexRes
 import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.micro.core.recommendation.persistence.RecommendationEntity;
 
 @SpringBootApplication
+@EnableScheduling
 @ComponentScan("com.micro")
 public class RecommendationServiceApplication {
 
@@ -1,8 +1,17 @@
 package com.micro.core.recommendation.persistence;
 
+import java.util.Collection;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 
 public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String> {
   Flux<RecommendationEntity> findByProductId(int productId);
+
+  // Keyset page, a range scan on the prod-rec-id (productId, recommendationId) index
+  Flux<RecommendationEntity> findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(int productId,
+      int recommendationId, Limit limit);
+
+  Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds);
 }
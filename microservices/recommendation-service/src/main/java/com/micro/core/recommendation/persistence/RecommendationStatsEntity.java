@@ -0,0 +1,48 @@
+package com.micro.core.recommendation.persistence;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// One document per product id, incremented as recommendations are created, the average is rateSum / count
+@Document(collection = "recommendation_stats")
+public class RecommendationStatsEntity {
+
+  @Id
+  private int productId;
+
+  private long count;
+  private long rateSum;
+
+  public RecommendationStatsEntity() {
+  }
+
+  public RecommendationStatsEntity(int productId, long count, long rateSum) {
+    this.productId = productId;
+    this.count = count;
+    this.rateSum = rateSum;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getRateSum() {
+    return rateSum;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public void setRateSum(long rateSum) {
+    this.rateSum = rateSum;
+  }
+}
@@ -1,48 +1,80 @@
 package com.micro.core.recommendation.services;
 
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 
 import com.micro.api.core.recommendation.Recommendation;
 import com.micro.api.core.recommendation.RecommendationService;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.EventProcessingException;
+import com.micro.util.messaging.EventDeduplicator;
+import com.micro.util.messaging.EventProcessorFactory;
+import com.micro.util.messaging.ProcessedEventStore;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Configuration
 public class MessageProcessorConfig {
   private final Logger LOG = LoggerFactory.getLogger(MessageProcessorConfig.class);
 
   private final RecommendationService recommendationService;
+  private final EventDeduplicator deduplicator;
 
-  public MessageProcessorConfig(RecommendationService recommendationService) {
+  public MessageProcessorConfig(RecommendationService recommendationService, ProcessedEventStore processedEventStore,
+      @Value("${app.dedupe.capacity:10000}") Integer dedupeCapacity) {
     this.recommendationService = recommendationService;
+    this.deduplicator = new EventDeduplicator(processedEventStore, dedupeCapacity);
   }
 
   @Bean
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "blocking", matchIfMissing = true)
   Consumer<Event<Integer, Recommendation>> messageProcessor() {
     return event -> {
-      switch (event.getEventType()) {
-        case CREATE:
-          recommendationService.createRecommendation(event.getData()).block();
-          LOG.info("Creation message Done");
-          break;
-
-        case DELETE:
-          recommendationService.deleteRecommendations(event.getKey()).block();
-          LOG.info("Deletion message Done");
-          break;
-
-        default:
-          String errorMessage = "Unkown event type " + event.getEventType() + "expected create or delete";
-          LOG.warn(errorMessage);
-          throw new EventProcessingException(errorMessage);
-      }
-
+      processEventOnce(event).block();
       LOG.info("Event processing done");
     };
   }
+
+  @Bean(name = "messageProcessor")
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "reactive")
+  Function<Flux<Message<Event<Integer, Recommendation>>>, Mono<Void>> reactiveMessageProcessor(
+      EventProcessorFactory processors) {
+    LOG.info("Processing recommendation events reactively");
+    return processors.messageProcessor(this::processEventOnce);
+  }
+
+  // A redelivered event that was already applied is skipped instead of failing on the duplicate key
+  private Mono<Void> processEventOnce(Event<Integer, Recommendation> event) {
+    return deduplicator.applyOnce(event, this::processEvent);
+  }
+
+  private Mono<Void> processEvent(Event<Integer, Recommendation> event) {
+    switch (event.getEventType()) {
+      case CREATE:
+        return recommendationService.createRecommendation(event.getData())
+            .doOnSuccess(r -> LOG.info("Creation message Done")).then();
+
+      case CREATE_BULK:
+        return recommendationService.createRecommendations(event.getBulkData())
+            .doOnComplete(() -> LOG.info("Bulk creation message Done")).then();
+
+      case DELETE:
+        return recommendationService.deleteRecommendations(event.getKey())
+            .doOnSuccess(v -> LOG.info("Deletion message Done"));
+
+      default:
+        String errorMessage = "Unkown event type " + event.getEventType() + "expected create, create bulk or delete";
+        LOG.warn(errorMessage);
+        throw new EventProcessingException(errorMessage);
+    }
+  }
 }
@@ -1,18 +1,33 @@
 package com.micro.core.recommendation.services;
 
 import static java.util.logging.Level.FINE;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.micro.api.core.recommendation.Recommendation;
 import com.micro.api.core.recommendation.RecommendationService;
+import com.micro.api.core.recommendation.RecommendationStats;
 import com.micro.api.exceptions.InvalidInputException;
 import com.micro.core.recommendation.persistence.RecommendationEntity;
 import com.micro.core.recommendation.persistence.RecommendationRepository;
+import com.micro.core.recommendation.persistence.RecommendationStatsEntity;
 import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -25,12 +40,19 @@ public class RecommendationServiceImpl implements RecommendationService {
   private final ServiceUtil serviceUtil;
   private final RecommendationRepository repository;
   private final RecommendationMapper mapper;
+  private final RecommendationStatsCounter statsCounter;
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final DuplicatePolicy duplicatePolicy;
 
   public RecommendationServiceImpl(RecommendationRepository repository, RecommendationMapper mapper,
-      ServiceUtil serviceUtil) {
+      ServiceUtil serviceUtil, RecommendationStatsCounter statsCounter, ReactiveMongoTemplate mongoTemplate,
+      @Value("${app.duplicatePolicy:reject}") DuplicatePolicy duplicatePolicy) {
     this.serviceUtil = serviceUtil;
     this.repository = repository;
     this.mapper = mapper;
+    this.statsCounter = statsCounter;
+    this.mongoTemplate = mongoTemplate;
+    this.duplicatePolicy = duplicatePolicy;
   }
 
   @Override
@@ -40,7 +62,7 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     RecommendationEntity entity = mapper.apiToEntity(recommendation);
-    Mono<Recommendation> savedEntity = repository.save(entity).log(LOG.getName(), FINE)
+    Mono<Recommendation> savedEntity = write(entity).log(LOG.getName(), FINE)
         .onErrorMap(DuplicateKeyException.class,
             ex -> new InvalidInputException("Duplicate key, prodcut id: " + recommendation.getProductId()))
         .map(e -> mapper.entityToApi(e));
@@ -49,6 +71,40 @@ public class RecommendationServiceImpl implements RecommendationService {
     return savedEntity;
   }
 
+  @Override
+  public Flux<Recommendation> createRecommendations(List<Recommendation> recommendations) {
+    recommendations.forEach(recommendation -> {
+      if (recommendation.getProductId() < 1) {
+        throw new InvalidInputException("Invalid product id" + recommendation.getProductId());
+      }
+    });
+
+    // Each recommendation is written as in createRecommendation, so a bulk that was partly written before only
+    // inserts and counts the missing ones. Without a transaction around the bulk the reject policy fails it only
+    // once every recommendation is written, a redelivery then finds them all
+    List<RecommendationEntity> entityList = mapper.apiListToEntityList(recommendations);
+    Flux<Recommendation> savedEntities = Flux.defer(() -> {
+      List<RecommendationEntity> existing = new ArrayList<>();
+      return Flux.fromIterable(entityList)
+          .concatMap(entity -> duplicatePolicy == DuplicatePolicy.OVERWRITE ? overwrite(entity)
+              : insertIfAbsent(entity).doOnNext(existing::add).defaultIfEmpty(entity))
+          .collectList()
+          .flatMapIterable(written -> {
+            if (!existing.isEmpty() && duplicatePolicy == DuplicatePolicy.REJECT) {
+              throw new InvalidInputException("Duplicate key, prodcut id: " + existing.get(0).getProductId());
+            }
+            return written;
+          });
+    })
+        .log(LOG.getName(), FINE)
+        .onErrorMap(DuplicateKeyException.class,
+            ex -> new InvalidInputException("Duplicate key, prodcut id: " + recommendations.get(0).getProductId()))
+        .map(e -> mapper.entityToApi(e));
+
+    LOG.debug("Creating {} recommendations in bulk", recommendations.size());
+    return savedEntities;
+  }
+
   @Override
   public Flux<Recommendation> getRecommendations(int productId) {
     if (productId < 1) {
@@ -66,6 +122,56 @@ public class RecommendationServiceImpl implements RecommendationService {
     return entityList;
   }
 
+  @Override
+  public Flux<Recommendation> getRecommendations(int productId, int limit, int after) {
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid product id" + productId);
+    }
+    if (limit < 1 || after < 0) {
+      throw new InvalidInputException("Invalid page, limit: " + limit + ", after: " + after);
+    }
+
+    LOG.debug("Creating a page of {} recommendations after id {} for product id: {}", limit, after, productId);
+    return repository
+        .findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(productId, after, Limit.of(limit))
+        .log(LOG.getName(), FINE).map(e -> mapper.entityToApi(e)).map(e -> {
+          e.setServiceAddress(serviceUtil.getServiceAddress());
+          return e;
+        });
+  }
+
+  @Override
+  public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product id" + productId);
+      }
+    });
+
+    LOG.debug("Creating recommendation list from entity for product ids: {}", productIds);
+    return repository.findByProductIdIn(productIds)
+        .log(LOG.getName(), FINE).map(e -> mapper.entityToApi(e)).map(e -> {
+          e.setServiceAddress(serviceUtil.getServiceAddress());
+          return e;
+        });
+  }
+
+  @Override
+  public Flux<RecommendationStats> getRecommendationStats(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product id" + productId);
+      }
+    });
+
+    LOG.debug("Reading recommendation stats for product ids: {}", productIds);
+    return statsCounter.find(productIds)
+        .collectMap(RecommendationStatsEntity::getProductId)
+        .flatMapIterable(stats -> productIds.stream().distinct()
+            .map(productId -> toApi(productId, stats.get(productId)))
+            .collect(Collectors.toList()));
+  }
+
   @Override
   public Mono<Void> deleteRecommendations(int productId) {
     if (productId < 1) {
@@ -73,6 +179,56 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     LOG.debug("Deleting recommendation list of product id: ", productId);
-    return repository.deleteAll(repository.findByProductId(productId));
+    return repository.deleteAll(repository.findByProductId(productId))
+        .then(statsCounter.remove(productId));
+  }
+
+  // One findAndModify upsert, it returns the recommendation found before the write and nothing when it inserted,
+  // which tells how the stats change. Two concurrent upserts of a new recommendation can still fail on the unique
+  // index, which is mapped as before
+  private Mono<RecommendationEntity> write(RecommendationEntity entity) {
+    if (duplicatePolicy == DuplicatePolicy.OVERWRITE) {
+      return overwrite(entity);
+    }
+    return insertIfAbsent(entity)
+        .flatMap(existing -> duplicatePolicy == DuplicatePolicy.REJECT
+            ? Mono.<RecommendationEntity>error(
+                new InvalidInputException("Duplicate key, prodcut id: " + entity.getProductId()))
+            : Mono.just(existing))
+        .defaultIfEmpty(entity);
+  }
+
+  private Mono<RecommendationEntity> overwrite(RecommendationEntity entity) {
+    int productId = entity.getProductId();
+    return mongoTemplate.findAndModify(byIds(entity),
+        new Update().set("author", entity.getAuthor()).set("rating", entity.getRating())
+            .set("content", entity.getContent()),
+        options().upsert(true), RecommendationEntity.class)
+        .flatMap(previous -> statsCounter.add(productId, 0, entity.getRating() - previous.getRating())
+            .thenReturn(entity))
+        .switchIfEmpty(Mono.defer(() -> statsCounter.add(productId, 1, entity.getRating()).thenReturn(entity)));
+  }
+
+  // Only $setOnInsert, an existing recommendation is left as it is, version included. Emits the existing one, or
+  // nothing once the inserted one is counted
+  private Mono<RecommendationEntity> insertIfAbsent(RecommendationEntity entity) {
+    return mongoTemplate.findAndModify(byIds(entity),
+        new Update().setOnInsert("author", entity.getAuthor()).setOnInsert("rating", entity.getRating())
+            .setOnInsert("content", entity.getContent()).setOnInsert("version", 0),
+        options().upsert(true), RecommendationEntity.class)
+        .switchIfEmpty(Mono.defer(() -> statsCounter.add(entity.getProductId(), 1, entity.getRating())
+            .then(Mono.empty())));
+  }
+
+  private Query byIds(RecommendationEntity entity) {
+    return query(where("productId").is(entity.getProductId()).and("recommendationId")
+        .is(entity.getRecommendationId()));
+  }
+
+  private RecommendationStats toApi(int productId, RecommendationStatsEntity stats) {
+    if (stats == null || stats.getCount() == 0) {
+      return new RecommendationStats(productId, 0, 0);
+    }
+    return new RecommendationStats(productId, stats.getCount(), (double) stats.getRateSum() / stats.getCount());
   }
 }
@@ -0,0 +1,126 @@
+package com.micro.core.recommendation.services;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.micro.core.recommendation.persistence.RecommendationEntity;
+import com.micro.core.recommendation.persistence.RecommendationStatsEntity;
+import com.mongodb.client.result.DeleteResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Recommendation count and rate sum per product, updated with an $inc as recommendations are created and removed
+ * with them, so reading the stats never scans the recommendations.
+ *
+ * The counter and the recommendations are written separately, a crash or a partly failed bulk insert in between
+ * leaves the counter off. The repair recomputes every counter with a $group over the recommendations, once at
+ * startup and then on app.stats.repairCron. An event applied while the repair runs can be overwritten by it, the
+ * next repair corrects that. Counters of products left without recommendations are removed a page of counters at a
+ * time, so the repair never holds every product id in memory or in a single query.
+ */
+@Component
+public class RecommendationStatsCounter {
+  private static final Logger LOG = LoggerFactory.getLogger(RecommendationStatsCounter.class);
+  private static final int STALE_PAGE = 1000;
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final boolean repairOnStartup;
+
+  public RecommendationStatsCounter(ReactiveMongoTemplate mongoTemplate,
+      @Value("${app.stats.repairOnStartup:true}") Boolean repairOnStartup) {
+    this.mongoTemplate = mongoTemplate;
+    this.repairOnStartup = repairOnStartup;
+  }
+
+  public Mono<Void> add(int productId, long count, long rateSum) {
+    return mongoTemplate.upsert(query(where("_id").is(productId)),
+        new Update().inc("count", count).inc("rateSum", rateSum), RecommendationStatsEntity.class)
+        .doOnNext(result -> LOG.debug("Added {} recommendations to the stats of product id {}", count, productId))
+        .then();
+  }
+
+  public Mono<Void> remove(int productId) {
+    return mongoTemplate.remove(query(where("_id").is(productId)), RecommendationStatsEntity.class).then();
+  }
+
+  public Flux<RecommendationStatsEntity> find(Collection<Integer> productIds) {
+    return mongoTemplate.find(query(where("_id").in(productIds)), RecommendationStatsEntity.class);
+  }
+
+  // Returns the number of products with recommendations
+  public Mono<Integer> repair() {
+    return mongoTemplate
+        .aggregate(newAggregation(group("productId").count().as("count").sum("rating").as("rateSum")),
+            RecommendationEntity.class, RecommendationStatsEntity.class)
+        .concatMap(mongoTemplate::save)
+        .count()
+        .flatMap(products -> removeStale().thenReturn(products.intValue()))
+        .doOnNext(products -> LOG.info("Repaired the recommendation stats of {} products", products));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void repairOnStartup() {
+    if (repairOnStartup) {
+      repair().subscribe(products -> {
+      }, ex -> LOG.warn("Repairing the recommendation stats at startup failed: {}", ex.toString()));
+    }
+  }
+
+  @Scheduled(cron = "${app.stats.repairCron:0 0 3 * * *}")
+  void scheduledRepair() {
+    repair().block();
+  }
+
+  // Keyset pages over the counters, each page removes the counters none of the recommendations refer to
+  private Mono<Void> removeStale() {
+    return statsPage(Integer.MIN_VALUE)
+        .expand(productIds -> productIds.size() < STALE_PAGE
+            ? Mono.empty()
+            : statsPage(productIds.get(productIds.size() - 1)))
+        .concatMap(this::removeStale)
+        .reduce(0L, Long::sum)
+        .doOnNext(removed -> LOG.debug("Removed {} stale recommendation stats", removed))
+        .then();
+  }
+
+  private Mono<List<Integer>> statsPage(int after) {
+    Query page = query(where("_id").gt(after)).with(Sort.by("_id")).limit(STALE_PAGE);
+    page.fields().include("_id");
+    return mongoTemplate.find(page, RecommendationStatsEntity.class)
+        .map(RecommendationStatsEntity::getProductId)
+        .collectList();
+  }
+
+  private Mono<Long> removeStale(List<Integer> productIds) {
+    return mongoTemplate
+        .findDistinct(query(where("productId").in(productIds)), "productId", RecommendationEntity.class, Integer.class)
+        .collect(Collectors.toSet())
+        .map(withRecommendations -> productIds.stream()
+            .filter(productId -> !withRecommendations.contains(productId))
+            .collect(Collectors.toList()))
+        .flatMap(stale -> stale.isEmpty()
+            ? Mono.just(0L)
+            : mongoTemplate.remove(query(where("_id").in(stale)), RecommendationStatsEntity.class)
+                .map(DeleteResult::getDeletedCount));
+  }
+}
@@ -5,7 +5,9 @@ import static com.micro.api.event.Event.Type.DELETE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 import static org.springframework.http.HttpStatus.*;
@@ -15,15 +17,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import com.micro.api.core.recommendation.Recommendation;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.InvalidInputException;
+import com.micro.core.recommendation.persistence.RecommendationEntity;
 import com.micro.core.recommendation.persistence.RecommendationRepository;
-
-@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "eureka.client.enabled=false")
+import com.micro.core.recommendation.persistence.RecommendationStatsEntity;
+import com.micro.core.recommendation.services.RecommendationMapper;
+import com.micro.core.recommendation.services.RecommendationServiceImpl;
+import com.micro.core.recommendation.services.RecommendationStatsCounter;
+import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
+
+// The startup repair would run next to the first test and race its cleanup
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "app.stats.repairOnStartup=false" })
 class RecommendationServiceApplicationTests extends MongoTestBase {
 
   @Autowired
@@ -31,12 +44,21 @@ class RecommendationServiceApplicationTests extends MongoTestBase {
   @Autowired
   RecommendationRepository repository;
   @Autowired
+  RecommendationStatsCounter statsCounter;
+  @Autowired
+  RecommendationMapper mapper;
+  @Autowired
+  ServiceUtil serviceUtil;
+  @Autowired
+  ReactiveMongoTemplate mongoTemplate;
+  @Autowired
   @Qualifier("messageProcessor")
   private Consumer<Event<Integer, Recommendation>> messageProcessor;
 
   @BeforeEach
   void setDb() {
     repository.deleteAll().block();
+    statsCounter.repair().block();
   }
 
   @Test
@@ -54,6 +76,73 @@ class RecommendationServiceApplicationTests extends MongoTestBase {
         .jsonPath("$[0].productId").isEqualTo(productId);
   }
 
+  @Test
+  void getRecommendationsAsNdjson() {
+    int productId = 1;
+
+    sendRecommendationCreationEvent(productId, 1);
+    sendRecommendationCreationEvent(productId, 2);
+    sendRecommendationCreationEvent(productId, 3);
+
+    client.get()
+        .uri("/recommendation?productId=" + productId)
+        .accept(APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectHeader().contentType(APPLICATION_NDJSON)
+        .expectBodyList(Recommendation.class).hasSize(3);
+  }
+
+  @Test
+  void getRecommendationsByPage() {
+    int productId = 1;
+
+    for (int recommendationId = 1; recommendationId <= 5; recommendationId++) {
+      sendRecommendationCreationEvent(productId, recommendationId);
+    }
+    sendRecommendationCreationEvent(2, 1);
+
+    getAndVerifyRecommendation("?productId=" + productId + "&limit=2", OK)
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].recommendationId").isEqualTo(1)
+        .jsonPath("$[1].recommendationId").isEqualTo(2);
+
+    getAndVerifyRecommendation("?productId=" + productId + "&limit=2&after=2", OK)
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].recommendationId").isEqualTo(3)
+        .jsonPath("$[1].recommendationId").isEqualTo(4);
+
+    getAndVerifyRecommendation("?productId=" + productId + "&limit=2&after=4", OK)
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].recommendationId").isEqualTo(5);
+
+    getAndVerifyRecommendation("?productId=" + productId + "&limit=0", UNPROCESSABLE_ENTITY);
+  }
+
+  @Test
+  void getRecommendationsByProductIds() {
+    sendRecommendationCreationEvent(1, 1);
+    sendRecommendationCreationEvent(1, 2);
+    sendRecommendationCreationEvent(2, 1);
+    sendRecommendationCreationEvent(3, 1);
+
+    getAndVerifyRecommendation("?productIds=1,2", OK)
+        .jsonPath("$.length()").isEqualTo(3);
+  }
+
+  @Test
+  void bulkCreateRecommendations() {
+    int productId = 1;
+
+    List<Recommendation> recommendations = List.of(
+        new Recommendation(productId, 1, "a", 1, "c", null),
+        new Recommendation(productId, 2, "a", 2, "c", null),
+        new Recommendation(productId, 3, "a", 3, "c", null));
+    messageProcessor.accept(Event.bulkCreate(productId, recommendations));
+
+    assertEquals(3, (Long) repository.findByProductId(productId).count().block());
+  }
+
   @Test
   void duplicateKey() {
     int productId = 1;
@@ -71,6 +160,69 @@ class RecommendationServiceApplicationTests extends MongoTestBase {
     assertEquals(1, repository.count().block());
   }
 
+  @Test
+  void duplicateIsIgnored() {
+    sendRecommendationCreationEvent(1, 1);
+
+    service(DuplicatePolicy.IGNORE).createRecommendation(new Recommendation(1, 1, "b", 3, "d", null)).block();
+
+    assertEquals("a", repository.findByProductId(1).blockFirst().getAuthor());
+    RecommendationStatsEntity stats = statsCounter.find(List.of(1)).blockFirst();
+    assertEquals(1, stats.getCount());
+    assertEquals(1, stats.getRateSum());
+  }
+
+  @Test
+  void duplicateIsOverwritten() {
+    sendRecommendationCreationEvent(1, 1);
+
+    service(DuplicatePolicy.OVERWRITE).createRecommendation(new Recommendation(1, 1, "b", 3, "d", null)).block();
+    service(DuplicatePolicy.OVERWRITE).createRecommendation(new Recommendation(1, 2, "a", 2, "c", null)).block();
+
+    RecommendationEntity overwritten = repository.findByProductId(1)
+        .filter(recommendation -> recommendation.getRecommendationId() == 1).blockFirst();
+    assertEquals("b", overwritten.getAuthor());
+    assertEquals(3, overwritten.getRating());
+    RecommendationStatsEntity stats = statsCounter.find(List.of(1)).blockFirst();
+    assertEquals(2, stats.getCount());
+    assertEquals(5, stats.getRateSum());
+  }
+
+  @Test
+  void redeliveredEventIsAppliedOnce() {
+    Recommendation recommendation = new Recommendation(1, 1, "a", 1, "c", null);
+    Event<Integer, Recommendation> event = new Event<>(CREATE, 1, recommendation);
+
+    messageProcessor.accept(event);
+    messageProcessor.accept(event);
+
+    assertEquals(1, repository.count().block());
+  }
+
+  // The first recommendations of the bulk were written before it failed, the redelivery writes the rest and
+  // counts only those
+  @Test
+  void redeliveredBulkCreateInsertsTheMissingRecommendations() {
+    messageProcessor.accept(Event.bulkCreate(1, List.of(
+        new Recommendation(1, 1, "a", 1, "c", null),
+        new Recommendation(1, 2, "a", 2, "c", null))));
+
+    List<Recommendation> recommendations = List.of(
+        new Recommendation(1, 1, "b", 5, "c", null),
+        new Recommendation(1, 2, "b", 5, "c", null),
+        new Recommendation(1, 3, "a", 3, "c", null));
+    assertThrows(InvalidInputException.class,
+        () -> messageProcessor.accept(Event.bulkCreate(1, recommendations)));
+    assertEquals(3, repository.count().block());
+
+    assertEquals(3, service(DuplicatePolicy.IGNORE).createRecommendations(recommendations).count().block());
+    assertEquals(3, repository.count().block());
+    assertEquals(0, repository.findByProductId(1).filter(r -> r.getAuthor().equals("b")).count().block());
+    RecommendationStatsEntity stats = statsCounter.find(List.of(1)).blockFirst();
+    assertEquals(3, stats.getCount());
+    assertEquals(6, stats.getRateSum());
+  }
+
   @Test
   void deleteRecommendations() {
     int prodcutId = 1;
@@ -85,6 +237,45 @@ class RecommendationServiceApplicationTests extends MongoTestBase {
     sendRecommendationDeletionEvent(prodcutId);
   }
 
+  @Test
+  void recommendationStatsFollowEvents() {
+    sendRecommendationCreationEvent(1, 1);
+    messageProcessor.accept(Event.bulkCreate(1, List.of(
+        new Recommendation(1, 2, "a", 2, "c", null),
+        new Recommendation(1, 3, "a", 3, "c", null))));
+    sendRecommendationCreationEvent(2, 1);
+
+    client.get().uri("/recommendation/stats?productIds=1,2,3").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$.length()").isEqualTo(3)
+        .jsonPath("$[0].count").isEqualTo(3)
+        .jsonPath("$[0].averageRate").isEqualTo(2.0)
+        .jsonPath("$[1].count").isEqualTo(1)
+        .jsonPath("$[2].count").isEqualTo(0);
+
+    sendRecommendationDeletionEvent(1);
+
+    client.get().uri("/recommendation/stats?productIds=1").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$[0].count").isEqualTo(0);
+  }
+
+  @Test
+  void repairRecomputesRecommendationStats() {
+    sendRecommendationCreationEvent(1, 1);
+    sendRecommendationCreationEvent(1, 2);
+    statsCounter.add(1, 5, 5).block();
+    statsCounter.add(7, 1, 1).block();
+
+    assertEquals(1, statsCounter.repair().block());
+
+    client.get().uri("/recommendation/stats?productIds=1,7").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$[0].count").isEqualTo(2)
+        .jsonPath("$[0].averageRate").isEqualTo(1.0)
+        .jsonPath("$[1].count").isEqualTo(0);
+  }
+
   @Test
   void getRecommendationsNotFound() {
     int prodcutId = 113;
@@ -155,6 +346,11 @@ class RecommendationServiceApplicationTests extends MongoTestBase {
   // .expectBody();
   // }
 
+  private RecommendationServiceImpl service(DuplicatePolicy duplicatePolicy) {
+    return new RecommendationServiceImpl(repository, mapper, serviceUtil, statsCounter, mongoTemplate,
+        duplicatePolicy);
+  }
+
   private void sendRecommendationCreationEvent(int productId, int recommendationId) {
     Recommendation recommendation = new Recommendation(productId, recommendationId, "a", 1, "c", null);
     Event<Integer, Recommendation> event = new Event<>(CREATE, productId, recommendation);
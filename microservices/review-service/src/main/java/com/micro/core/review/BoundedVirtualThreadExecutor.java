@@ -0,0 +1,65 @@
+package com.micro.core.review;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every task on its own virtual thread, at most {@code maxConcurrency} of them at a time.
+ *
+ * Nothing is rejected, a task over the limit parks its virtual thread on the semaphore until a running one is done.
+ * With the limit set to the connection pool size the waiting happens here instead of inside Hikari.
+ */
+public class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+  private final ExecutorService delegate;
+  private final Semaphore permits;
+
+  public BoundedVirtualThreadExecutor(String namePrefix, int maxConcurrency) {
+    this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+    this.permits = new Semaphore(maxConcurrency, true);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    delegate.execute(() -> {
+      permits.acquireUninterruptibly();
+      try {
+        task.run();
+      } finally {
+        permits.release();
+      }
+    });
+  }
+
+  public int getWaitingTasks() {
+    return permits.getQueueLength();
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
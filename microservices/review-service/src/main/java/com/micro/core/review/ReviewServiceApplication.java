@@ -8,11 +8,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
+@EnableScheduling
 @ComponentScan("com.micro")
 public class ReviewServiceApplication {
 
@@ -20,16 +22,28 @@ public class ReviewServiceApplication {
 
   private final Integer threadPool;
   private final Integer threadQueue;
+  private final Boolean virtualThreads;
+  private final Integer virtualThreadConcurrency;
 
   public ReviewServiceApplication(
       @Value("${app.threadPool:10}") Integer threadPool,
-      @Value("${app.threadQueue:100}") Integer threadQueue) {
+      @Value("${app.threadQueue:100}") Integer threadQueue,
+      @Value("${app.virtualThreads:false}") Boolean virtualThreads,
+      @Value("${app.virtualThreadConcurrency:${spring.datasource.hikari.maximum-pool-size:10}}") Integer virtualThreadConcurrency) {
     this.threadPool = threadPool;
     this.threadQueue = threadQueue;
+    this.virtualThreads = virtualThreads;
+    this.virtualThreadConcurrency = virtualThreadConcurrency;
   }
 
   @Bean
   Scheduler jdbcScheduler() {
+    if (virtualThreads) {
+      LOG.info("Creates a jdbcScheduler on virtual threads with at most {} concurrent calls", virtualThreadConcurrency);
+      return Schedulers.fromExecutorService(new BoundedVirtualThreadExecutor("jdbc-vt-", virtualThreadConcurrency),
+          "jdbc-virtual");
+    }
+
     LOG.info("Creates a jdbcSchduler with thread pool size {} " + threadPool);
     return Schedulers.newBoundedElastic(threadPool, threadQueue, "jdbc-pool");
   }
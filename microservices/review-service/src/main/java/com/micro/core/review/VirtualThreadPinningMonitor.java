@@ -0,0 +1,74 @@
+package com.micro.core.review;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier, e.g. blocking inside a synchronized block of the JDBC
+ * driver or Hibernate. A pinned jdbc call holds one of the few carrier threads for the whole database round trip.
+ *
+ * Listens to the JFR jdk.VirtualThreadPinned event, counts it in jdbc.virtual.pinned and logs where it happened.
+ */
+@Component
+@ConditionalOnProperty(name = "app.virtualThreads", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+  private static final int LOGGED_FRAMES = 8;
+
+  private final Counter pinned;
+  private final RecordingStream recording;
+
+  public VirtualThreadPinningMonitor(
+      MeterRegistry registry,
+      @Value("${app.pinnedThresholdMillis:20}") Integer pinnedThresholdMillis) {
+
+    this.pinned = Counter.builder("jdbc.virtual.pinned")
+        .description("Virtual threads pinned to their carrier longer than app.pinnedThresholdMillis")
+        .register(registry);
+
+    this.recording = new RecordingStream();
+    recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(pinnedThresholdMillis))
+        .withStackTrace();
+    recording.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+    recording.startAsync();
+
+    LOG.info("Reporting virtual threads pinned for more than {}ms", pinnedThresholdMillis);
+  }
+
+  public double getPinnedCount() {
+    return pinned.count();
+  }
+
+  @PreDestroy
+  void stop() {
+    recording.close();
+  }
+
+  private void onPinned(RecordedEvent event) {
+    pinned.increment();
+
+    String frames = event.getStackTrace() == null ? "no stack trace"
+        : event.getStackTrace().getFrames().stream()
+            .limit(LOGGED_FRAMES)
+            .map(VirtualThreadPinningMonitor::describe)
+            .collect(Collectors.joining("\n\tat "));
+    LOG.warn("Virtual thread pinned for {}ms:\n\tat {}", event.getDuration().toMillis(), frames);
+  }
+
+  private static String describe(RecordedFrame frame) {
+    return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+  }
+}
@@ -0,0 +1,23 @@
+package com.micro.core.review.persistence;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+// Called on the jdbcScheduler threads, like the rest of the JPA mode
+@Profile("!r2dbc")
+@Component
+public class JdbcReviewIdAllocator extends ReviewIdAllocator {
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcReviewIdAllocator(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  protected Mono<Long> nextSequenceValue() {
+    return Mono.fromCallable(() -> jdbcTemplate.queryForObject("select nextval('reviews_seq')", Long.class));
+  }
+}
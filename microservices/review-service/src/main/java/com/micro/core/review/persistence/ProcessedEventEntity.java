@@ -0,0 +1,40 @@
+package com.micro.core.review.persistence;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The id of an applied event, only ever written by the statements in {@link ProcessedEventRepository}.
+ */
+@Entity
+@Table(name = "processed_events")
+public class ProcessedEventEntity {
+
+  @Id
+  private UUID eventId;
+
+  private Instant processedAt;
+
+  public ProcessedEventEntity() {
+  }
+
+  public UUID getEventId() {
+    return eventId;
+  }
+
+  public void setEventId(UUID eventId) {
+    this.eventId = eventId;
+  }
+
+  public Instant getProcessedAt() {
+    return processedAt;
+  }
+
+  public void setProcessedAt(Instant processedAt) {
+    this.processedAt = processedAt;
+  }
+}
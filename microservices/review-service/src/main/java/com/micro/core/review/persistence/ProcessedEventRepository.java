@@ -0,0 +1,24 @@
+package com.micro.core.review.persistence;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ProcessedEventRepository extends CrudRepository<ProcessedEventEntity, UUID> {
+
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true, value = "insert into processed_events (event_id, processed_at) "
+      + "values (:eventId, :processedAt) on conflict (event_id) do nothing")
+  int insertIfAbsent(@Param("eventId") UUID eventId, @Param("processedAt") Instant processedAt);
+
+  @Modifying
+  @Transactional
+  @Query("delete from ProcessedEventEntity e where e.processedAt < :processedBefore")
+  int deleteProcessedBefore(@Param("processedBefore") Instant processedBefore);
+}
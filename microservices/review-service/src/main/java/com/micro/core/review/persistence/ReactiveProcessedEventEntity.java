@@ -0,0 +1,38 @@
+package com.micro.core.review.persistence;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Maps the same processed_events table as {@link ProcessedEventEntity} for the R2DBC mode.
+ */
+@Table("processed_events")
+public class ReactiveProcessedEventEntity {
+
+  @Id
+  private UUID eventId;
+
+  private Instant processedAt;
+
+  public ReactiveProcessedEventEntity() {
+  }
+
+  public UUID getEventId() {
+    return eventId;
+  }
+
+  public void setEventId(UUID eventId) {
+    this.eventId = eventId;
+  }
+
+  public Instant getProcessedAt() {
+    return processedAt;
+  }
+
+  public void setProcessedAt(Instant processedAt) {
+    this.processedAt = processedAt;
+  }
+}
@@ -0,0 +1,23 @@
+package com.micro.core.review.persistence;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Mono;
+
+// Same statements as ProcessedEventRepository
+public interface ReactiveProcessedEventRepository extends R2dbcRepository<ReactiveProcessedEventEntity, UUID> {
+
+  @Modifying
+  @Query("insert into processed_events (event_id, processed_at) values (:eventId, :processedAt) "
+      + "on conflict (event_id) do nothing")
+  Mono<Integer> insertIfAbsent(UUID eventId, Instant processedAt);
+
+  @Modifying
+  @Query("delete from processed_events where processed_at < :processedBefore")
+  Mono<Integer> deleteProcessedBefore(Instant processedBefore);
+}
@@ -0,0 +1,24 @@
+package com.micro.core.review.persistence;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+@Profile("r2dbc")
+@Component
+public class ReactiveReviewIdAllocator extends ReviewIdAllocator {
+  private final DatabaseClient databaseClient;
+
+  public ReactiveReviewIdAllocator(DatabaseClient databaseClient) {
+    this.databaseClient = databaseClient;
+  }
+
+  @Override
+  protected Mono<Long> nextSequenceValue() {
+    return databaseClient.sql("select nextval('reviews_seq')")
+        .map(row -> row.get(0, Long.class))
+        .one();
+  }
+}
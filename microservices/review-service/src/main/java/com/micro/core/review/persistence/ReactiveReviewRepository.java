@@ -0,0 +1,38 @@
+package com.micro.core.review.persistence;
+
+import java.util.Collection;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveReviewRepository extends R2dbcRepository<ReactiveReviewEntity, Integer> {
+
+  Flux<ReactiveReviewEntity> findByProductId(int productId);
+
+  @Query("select * from reviews where product_id = :productId and review_id > :after order by review_id limit :limit")
+  Flux<ReactiveReviewEntity> findPage(int productId, int after, int limit);
+
+  Flux<ReactiveReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  Mono<Long> countByProductId(int productId);
+
+  // Same statements as insertIfAbsent in ReviewInserts and overwrite in ReviewRepository
+  @Modifying
+  @Query("insert into reviews (id, version, product_id, review_id, author, subject, content) "
+      + "values (:id, 0, :productId, :reviewId, :author, :subject, :content) "
+      + "on conflict (product_id, review_id) do nothing")
+  Mono<Integer> insertIfAbsent(int id, int productId, int reviewId, String author, String subject, String content);
+
+  @Modifying
+  @Query("update reviews set author = :author, subject = :subject, content = :content, version = version + 1 "
+      + "where product_id = :productId and review_id = :reviewId")
+  Mono<Integer> overwrite(int productId, int reviewId, String author, String subject, String content);
+
+  @Modifying
+  @Query("delete from reviews where product_id = :productId")
+  Mono<Integer> deleteAllByProductIdInBulk(int productId);
+}
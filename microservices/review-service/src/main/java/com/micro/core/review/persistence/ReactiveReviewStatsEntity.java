@@ -0,0 +1,35 @@
+package com.micro.core.review.persistence;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Maps the same review_stats table as {@link ReviewStatsEntity} for the R2DBC mode.
+ */
+@Table("review_stats")
+public class ReactiveReviewStatsEntity {
+
+  @Id
+  private int productId;
+
+  private long reviewCount;
+
+  public ReactiveReviewStatsEntity() {
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public long getReviewCount() {
+    return reviewCount;
+  }
+
+  public void setReviewCount(long reviewCount) {
+    this.reviewCount = reviewCount;
+  }
+}
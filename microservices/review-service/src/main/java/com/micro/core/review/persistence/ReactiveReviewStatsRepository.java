@@ -0,0 +1,33 @@
+package com.micro.core.review.persistence;
+
+import java.util.Collection;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Same statements as ReviewStatsRepository
+public interface ReactiveReviewStatsRepository extends R2dbcRepository<ReactiveReviewStatsEntity, Integer> {
+
+  Flux<ReactiveReviewStatsEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  @Modifying
+  @Query("insert into review_stats (product_id, review_count) values (:productId, :count) "
+      + "on conflict (product_id) do update set review_count = review_stats.review_count + excluded.review_count")
+  Mono<Integer> increment(int productId, long count);
+
+  @Modifying
+  @Query("delete from review_stats where product_id = :productId")
+  Mono<Integer> deleteByProductIdInBulk(int productId);
+
+  @Modifying
+  @Query("update review_stats set review_count = :count where product_id = :productId")
+  Mono<Integer> setCount(int productId, long count);
+
+  @Query("select product_id from reviews where product_id > :after "
+      + "union select product_id from review_stats where product_id > :after order by product_id limit :limit")
+  Flux<Integer> findProductIdsAfter(int after, int limit);
+}
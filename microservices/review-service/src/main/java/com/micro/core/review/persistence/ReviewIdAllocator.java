@@ -0,0 +1,44 @@
+package com.micro.core.review.persistence;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out review ids from reviews_seq the way Hibernate's pooled optimizer does for ReviewEntity, so rows inserted
+ * with plain SQL share the table with the ones Hibernate inserts. Each nextval reserves the block of ids ending at
+ * the returned value. The R2DBC mode inserts every review this way, the JPA mode its insert-if-absent statements.
+ */
+public abstract class ReviewIdAllocator {
+  // Must match the allocationSize of the sequence generator on ReviewEntity
+  static final int ALLOCATION_SIZE = 50;
+
+  private int next = 1;
+  private int hi = 0;
+
+  public Mono<Integer> nextId() {
+    return Mono.defer(() -> {
+      Integer id = takeFromBlock();
+      if (id != null) {
+        return Mono.just(id);
+      }
+
+      return nextSequenceValue().map(value -> newBlock(value.intValue()));
+    });
+  }
+
+  // select nextval('reviews_seq')
+  protected abstract Mono<Long> nextSequenceValue();
+
+  private synchronized Integer takeFromBlock() {
+    return next <= hi ? next++ : null;
+  }
+
+  // A block fetched while another caller already refilled is only used for this id, the rest is skipped
+  private synchronized int newBlock(int blockHi) {
+    int lo = Math.max(1, blockHi - ALLOCATION_SIZE + 1);
+    if (next > hi) {
+      next = lo + 1;
+      hi = blockHi;
+    }
+    return lo;
+  }
+}
@@ -0,0 +1,15 @@
+package com.micro.core.review.persistence;
+
+import java.util.List;
+import java.util.Set;
+
+// Statements of ReviewRepository that the query parser of Spring Data JPA rejects, run as plain JDBC instead
+public interface ReviewInserts {
+
+  // Returns 0 instead of failing on reviews_unique_idx when the review exists
+  int insertIfAbsent(int id, int productId, int reviewId, String author, String subject, String content);
+
+  // The same insert for many reviews, whose ids are already set. Returns the ids of the rows it inserted, the
+  // reviews whose id is missing existed
+  Set<Integer> insertAllIfAbsent(List<ReviewEntity> entities);
+}
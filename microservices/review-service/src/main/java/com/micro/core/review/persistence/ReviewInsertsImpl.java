@@ -0,0 +1,50 @@
+package com.micro.core.review.persistence;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Joins the transaction of the caller, JpaTransactionManager exposes its connection to the JdbcTemplate
+class ReviewInsertsImpl implements ReviewInserts {
+  private static final String INSERT = "insert into reviews (id, version, product_id, review_id, author, subject, "
+      + "content) values ";
+  private static final String ROW = "(?, 0, ?, ?, ?, ?, ?)";
+  private static final String ON_CONFLICT = " on conflict (product_id, review_id) do nothing";
+
+  // Rows per multi row insert, well below the 65535 bind parameters of a Postgres statement
+  private static final int ROWS_PER_INSERT = 1000;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  ReviewInsertsImpl(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  // Only a conflict on reviews_unique_idx is skipped, one on the id primary key still fails
+  @Override
+  public int insertIfAbsent(int id, int productId, int reviewId, String author, String subject, String content) {
+    return jdbcTemplate.update(INSERT + ROW + ON_CONFLICT, id, productId, reviewId, author, subject, content);
+  }
+
+  // A multi row insert instead of a JDBC batch, the driver reports no row counts for the batches it rewrites, and
+  // returning id tells which rows went in
+  @Override
+  public Set<Integer> insertAllIfAbsent(List<ReviewEntity> entities) {
+    Set<Integer> inserted = new HashSet<>();
+    for (int from = 0; from < entities.size(); from += ROWS_PER_INSERT) {
+      List<ReviewEntity> rows = entities.subList(from, Math.min(entities.size(), from + ROWS_PER_INSERT));
+      Object[] args = rows.stream()
+          .flatMap(e -> Stream.of(e.getId(), e.getProductId(), e.getReviewId(), e.getAuthor(), e.getSubject(),
+              e.getContent()))
+          .toArray();
+      inserted.addAll(jdbcTemplate.queryForList(
+          INSERT + String.join(", ", Collections.nCopies(rows.size(), ROW)) + ON_CONFLICT + " returning id",
+          Integer.class, args));
+    }
+    return inserted;
+  }
+}
@@ -1,12 +1,40 @@
 package com.micro.core.review.persistence;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
-public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
+public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer>, ReviewInserts {
 
   @Transactional(readOnly = true)
   List<ReviewEntity> findByProductId(int productId);
+
+  // Keyset page, a range scan on the reviews_unique_idx (productId, reviewId) index
+  @Transactional(readOnly = true)
+  List<ReviewEntity> findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(int productId, int reviewId, Limit limit);
+
+  @Transactional(readOnly = true)
+  List<ReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  @Transactional(readOnly = true)
+  long countByProductId(int productId);
+
+  @Modifying
+  @Transactional
+  @Query("update ReviewEntity r set r.author = :author, r.subject = :subject, r.content = :content, "
+      + "r.version = r.version + 1 where r.productId = :productId and r.reviewId = :reviewId")
+  int overwrite(@Param("productId") int productId, @Param("reviewId") int reviewId, @Param("author") String author,
+      @Param("subject") String subject, @Param("content") String content);
+
+  // One DELETE statement, without loading the entities or checking their versions
+  @Modifying
+  @Transactional
+  @Query("delete from ReviewEntity r where r.productId = :productId")
+  int deleteAllByProductIdInBulk(@Param("productId") int productId);
 }
@@ -0,0 +1,37 @@
+package com.micro.core.review.persistence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Number of reviews per product, only ever written by the statements in {@link ReviewStatsRepository}.
+ */
+@Entity
+@Table(name = "review_stats")
+public class ReviewStatsEntity {
+
+  @Id
+  private int productId;
+
+  private long reviewCount;
+
+  public ReviewStatsEntity() {
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public void setProductId(int productId) {
+    this.productId = productId;
+  }
+
+  public long getReviewCount() {
+    return reviewCount;
+  }
+
+  public void setReviewCount(long reviewCount) {
+    this.reviewCount = reviewCount;
+  }
+}
@@ -0,0 +1,40 @@
+package com.micro.core.review.persistence;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ReviewStatsRepository extends CrudRepository<ReviewStatsEntity, Integer> {
+
+  @Transactional(readOnly = true)
+  List<ReviewStatsEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  // Atomic in postgres, concurrent increments of the same product never lose a count
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true, value = "insert into review_stats (product_id, review_count) values (:productId, :count) "
+      + "on conflict (product_id) do update set review_count = review_stats.review_count + excluded.review_count")
+  int increment(@Param("productId") int productId, @Param("count") long count);
+
+  @Modifying
+  @Transactional
+  @Query("delete from ReviewStatsEntity s where s.productId = :productId")
+  int deleteByProductIdInBulk(@Param("productId") int productId);
+
+  @Modifying
+  @Transactional
+  @Query("update ReviewStatsEntity s set s.reviewCount = :count where s.productId = :productId")
+  int setCount(@Param("productId") int productId, @Param("count") long count);
+
+  // Keyset page over the product ids with reviews or a counter, for the repair
+  @Transactional(readOnly = true)
+  @Query("select r.productId from ReviewEntity r where r.productId > :after "
+      + "union select s.productId from ReviewStatsEntity s where s.productId > :after order by 1")
+  List<Integer> findProductIdsAfter(@Param("after") int after, Limit limit);
+}
@@ -0,0 +1,50 @@
+package com.micro.core.review.services;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.micro.core.review.persistence.ProcessedEventEntity;
+import com.micro.core.review.persistence.ProcessedEventRepository;
+import com.micro.util.messaging.ProcessedEventStore;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+@Profile("!r2dbc")
+@Component
+public class JpaProcessedEventStore implements ProcessedEventStore, ProcessedEventExpiry {
+  private final ProcessedEventRepository repository;
+  private final Scheduler jdbcScheduler;
+
+  public JpaProcessedEventStore(ProcessedEventRepository repository,
+      @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+    this.repository = repository;
+    this.jdbcScheduler = jdbcScheduler;
+  }
+
+  @Override
+  public Flux<UUID> processed(Collection<UUID> eventIds) {
+    return Mono.fromCallable(() -> repository.findAllById(eventIds))
+        .flatMapIterable(entities -> entities)
+        .map(ProcessedEventEntity::getEventId)
+        .subscribeOn(jdbcScheduler);
+  }
+
+  @Override
+  public Mono<Void> add(Collection<UUID> eventIds) {
+    Instant now = Instant.now();
+    return Mono.fromRunnable(() -> eventIds.forEach(eventId -> repository.insertIfAbsent(eventId, now)))
+        .subscribeOn(jdbcScheduler).then();
+  }
+
+  @Override
+  public Mono<Integer> expireProcessedEvents(Instant processedBefore) {
+    return Mono.fromCallable(() -> repository.deleteProcessedBefore(processedBefore)).subscribeOn(jdbcScheduler);
+  }
+}
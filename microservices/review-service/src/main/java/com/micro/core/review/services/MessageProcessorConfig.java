@@ -1,47 +1,80 @@
 package com.micro.core.review.services;
 
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 
 import com.micro.api.core.review.Review;
 import com.micro.api.core.review.ReviewService;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.EventProcessingException;
+import com.micro.util.messaging.EventDeduplicator;
+import com.micro.util.messaging.EventProcessorFactory;
+import com.micro.util.messaging.ProcessedEventStore;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Configuration
 public class MessageProcessorConfig {
   private static final Logger LOG = LoggerFactory.getLogger(MessageProcessorConfig.class);
 
   ReviewService reviewService;
+  private final EventDeduplicator deduplicator;
 
-  public MessageProcessorConfig(ReviewService reviewService) {
+  public MessageProcessorConfig(ReviewService reviewService, ProcessedEventStore processedEventStore,
+      @Value("${app.dedupe.capacity:10000}") Integer dedupeCapacity) {
     this.reviewService = reviewService;
+    this.deduplicator = new EventDeduplicator(processedEventStore, dedupeCapacity);
   }
 
   @Bean
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "blocking", matchIfMissing = true)
   Consumer<Event<Integer, Review>> messageProcessor() {
     return event -> {
-      switch (event.getEventType()) {
-        case CREATE:
-          reviewService.createReview(event.getData()).block();
-          LOG.info("Creation of review message done");
-          break;
-        case DELETE:
-          reviewService.deleteReviews(event.getKey()).block();
-          LOG.info("Deleting of review done");
-          break;
-
-        default:
-          String errorMessage = "Invalid event type " + event.getEventType() + "expected CREATE or DELETE";
-          LOG.warn(errorMessage);
-          throw new EventProcessingException(errorMessage);
-      }
-
+      processEventOnce(event).block();
       LOG.info("Review Event processing done");
     };
   }
+
+  // The JDBC calls still run on the jdbcScheduler, the reactive mode frees the binder thread so up to
+  // app.messaging.concurrency keys wait on the database at once instead of one
+  @Bean(name = "messageProcessor")
+  @ConditionalOnProperty(name = "app.messaging.mode", havingValue = "reactive")
+  Function<Flux<Message<Event<Integer, Review>>>, Mono<Void>> reactiveMessageProcessor(
+      EventProcessorFactory processors) {
+    LOG.info("Processing review events reactively");
+    return processors.messageProcessor(this::processEventOnce);
+  }
+
+  // A redelivered event that was already applied is skipped instead of failing on the unique index
+  private Mono<Void> processEventOnce(Event<Integer, Review> event) {
+    return deduplicator.applyOnce(event, this::processEvent);
+  }
+
+  private Mono<Void> processEvent(Event<Integer, Review> event) {
+    switch (event.getEventType()) {
+      case CREATE:
+        return reviewService.createReview(event.getData())
+            .doOnSuccess(r -> LOG.info("Creation of review message done")).then();
+      case CREATE_BULK:
+        return reviewService.createReviews(event.getBulkData())
+            .doOnComplete(() -> LOG.info("Bulk creation of reviews message done")).then();
+      case DELETE:
+        return reviewService.deleteReviews(event.getKey())
+            .doOnSuccess(v -> LOG.info("Deleting of review done"));
+
+      default:
+        String errorMessage = "Invalid event type " + event.getEventType() + "expected CREATE, CREATE_BULK or DELETE";
+        LOG.warn(errorMessage);
+        throw new EventProcessingException(errorMessage);
+    }
+  }
 }
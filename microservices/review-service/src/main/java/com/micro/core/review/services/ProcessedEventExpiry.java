@@ -0,0 +1,15 @@
+package com.micro.core.review.services;
+
+import java.time.Instant;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Deletes the ids of events applied before a cutoff from processed_events, implemented by the JPA and the R2DBC
+ * processed event store.
+ */
+public interface ProcessedEventExpiry {
+
+  // Returns the number of ids deleted
+  Mono<Integer> expireProcessedEvents(Instant processedBefore);
+}
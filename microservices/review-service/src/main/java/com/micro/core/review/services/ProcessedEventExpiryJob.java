@@ -0,0 +1,33 @@
+package com.micro.core.review.services;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Postgres has no TTL like the processed_events collection of the Mongo services, the ids older than
+ * app.dedupe.retention are deleted on app.dedupe.expireCron instead. A redelivery comes long before that.
+ */
+@Component
+public class ProcessedEventExpiryJob {
+  private static final Logger LOG = LoggerFactory.getLogger(ProcessedEventExpiryJob.class);
+
+  private final ProcessedEventExpiry expiry;
+  private final Duration retention;
+
+  public ProcessedEventExpiryJob(ProcessedEventExpiry expiry,
+      @Value("${app.dedupe.retention:7d}") Duration retention) {
+    this.expiry = expiry;
+    this.retention = retention;
+  }
+
+  @Scheduled(cron = "${app.dedupe.expireCron:0 30 3 * * *}")
+  void expireProcessedEvents() {
+    LOG.info("Expired {} processed event ids", expiry.expireProcessedEvents(Instant.now().minus(retention)).block());
+  }
+}
@@ -0,0 +1,42 @@
+package com.micro.core.review.services;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.micro.core.review.persistence.ReactiveProcessedEventEntity;
+import com.micro.core.review.persistence.ReactiveProcessedEventRepository;
+import com.micro.util.messaging.ProcessedEventStore;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// R2DBC variant of JpaProcessedEventStore, active with the r2dbc profile
+@Profile("r2dbc")
+@Component
+public class ReactiveProcessedEventStore implements ProcessedEventStore, ProcessedEventExpiry {
+  private final ReactiveProcessedEventRepository repository;
+
+  public ReactiveProcessedEventStore(ReactiveProcessedEventRepository repository) {
+    this.repository = repository;
+  }
+
+  @Override
+  public Flux<UUID> processed(Collection<UUID> eventIds) {
+    return repository.findAllById(eventIds).map(ReactiveProcessedEventEntity::getEventId);
+  }
+
+  @Override
+  public Mono<Void> add(Collection<UUID> eventIds) {
+    Instant now = Instant.now();
+    return Flux.fromIterable(eventIds).concatMap(eventId -> repository.insertIfAbsent(eventId, now)).then();
+  }
+
+  @Override
+  public Mono<Integer> expireProcessedEvents(Instant processedBefore) {
+    return repository.deleteProcessedBefore(processedBefore);
+  }
+}
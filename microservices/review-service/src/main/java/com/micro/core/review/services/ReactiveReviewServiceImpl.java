@@ -0,0 +1,232 @@
+package com.micro.core.review.services;
+
+import static java.util.logging.Level.FINE;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.micro.api.core.review.Review;
+import com.micro.api.core.review.ReviewService;
+import com.micro.api.core.review.ReviewStats;
+import com.micro.api.exceptions.InvalidInputException;
+import com.micro.core.review.persistence.ReactiveReviewEntity;
+import com.micro.core.review.persistence.ReactiveReviewRepository;
+import com.micro.core.review.persistence.ReactiveReviewStatsEntity;
+import com.micro.core.review.persistence.ReactiveReviewStatsRepository;
+import com.micro.core.review.persistence.ReviewIdAllocator;
+import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC variant of {@link ReviewServiceImpl}, active with the r2dbc profile. Same contract and error mapping, but
+ * the calls run on the R2DBC connection pool instead of the jdbcScheduler threads.
+ */
+@Profile("r2dbc")
+@RestController
+public class ReactiveReviewServiceImpl implements ReviewService, ReviewStatsRepair {
+  private static final Logger LOG = LoggerFactory.getLogger(ReactiveReviewServiceImpl.class);
+  private static final int STATS_REPAIR_PAGE = 1000;
+
+  private final ServiceUtil serviceUtil;
+  private final ReactiveReviewRepository repository;
+  private final ReactiveReviewStatsRepository statsRepository;
+  private final ReviewIdAllocator idAllocator;
+  private final TransactionalOperator transactionalOperator;
+  private final ReviewMapper mapper;
+  private final DuplicatePolicy duplicatePolicy;
+
+  public ReactiveReviewServiceImpl(ReactiveReviewRepository repository,
+      ReactiveReviewStatsRepository statsRepository, ReviewIdAllocator idAllocator,
+      TransactionalOperator transactionalOperator, ReviewMapper mapper, ServiceUtil serviceUtil,
+      @Value("${app.duplicatePolicy:reject}") DuplicatePolicy duplicatePolicy) {
+    this.serviceUtil = serviceUtil;
+    this.repository = repository;
+    this.statsRepository = statsRepository;
+    this.idAllocator = idAllocator;
+    this.transactionalOperator = transactionalOperator;
+    this.mapper = mapper;
+    this.duplicatePolicy = duplicatePolicy;
+  }
+
+  @Override
+  public Mono<Review> createReview(Review review) {
+    if (review.getProductId() < 1) {
+      throw new InvalidInputException("Invalid product Id: " + review.getProductId());
+    }
+
+    LOG.debug("Creating review of product id: " + review.getProductId());
+    ReactiveReviewEntity entity = mapper.apiToReactiveEntity(review);
+    return insertIfAbsent(entity)
+        .flatMap(inserted -> inserted
+            ? statsRepository.increment(entity.getProductId(), 1).thenReturn(entity)
+            : onDuplicate(entity))
+        .as(transactionalOperator::transactional)
+        .map(mapper::reactiveEntityToApi);
+  }
+
+  @Override
+  public Flux<Review> createReviews(List<Review> reviews) {
+    reviews.forEach(review -> {
+      if (review.getProductId() < 1) {
+        throw new InvalidInputException("Invalid product Id: " + review.getProductId());
+      }
+    });
+
+    // Each review as in createReview, only the inserted ones are counted. A review found under the reject policy
+    // rolls the whole bulk back
+    LOG.debug("Creating {} reviews in bulk", reviews.size());
+    return Flux.fromIterable(reviews)
+        .map(mapper::apiToReactiveEntity)
+        .concatMap(entity -> insertIfAbsent(entity).map(inserted -> Map.entry(entity, inserted)))
+        .collectList()
+        .flatMap(written -> incrementStats(written.stream().filter(Map.Entry::getValue).map(Map.Entry::getKey)
+            .toList())
+            .thenMany(Flux.fromIterable(written))
+            .concatMap(entry -> entry.getValue() ? Mono.just(entry.getKey()) : onDuplicate(entry.getKey()))
+            .collectList())
+        .as(transactionalOperator::transactional)
+        .flatMapIterable(entities -> entities)
+        .map(mapper::reactiveEntityToApi);
+  }
+
+  @Override
+  public Flux<Review> getReviews(int productId) {
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid product Id: " + productId);
+    }
+
+    return repository.findByProductId(productId)
+        .log(LOG.getName(), FINE)
+        .map(this::toApiWithAddress);
+  }
+
+  @Override
+  public Flux<Review> getReviews(int productId, int limit, int after) {
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid product Id: " + productId);
+    }
+    if (limit < 1 || after < 0) {
+      throw new InvalidInputException("Invalid page, limit: " + limit + ", after: " + after);
+    }
+
+    return repository.findPage(productId, after, limit)
+        .log(LOG.getName(), FINE)
+        .map(this::toApiWithAddress);
+  }
+
+  @Override
+  public Flux<Review> getReviews(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product Id: " + productId);
+      }
+    });
+
+    return repository.findByProductIdIn(productIds)
+        .log(LOG.getName(), FINE)
+        .map(this::toApiWithAddress);
+  }
+
+  @Override
+  public Flux<ReviewStats> getReviewStats(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product Id: " + productId);
+      }
+    });
+
+    return statsRepository.findByProductIdIn(productIds)
+        .collectMap(ReactiveReviewStatsEntity::getProductId, ReactiveReviewStatsEntity::getReviewCount)
+        .flatMapIterable(counts -> productIds.stream().distinct()
+            .map(productId -> new ReviewStats(productId, counts.getOrDefault(productId, 0L)))
+            .collect(Collectors.toList()))
+        .log(LOG.getName(), FINE);
+  }
+
+  @Override
+  public Mono<Void> deleteReviews(int productId) {
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid product Id: " + productId);
+    }
+
+    return statsRepository.deleteByProductIdInBulk(productId)
+        .then(repository.deleteAllByProductIdInBulk(productId))
+        .as(transactionalOperator::transactional)
+        .doOnNext(deleted -> LOG.debug("Deleted {} reviews of product id: {}", deleted, productId))
+        .then();
+  }
+
+  @Override
+  public Mono<Integer> repairStats() {
+    return statsRepository.findProductIdsAfter(Integer.MIN_VALUE, STATS_REPAIR_PAGE).collectList()
+        .expand(productIds -> productIds.size() < STATS_REPAIR_PAGE
+            ? Mono.empty()
+            : statsRepository.findProductIdsAfter(productIds.get(productIds.size() - 1), STATS_REPAIR_PAGE)
+                .collectList())
+        .concatMapIterable(productIds -> productIds)
+        .concatMap(productId -> recountStats(productId).as(transactionalOperator::transactional))
+        .filter(reviews -> reviews > 0)
+        .count()
+        .map(Long::intValue)
+        .doOnNext(products -> LOG.debug("Recounted the reviews of {} products", products));
+  }
+
+  // See ReviewStatsRepair, the increment of nothing locks the counter row until the transaction commits
+  private Mono<Long> recountStats(int productId) {
+    return statsRepository.increment(productId, 0)
+        .then(repository.countByProductId(productId))
+        .flatMap(reviews -> (reviews == 0
+            ? statsRepository.deleteByProductIdInBulk(productId)
+            : statsRepository.setCount(productId, reviews))
+            .thenReturn(reviews));
+  }
+
+  private Mono<Void> incrementStats(List<ReactiveReviewEntity> entities) {
+    Map<Integer, Long> counts = entities.stream()
+        .collect(Collectors.groupingBy(ReactiveReviewEntity::getProductId, Collectors.counting()));
+    return Flux.fromIterable(counts.entrySet())
+        .concatMap(e -> statsRepository.increment(e.getKey(), e.getValue()))
+        .then();
+  }
+
+  // The insert found the review, see ReviewServiceImpl
+  private Mono<ReactiveReviewEntity> onDuplicate(ReactiveReviewEntity entity) {
+    switch (duplicatePolicy) {
+      case OVERWRITE:
+        return repository.overwrite(entity.getProductId(), entity.getReviewId(), entity.getAuthor(),
+            entity.getSubject(), entity.getContent()).thenReturn(entity);
+      case IGNORE:
+        return Mono.just(entity);
+      default:
+        return Mono.error(new InvalidInputException("Duplicate key, for prodcut id: " + entity.getProductId()));
+    }
+  }
+
+  // An insert ... on conflict do nothing on reviews_unique_idx, false when the review existed
+  private Mono<Boolean> insertIfAbsent(ReactiveReviewEntity entity) {
+    return idAllocator.nextId()
+        .flatMap(id -> {
+          entity.setId(id);
+          return repository.insertIfAbsent(id, entity.getProductId(), entity.getReviewId(), entity.getAuthor(),
+              entity.getSubject(), entity.getContent());
+        })
+        .map(inserted -> inserted == 1);
+  }
+
+  private Review toApiWithAddress(ReactiveReviewEntity entity) {
+    Review review = mapper.reactiveEntityToApi(entity);
+    review.setServiceAddress(serviceUtil.getServiceAddress());
+    return review;
+  }
+}
@@ -7,6 +7,7 @@ import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 
 import com.micro.api.core.review.Review;
+import com.micro.core.review.persistence.ReactiveReviewEntity;
 import com.micro.core.review.persistence.ReviewEntity;
 
 @Mapper(componentModel = "spring")
@@ -20,4 +21,10 @@ public interface ReviewMapper {
 
   List<Review> entityListToApiList(List<ReviewEntity> entityList);
   List<ReviewEntity> apiListToEntityList(List<Review> apiList);
+
+  @Mappings({ @Mapping(target = "serviceAddress", ignore = true) })
+  Review reactiveEntityToApi(ReactiveReviewEntity entity);
+
+  @Mappings({ @Mapping(target = "id", ignore = true), @Mapping(target = "version", ignore = true) })
+  ReactiveReviewEntity apiToReactiveEntity(Review review);
 }
@@ -2,39 +2,62 @@ package com.micro.core.review.services;
 
 import static java.util.logging.Level.FINE;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.micro.api.core.review.Review;
 import com.micro.api.core.review.ReviewService;
+import com.micro.api.core.review.ReviewStats;
 import com.micro.api.exceptions.InvalidInputException;
 import com.micro.core.review.persistence.ReviewEntity;
+import com.micro.core.review.persistence.ReviewIdAllocator;
 import com.micro.core.review.persistence.ReviewRepository;
+import com.micro.core.review.persistence.ReviewStatsEntity;
+import com.micro.core.review.persistence.ReviewStatsRepository;
 import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
+@Profile("!r2dbc")
 @RestController
-public class ReviewServiceImpl implements ReviewService {
+public class ReviewServiceImpl implements ReviewService, ReviewStatsRepair {
   private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
+  private static final int STATS_REPAIR_PAGE = 1000;
 
   private final ServiceUtil serviceUtil;
   private final ReviewRepository repository;
+  private final ReviewStatsRepository statsRepository;
+  private final TransactionTemplate transactionTemplate;
   private final ReviewMapper mapper;
   private final Scheduler jdbScheduler;
+  private final ReviewIdAllocator idAllocator;
+  private final DuplicatePolicy duplicatePolicy;
 
-  public ReviewServiceImpl(ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil,
-      @Qualifier("jdbcScheduler") Scheduler jdbScheduler) {
+  public ReviewServiceImpl(ReviewRepository repository, ReviewStatsRepository statsRepository,
+      TransactionTemplate transactionTemplate, ReviewMapper mapper, ServiceUtil serviceUtil,
+      @Qualifier("jdbcScheduler") Scheduler jdbScheduler, ReviewIdAllocator idAllocator,
+      @Value("${app.duplicatePolicy:reject}") DuplicatePolicy duplicatePolicy) {
     this.serviceUtil = serviceUtil;
     this.repository = repository;
+    this.statsRepository = statsRepository;
+    this.transactionTemplate = transactionTemplate;
     this.mapper = mapper;
     this.jdbScheduler = jdbScheduler;
+    this.idAllocator = idAllocator;
+    this.duplicatePolicy = duplicatePolicy;
   }
 
   @Override
@@ -46,16 +69,68 @@ public class ReviewServiceImpl implements ReviewService {
     return Mono.fromCallable(() -> internalCreateReview(review)).subscribeOn(jdbScheduler);
   }
 
+  // An insert ... on conflict do nothing on reviews_unique_idx, its row count tells whether the review existed
   private Review internalCreateReview(Review review) {
-    try {
-      ReviewEntity entity = mapper.apiToEntity(review);
-      ReviewEntity newEntity = repository.save(entity);
+    ReviewEntity entity = mapper.apiToEntity(review);
+    entity.setId(idAllocator.nextId().block());
+    boolean inserted = transactionTemplate.execute(status -> {
+      if (repository.insertIfAbsent(entity.getId(), entity.getProductId(), entity.getReviewId(), entity.getAuthor(),
+          entity.getSubject(), entity.getContent()) == 1) {
+        statsRepository.increment(entity.getProductId(), 1);
+        return true;
+      }
+      if (duplicatePolicy == DuplicatePolicy.OVERWRITE) {
+        repository.overwrite(entity.getProductId(), entity.getReviewId(), entity.getAuthor(), entity.getSubject(),
+            entity.getContent());
+      }
+      return false;
+    });
 
-      LOG.debug("Creating review of product id: " + review.getProductId());
-      return mapper.entityToApi(newEntity);
-    } catch (DataIntegrityViolationException dke) {
+    if (!inserted && duplicatePolicy == DuplicatePolicy.REJECT) {
       throw new InvalidInputException("Duplicate key, for prodcut id: " + review.getProductId());
     }
+
+    LOG.debug("Creating review of product id: " + review.getProductId());
+    return mapper.entityToApi(entity);
+  }
+
+  @Override
+  public Flux<Review> createReviews(List<Review> reviews) {
+    reviews.forEach(review -> {
+      if (review.getProductId() < 1) {
+        throw new InvalidInputException("Invalid product Id: " + review.getProductId());
+      }
+    });
+
+    return Mono.fromCallable(() -> internalCreateReviews(reviews)).flatMapMany(Flux::fromIterable)
+        .subscribeOn(jdbScheduler);
+  }
+
+  // The insert of internalCreateReview for the whole bulk. A redelivered bulk only inserts the reviews that are
+  // still missing and counts only those, one that finds a review under the reject policy is rolled back as a whole
+  private List<Review> internalCreateReviews(List<Review> reviews) {
+    List<ReviewEntity> entityList = mapper.apiListToEntityList(reviews);
+    entityList.forEach(entity -> entity.setId(idAllocator.nextId().block()));
+    int existing = transactionTemplate.execute(status -> {
+      Set<Integer> inserted = repository.insertAllIfAbsent(entityList);
+      entityList.stream()
+          .filter(entity -> inserted.contains(entity.getId()))
+          .collect(Collectors.groupingBy(ReviewEntity::getProductId, Collectors.counting()))
+          .forEach(statsRepository::increment);
+
+      List<ReviewEntity> found = entityList.stream().filter(entity -> !inserted.contains(entity.getId())).toList();
+      if (!found.isEmpty() && duplicatePolicy == DuplicatePolicy.REJECT) {
+        throw new InvalidInputException("Duplicate key, for prodcut id: " + found.get(0).getProductId());
+      }
+      if (duplicatePolicy == DuplicatePolicy.OVERWRITE) {
+        found.forEach(entity -> repository.overwrite(entity.getProductId(), entity.getReviewId(), entity.getAuthor(),
+            entity.getSubject(), entity.getContent()));
+      }
+      return found.size();
+    });
+
+    LOG.debug("Creating {} reviews in bulk, {} of them existed", reviews.size(), existing);
+    return mapper.entityListToApiList(entityList);
   }
 
   @Override
@@ -78,6 +153,73 @@ public class ReviewServiceImpl implements ReviewService {
     return apiList;
   }
 
+  @Override
+  public Flux<Review> getReviews(int productId, int limit, int after) {
+    if (productId < 1) {
+      throw new InvalidInputException("Invalid product Id: " + productId);
+    }
+    if (limit < 1 || after < 0) {
+      throw new InvalidInputException("Invalid page, limit: " + limit + ", after: " + after);
+    }
+
+    return Mono.fromCallable(() -> internalGetReviews(productId, limit, after)).flatMapMany(Flux::fromIterable)
+        .log(LOG.getName(), FINE).subscribeOn(jdbScheduler);
+  }
+
+  private List<Review> internalGetReviews(int productId, int limit, int after) {
+    List<ReviewEntity> entityList = repository.findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(productId,
+        after, Limit.of(limit));
+    List<Review> apiList = mapper.entityListToApiList(entityList);
+    apiList.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+
+    LOG.debug("getReviews page size: " + apiList.size() + " after review id " + after);
+
+    return apiList;
+  }
+
+  @Override
+  public Flux<Review> getReviews(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product Id: " + productId);
+      }
+    });
+
+    return Mono.fromCallable(() -> internalGetReviews(productIds)).flatMapMany(Flux::fromIterable)
+        .log(LOG.getName(), FINE).subscribeOn(jdbScheduler);
+  }
+
+  private List<Review> internalGetReviews(List<Integer> productIds) {
+    List<ReviewEntity> entityList = repository.findByProductIdIn(productIds);
+    List<Review> apiList = mapper.entityListToApiList(entityList);
+    apiList.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+
+    LOG.debug("getReviews reviews size: " + apiList.size() + " for " + productIds.size() + " products");
+
+    return apiList;
+  }
+
+  @Override
+  public Flux<ReviewStats> getReviewStats(List<Integer> productIds) {
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid product Id: " + productId);
+      }
+    });
+
+    return Mono.fromCallable(() -> internalGetReviewStats(productIds)).flatMapMany(Flux::fromIterable)
+        .log(LOG.getName(), FINE).subscribeOn(jdbScheduler);
+  }
+
+  private List<ReviewStats> internalGetReviewStats(List<Integer> productIds) {
+    Map<Integer, Long> counts = statsRepository.findByProductIdIn(productIds).stream()
+        .collect(Collectors.toMap(ReviewStatsEntity::getProductId, ReviewStatsEntity::getReviewCount));
+
+    return productIds.stream().distinct()
+        .map(productId -> new ReviewStats(productId, counts.getOrDefault(productId, 0L)))
+        .collect(Collectors.toList());
+  }
+
   @Override
   public Mono<Void> deleteReviews(int productId) {
     if (productId < 1) {
@@ -88,7 +230,41 @@ public class ReviewServiceImpl implements ReviewService {
   }
 
   private void internalDeleteReviews(int productId) {
-    LOG.debug("Deleting reviews");
-    repository.deleteAll(repository.findByProductId(productId));
+    int deleted = transactionTemplate.execute(status -> {
+      statsRepository.deleteByProductIdInBulk(productId);
+      return repository.deleteAllByProductIdInBulk(productId);
+    });
+    LOG.debug("Deleted {} reviews of product id: {}", deleted, productId);
+  }
+
+  @Override
+  public Mono<Integer> repairStats() {
+    return Mono.fromCallable(() -> {
+      int products = 0;
+      Limit page = Limit.of(STATS_REPAIR_PAGE);
+      List<Integer> productIds = statsRepository.findProductIdsAfter(Integer.MIN_VALUE, page);
+      while (!productIds.isEmpty()) {
+        for (int productId : productIds) {
+          if (transactionTemplate.execute(status -> recountStats(productId)) > 0) {
+            products++;
+          }
+        }
+        productIds = statsRepository.findProductIdsAfter(productIds.get(productIds.size() - 1), page);
+      }
+      LOG.debug("Recounted the reviews of {} products", products);
+      return products;
+    }).subscribeOn(jdbScheduler);
+  }
+
+  // See ReviewStatsRepair, the increment of nothing locks the counter row until the transaction commits
+  private long recountStats(int productId) {
+    statsRepository.increment(productId, 0);
+    long reviews = repository.countByProductId(productId);
+    if (reviews == 0) {
+      statsRepository.deleteByProductIdInBulk(productId);
+    } else {
+      statsRepository.setCount(productId, reviews);
+    }
+    return reviews;
   }
 }
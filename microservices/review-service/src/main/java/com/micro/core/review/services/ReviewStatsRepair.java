@@ -0,0 +1,16 @@
+package com.micro.core.review.services;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Recomputes the review_stats counters from the reviews, implemented by the JPA and the R2DBC service.
+ *
+ * Each product is recounted in a transaction of its own. An increment of nothing first locks its counter row, which
+ * waits for a create or delete of its reviews that is in flight and holds back the next one until the recount
+ * commits. The count that follows sees every review committed before it, so no concurrent increment is overwritten.
+ */
+public interface ReviewStatsRepair {
+
+  // Returns the number of products with reviews
+  Mono<Integer> repairStats();
+}
@@ -0,0 +1,41 @@
+package com.micro.core.review.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The review counters are updated in the same transaction as the reviews, so they only drift when the table is
+ * written around the service. The repair still runs once at startup and then on app.stats.repairCron to correct
+ * that, an event applied while it runs can be overwritten by it and is corrected by the next repair.
+ */
+@Component
+public class ReviewStatsRepairJob {
+  private static final Logger LOG = LoggerFactory.getLogger(ReviewStatsRepairJob.class);
+
+  private final ReviewStatsRepair statsRepair;
+  private final boolean repairOnStartup;
+
+  public ReviewStatsRepairJob(ReviewStatsRepair statsRepair,
+      @Value("${app.stats.repairOnStartup:true}") Boolean repairOnStartup) {
+    this.statsRepair = statsRepair;
+    this.repairOnStartup = repairOnStartup;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void repairOnStartup() {
+    if (repairOnStartup) {
+      statsRepair.repairStats().subscribe(products -> LOG.info("Repaired the review stats of {} products", products),
+          ex -> LOG.warn("Repairing the review stats at startup failed: {}", ex.toString()));
+    }
+  }
+
+  @Scheduled(cron = "${app.stats.repairCron:0 0 3 * * *}")
+  void scheduledRepair() {
+    LOG.info("Repaired the review stats of {} products", statsRepair.repairStats().block());
+  }
+}
@@ -0,0 +1,26 @@
+-- Same table, sequence and unique index as Hibernate creates for ReviewEntity in the JPA mode
+create sequence if not exists reviews_seq start with 1 increment by 50;
+
+create table if not exists reviews (
+  id integer not null primary key,
+  version integer not null,
+  product_id integer not null,
+  review_id integer not null,
+  author varchar(255),
+  subject varchar(255),
+  content varchar(255)
+);
+
+create unique index if not exists reviews_unique_idx on reviews (product_id, review_id);
+
+-- Same table as Hibernate creates for ReviewStatsEntity
+create table if not exists review_stats (
+  product_id integer not null primary key,
+  review_count bigint not null
+);
+
+-- Same table as Hibernate creates for ProcessedEventEntity
+create table if not exists processed_events (
+  event_id uuid not null primary key,
+  processed_at timestamp(6) with time zone
+);
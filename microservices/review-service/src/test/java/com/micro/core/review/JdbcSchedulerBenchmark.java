@@ -0,0 +1,179 @@
+package com.micro.core.review;
+
+import static com.micro.api.event.Event.Type.DELETE;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.core.review.persistence.ReviewIdAllocator;
+import com.micro.core.review.persistence.ReviewRepository;
+import com.micro.core.review.persistence.ReviewStatsRepository;
+import com.micro.core.review.services.ReviewMapper;
+import com.micro.core.review.services.ReviewServiceImpl;
+import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+// Compares the bounded elastic jdbcScheduler with the virtual thread one under bursts of 1000 and 2000 concurrent
+// getReviews calls. For each scheduler it prints the rejected calls, p50/p99 latency and the virtual threads
+// reported as pinned, the calls go straight to the service so the numbers are not hidden behind HTTP.
+// Run with: ./gradlew :microservices:review-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+    "eureka.client.enabled=false",
+    "app.virtualThreads=true",
+    "logging.level.com.micro=WARN" })
+class JdbcSchedulerBenchmark extends PostgresTestBase {
+  private static final int PRODUCTS = 100;
+  private static final int REVIEWS_PER_PRODUCT = 10;
+  private static final int WARMUP_ROUNDS = 6;
+  private static final int ROUNDS = 5;
+
+  @Autowired
+  private ReviewRepository repository;
+
+  @Autowired
+  private ReviewStatsRepository statsRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private ReviewMapper mapper;
+
+  @Autowired
+  private ServiceUtil serviceUtil;
+
+  @Autowired
+  private ReviewIdAllocator idAllocator;
+
+  @Autowired
+  private VirtualThreadPinningMonitor pinningMonitor;
+
+  @Autowired
+  @Qualifier("messageProcessor")
+  private Consumer<Event<Integer, Review>> messageProcessor;
+
+  private Scheduler boundedElastic;
+  private Scheduler virtual;
+
+  @BeforeAll
+  void seed() {
+    for (int productId = 1; productId <= PRODUCTS; productId++) {
+      messageProcessor.accept(new Event<Integer, Review>(DELETE, productId, null));
+      List<Review> reviews = new ArrayList<>();
+      for (int reviewId = 1; reviewId <= REVIEWS_PER_PRODUCT; reviewId++) {
+        reviews.add(new Review(productId, reviewId, "author", "subject", "content", null));
+      }
+      messageProcessor.accept(Event.bulkCreate(productId, reviews));
+    }
+
+    boundedElastic = Schedulers.newBoundedElastic(10, 100, "jdbc-pool-bench");
+    virtual = Schedulers.fromExecutorService(new BoundedVirtualThreadExecutor("jdbc-vt-bench-", 10), "jdbc-vt-bench");
+  }
+
+  @AfterAll
+  void disposeSchedulers() {
+    boundedElastic.dispose();
+    virtual.dispose();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1_000, 2_000 })
+  void boundedElastic(int concurrentCalls) {
+    measure("bounded-elastic", boundedElastic, concurrentCalls);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1_000, 2_000 })
+  void virtualThreads(int concurrentCalls) {
+    measure("virtual", virtual, concurrentCalls);
+  }
+
+  private void measure(String name, Scheduler scheduler, int concurrentCalls) {
+    ReviewServiceImpl service = new ReviewServiceImpl(repository, statsRepository, transactionTemplate, mapper,
+        serviceUtil, scheduler, idAllocator, DuplicatePolicy.REJECT);
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      burst(service, concurrentCalls, new AtomicInteger(), new AtomicInteger());
+    }
+
+    double pinnedBefore = pinningMonitor.getPinnedCount();
+    AtomicInteger rejected = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    long[] latencies = new long[0];
+    for (int i = 0; i < ROUNDS; i++) {
+      long[] round = burst(service, concurrentCalls, rejected, failed);
+      long[] merged = Arrays.copyOf(latencies, latencies.length + round.length);
+      System.arraycopy(round, 0, merged, latencies.length, round.length);
+      latencies = merged;
+    }
+    Arrays.sort(latencies);
+
+    System.out.printf("scheduler=%-15s concurrent %-4d calls %d, rejected %d, other errors %d, p50 %7.2f ms, "
+        + "p99 %7.2f ms, pinned %.0f%n", name, concurrentCalls, ROUNDS * concurrentCalls, rejected.get(), failed.get(),
+        millis(percentile(latencies, 50)), millis(percentile(latencies, 99)),
+        pinningMonitor.getPinnedCount() - pinnedBefore);
+  }
+
+  // Starts all calls at once and returns the latency of each successful one in nanos
+  private long[] burst(ReviewServiceImpl service, int concurrentCalls, AtomicInteger rejected,
+      AtomicInteger failed) {
+    return Flux.range(0, concurrentCalls)
+        .flatMap(i -> timedGet(service, 1 + i % PRODUCTS, rejected, failed), concurrentCalls)
+        .collectList()
+        .block(Duration.ofMinutes(5))
+        .stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private Mono<Long> timedGet(ReviewServiceImpl service, int productId, AtomicInteger rejected,
+      AtomicInteger failed) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return service.getReviews(productId).collectList()
+          .map(reviews -> System.nanoTime() - start)
+          .onErrorResume(ex -> {
+            if (ex instanceof RejectedExecutionException || ex.getCause() instanceof RejectedExecutionException) {
+              rejected.incrementAndGet();
+            } else {
+              failed.incrementAndGet();
+            }
+            return Mono.empty();
+          });
+    });
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
@@ -0,0 +1,9 @@
+package com.micro.core.review;
+
+class JpaReviewLoadBenchmark extends ReviewLoadBenchmark {
+
+  @Override
+  String mode() {
+    return "jpa";
+  }
+}
@@ -63,6 +63,16 @@ public class PersistenceTests extends PostgresTestBase {
     assertFalse(repository.existsById(savedEntity.getId()));
   }
 
+  @Test
+  void bulkDeleteByProductId() {
+    repository.saveAll(List.of(new ReviewEntity(1, 3, "a", "s", "c"), new ReviewEntity(1, 4, "a", "s", "c"),
+        new ReviewEntity(2, 1, "a", "s", "c")));
+
+    assertEquals(3, repository.deleteAllByProductIdInBulk(1));
+    assertThat(repository.findByProductId(1), hasSize(0));
+    assertThat(repository.findByProductId(2), hasSize(1));
+  }
+
   @Test
   void findByProductId() {
     List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
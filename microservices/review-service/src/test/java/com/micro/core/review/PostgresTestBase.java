@@ -18,5 +18,9 @@ public abstract class PostgresTestBase {
     register.add("spring.datasource.url", database::getJdbcUrl);
     register.add("spring.datasource.username", database::getUsername);
     register.add("spring.datasource.password", database::getPassword);
+    register.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + database.getHost() + ":"
+        + database.getFirstMappedPort() + "/" + database.getDatabaseName());
+    register.add("spring.r2dbc.username", database::getUsername);
+    register.add("spring.r2dbc.password", database::getPassword);
   }
 }
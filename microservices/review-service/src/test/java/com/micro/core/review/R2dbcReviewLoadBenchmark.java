@@ -0,0 +1,12 @@
+package com.micro.core.review;
+
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("r2dbc")
+class R2dbcReviewLoadBenchmark extends ReviewLoadBenchmark {
+
+  @Override
+  String mode() {
+    return "r2dbc";
+  }
+}
@@ -0,0 +1,245 @@
+package com.micro.core.review;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static com.micro.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.api.exceptions.InvalidInputException;
+import com.micro.core.review.persistence.ReactiveReviewEntity;
+import com.micro.core.review.persistence.ReactiveReviewRepository;
+import com.micro.core.review.persistence.ReactiveReviewStatsRepository;
+import com.micro.core.review.persistence.ReviewIdAllocator;
+import com.micro.core.review.services.ReactiveReviewServiceImpl;
+import com.micro.core.review.services.ReviewMapper;
+import com.micro.core.review.services.ReviewStatsRepair;
+import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import reactor.test.StepVerifier;
+
+@ActiveProfiles("r2dbc")
+// The startup repair would run next to the first test and race its cleanup
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "app.stats.repairOnStartup=false" })
+class ReactiveReviewServiceTests extends PostgresTestBase {
+
+  @Autowired
+  WebTestClient client;
+  @Autowired
+  ReactiveReviewRepository repository;
+  @Autowired
+  ReactiveReviewStatsRepository statsRepository;
+  @Autowired
+  ReviewStatsRepair statsRepair;
+  @Autowired
+  ReviewIdAllocator idAllocator;
+  @Autowired
+  TransactionalOperator transactionalOperator;
+  @Autowired
+  ReviewMapper mapper;
+  @Autowired
+  ServiceUtil serviceUtil;
+  @Autowired
+  @Qualifier("messageProcessor")
+  private Consumer<Event<Integer, Review>> messageProcessor;
+
+  @BeforeEach
+  void setDb() {
+    StepVerifier.create(repository.deleteAll()).verifyComplete();
+    StepVerifier.create(statsRepository.deleteAll()).verifyComplete();
+  }
+
+  @Test
+  void getReviewsByProductId() {
+    int productId = 1;
+
+    sendCreateMessage(productId, 1);
+    sendCreateMessage(productId, 2);
+    sendCreateMessage(2, 1);
+
+    assertEquals(2, repository.findByProductId(productId).count().block());
+
+    client.get().uri("/review?productId=" + productId).accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].productId").isEqualTo(productId);
+
+    client.get().uri("/review?productIds=1,2").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$.length()").isEqualTo(3);
+  }
+
+  @Test
+  void getReviewsByPage() {
+    int productId = 1;
+
+    for (int reviewId = 1; reviewId <= 3; reviewId++) {
+      sendCreateMessage(productId, reviewId);
+    }
+
+    client.get().uri("/review?productId=" + productId + "&limit=2").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[1].reviewId").isEqualTo(2);
+
+    client.get().uri("/review?productId=" + productId + "&limit=2&after=2").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].reviewId").isEqualTo(3);
+  }
+
+  @Test
+  void bulkCreateAndDeleteReviews() {
+    int productId = 1;
+
+    List<Review> reviews = List.of(
+        new Review(productId, 1, "a", "s", "c", null),
+        new Review(productId, 2, "a", "s", "c", null),
+        new Review(productId, 3, "a", "s", "c", null));
+    messageProcessor.accept(Event.bulkCreate(productId, reviews));
+    assertEquals(3, repository.findByProductId(productId).count().block());
+
+    messageProcessor.accept(new Event<Integer, Review>(DELETE, productId, null));
+    assertEquals(0, repository.findByProductId(productId).count().block());
+  }
+
+  @Test
+  void reviewStatsFollowEvents() {
+    sendCreateMessage(1, 1);
+    messageProcessor.accept(Event.bulkCreate(1, List.of(
+        new Review(1, 2, "a", "s", "c", null),
+        new Review(1, 3, "a", "s", "c", null))));
+    sendCreateMessage(2, 1);
+    assertThrows(InvalidInputException.class, () -> sendCreateMessage(2, 1));
+
+    client.get().uri("/review/stats?productIds=1,2,3").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$[0].count").isEqualTo(3)
+        .jsonPath("$[1].count").isEqualTo(1)
+        .jsonPath("$[2].count").isEqualTo(0);
+
+    messageProcessor.accept(new Event<Integer, Review>(DELETE, 1, null));
+    StepVerifier.create(statsRepository.increment(7, 1)).expectNext(1).verifyComplete();
+
+    assertEquals(1, statsRepair.repairStats().block());
+
+    client.get().uri("/review/stats?productIds=1,2,7").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$[0].count").isEqualTo(0)
+        .jsonPath("$[1].count").isEqualTo(1)
+        .jsonPath("$[2].count").isEqualTo(0);
+  }
+
+  @Test
+  void duplicateKey() {
+    int productId = 1;
+    int reviewId = 1;
+
+    sendCreateMessage(productId, reviewId);
+
+    InvalidInputException thrown = assertThrows(InvalidInputException.class,
+        () -> sendCreateMessage(productId, reviewId), "Except to throw invalid input exception");
+
+    assertEquals("Duplicate key, for prodcut id: " + productId, thrown.getMessage());
+    assertEquals(1, repository.count().block());
+  }
+
+  @Test
+  void duplicateIsIgnored() {
+    sendCreateMessage(1, 1);
+
+    StepVerifier.create(service(DuplicatePolicy.IGNORE).createReview(new Review(1, 1, null, "other", "other", null)))
+        .expectNextCount(1).verifyComplete();
+
+    assertEquals("s", repository.findByProductId(1).blockFirst().getSubject());
+    assertEquals(1, statsRepository.findById(1).block().getReviewCount());
+  }
+
+  @Test
+  void duplicateIsOverwritten() {
+    sendCreateMessage(1, 1);
+
+    service(DuplicatePolicy.OVERWRITE).createReview(new Review(1, 1, null, "other", "other", null)).block();
+
+    ReactiveReviewEntity overwritten = repository.findByProductId(1).blockFirst();
+    assertEquals("other", overwritten.getSubject());
+    assertNull(overwritten.getAuthor());
+    assertEquals(1, overwritten.getVersion());
+    assertEquals(1, statsRepository.findById(1).block().getReviewCount());
+  }
+
+  @Test
+  void redeliveredEventIsAppliedOnce() {
+    Event<Integer, Review> event = new Event<>(CREATE, 1, new Review(1, 1, "a", "s", "c", null));
+
+    messageProcessor.accept(event);
+    messageProcessor.accept(event);
+
+    assertEquals(1, repository.count().block());
+    assertEquals(1, statsRepository.findById(1).block().getReviewCount());
+  }
+
+  @Test
+  void duplicateKeyRollsBackBulkCreate() {
+    int productId = 1;
+
+    sendCreateMessage(productId, 2);
+
+    List<Review> reviews = List.of(
+        new Review(productId, 1, "a", "s", "c", null),
+        new Review(productId, 2, "a", "s", "c", null));
+    assertThrows(InvalidInputException.class, () -> messageProcessor.accept(Event.bulkCreate(productId, reviews)));
+
+    assertEquals(1, repository.count().block());
+  }
+
+  @Test
+  void redeliveredBulkCreateInsertsTheMissingReviews() {
+    messageProcessor.accept(Event.bulkCreate(1, List.of(
+        new Review(1, 1, "a", "s", "c", null),
+        new Review(1, 2, "a", "s", "c", null))));
+
+    List<Review> reviews = List.of(
+        new Review(1, 1, "a", "other", "c", null),
+        new Review(1, 2, "a", "other", "c", null),
+        new Review(1, 3, "a", "s", "c", null));
+    StepVerifier.create(service(DuplicatePolicy.IGNORE).createReviews(reviews)).expectNextCount(3).verifyComplete();
+    assertEquals(3, repository.count().block());
+    assertEquals(3, statsRepository.findById(1).block().getReviewCount());
+
+    StepVerifier.create(service(DuplicatePolicy.OVERWRITE).createReviews(reviews)).expectNextCount(3)
+        .verifyComplete();
+    assertEquals(2, repository.findByProductId(1).filter(r -> r.getSubject().equals("other")).count().block());
+    assertEquals(3, statsRepository.findById(1).block().getReviewCount());
+  }
+
+  private ReactiveReviewServiceImpl service(DuplicatePolicy duplicatePolicy) {
+    return new ReactiveReviewServiceImpl(repository, statsRepository, idAllocator, transactionalOperator, mapper,
+        serviceUtil, duplicatePolicy);
+  }
+
+  private void sendCreateMessage(int productId, int reviewId) {
+    Review review = new Review(productId, reviewId, "a", "s", "c", null);
+    messageProcessor.accept(new Event<Integer, Review>(CREATE, productId, review));
+  }
+}
@@ -0,0 +1,122 @@
+package com.micro.core.review;
+
+import static com.micro.api.event.Event.Type.DELETE;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Load test for the review reads, run once per persistence mode by JpaReviewLoadBenchmark and
+// R2dbcReviewLoadBenchmark. For each concurrency level it prints throughput and p50/p99 latency of
+// GET /review?productId over real HTTP, the highest throughput of the levels is the max throughput of the mode.
+// Run with: ./gradlew :microservices:review-service:benchmark
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "logging.level.com.micro=WARN" })
+abstract class ReviewLoadBenchmark extends PostgresTestBase {
+  private static final int PRODUCTS = 100;
+  private static final int REVIEWS_PER_PRODUCT = 10;
+  private static final int WARMUP_REQUESTS = 2_000;
+  private static final int REQUESTS = 10_000;
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  @Qualifier("messageProcessor")
+  private Consumer<Event<Integer, Review>> messageProcessor;
+
+  private WebClient client;
+  private final AtomicInteger errors = new AtomicInteger();
+
+  abstract String mode();
+
+  @BeforeAll
+  void seed() {
+    client = WebClient.builder().baseUrl("http://localhost:" + port).build();
+
+    for (int productId = 1; productId <= PRODUCTS; productId++) {
+      messageProcessor.accept(new Event<Integer, Review>(DELETE, productId, null));
+      List<Review> reviews = new ArrayList<>();
+      for (int reviewId = 1; reviewId <= REVIEWS_PER_PRODUCT; reviewId++) {
+        reviews.add(new Review(productId, reviewId, "author", "subject", "content", null));
+      }
+      messageProcessor.accept(Event.bulkCreate(productId, reviews));
+    }
+
+    run(WARMUP_REQUESTS, 50);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1, 10, 50, 200 })
+  void getReviews(int concurrency) {
+    long[] latencies = run(REQUESTS, concurrency);
+    long totalNanos = latencies[latencies.length - 1];
+    long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+    Arrays.sort(sorted);
+
+    System.out.printf("mode=%-5s concurrency=%-4d throughput %8.0f req/s, p50 %7.2f ms, p99 %7.2f ms, errors %d%n",
+        mode(), concurrency, REQUESTS / (totalNanos / 1e9), millis(percentile(sorted, 50)),
+        millis(percentile(sorted, 99)), errors.get());
+  }
+
+  // Returns the latency of every request followed by the wall time of the whole run, all in nanos
+  private long[] run(int requests, int concurrency) {
+    errors.set(0);
+    long[] latencies = new long[requests + 1];
+    AtomicInteger index = new AtomicInteger();
+
+    long start = System.nanoTime();
+    Flux.range(0, requests)
+        .flatMap(i -> timedGet(1 + i % PRODUCTS)
+            .doOnNext(nanos -> latencies[index.getAndIncrement()] = nanos), concurrency)
+        .blockLast(Duration.ofMinutes(5));
+    latencies[requests] = System.nanoTime() - start;
+    return latencies;
+  }
+
+  private Mono<Long> timedGet(int productId) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return client.get().uri("/review?productId={productId}", productId)
+          .retrieve().bodyToMono(String.class)
+          .map(body -> System.nanoTime() - start)
+          .onErrorResume(ex -> {
+            errors.incrementAndGet();
+            return Mono.just(System.nanoTime() - start);
+          });
+    });
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
@@ -3,13 +3,16 @@ package com.micro.core.review;
 import static com.micro.api.event.Event.Type.CREATE;
 import static com.micro.api.event.Event.Type.DELETE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -19,13 +22,27 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.micro.api.core.review.Review;
 import com.micro.api.event.Event;
 import com.micro.api.exceptions.InvalidInputException;
+import com.micro.core.review.persistence.ReviewEntity;
+import com.micro.core.review.persistence.ReviewIdAllocator;
 import com.micro.core.review.persistence.ReviewRepository;
-
-@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "eureka.client.enabled=false")
+import com.micro.core.review.persistence.ReviewStatsRepository;
+import com.micro.core.review.services.ReviewMapper;
+import com.micro.core.review.services.ReviewServiceImpl;
+import com.micro.core.review.services.ReviewStatsRepair;
+import com.micro.util.http.ServiceUtil;
+import com.micro.util.persistence.DuplicatePolicy;
+
+import reactor.core.scheduler.Scheduler;
+
+// The startup repair would run next to the first test and race its cleanup
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "eureka.client.enabled=false",
+    "app.stats.repairOnStartup=false" })
 class ReviewServiceApplicationTests extends PostgresTestBase {
 
   @Autowired
@@ -33,12 +50,28 @@ class ReviewServiceApplicationTests extends PostgresTestBase {
   @Autowired
   ReviewRepository repository;
   @Autowired
+  ReviewStatsRepository statsRepository;
+  @Autowired
+  ReviewStatsRepair statsRepair;
+  @Autowired
+  TransactionTemplate transactionTemplate;
+  @Autowired
+  ReviewMapper mapper;
+  @Autowired
+  ServiceUtil serviceUtil;
+  @Autowired
+  @Qualifier("jdbcScheduler")
+  Scheduler jdbcScheduler;
+  @Autowired
+  ReviewIdAllocator idAllocator;
+  @Autowired
   @Qualifier("messageProcessor")
   private Consumer<Event<Integer, Review>> messageProcessor;
 
   @BeforeEach
   void setDb() {
     repository.deleteAll();
+    statsRepository.deleteAll();
   }
 
   @Test
@@ -56,6 +89,73 @@ class ReviewServiceApplicationTests extends PostgresTestBase {
         .jsonPath("$[0].productId").isEqualTo(productId);
   }
 
+  @Test
+  void getReviewsAsNdjson() {
+    int productId = 1;
+
+    sendCreateMessage(productId, 1);
+    sendCreateMessage(productId, 2);
+    sendCreateMessage(productId, 3);
+
+    client.get()
+        .uri("/review?productId=" + productId)
+        .accept(APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isEqualTo(OK)
+        .expectHeader().contentType(APPLICATION_NDJSON)
+        .expectBodyList(Review.class).hasSize(3);
+  }
+
+  @Test
+  void getReviewsByPage() {
+    int productId = 1;
+
+    for (int reviewId = 1; reviewId <= 5; reviewId++) {
+      sendCreateMessage(productId, reviewId);
+    }
+    sendCreateMessage(2, 1);
+
+    getAndVerifyReview("?productId=" + productId + "&limit=2", OK)
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].reviewId").isEqualTo(1)
+        .jsonPath("$[1].reviewId").isEqualTo(2);
+
+    getAndVerifyReview("?productId=" + productId + "&limit=2&after=2", OK)
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].reviewId").isEqualTo(3)
+        .jsonPath("$[1].reviewId").isEqualTo(4);
+
+    getAndVerifyReview("?productId=" + productId + "&limit=2&after=4", OK)
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].reviewId").isEqualTo(5);
+
+    getAndVerifyReview("?productId=" + productId + "&limit=0", UNPROCESSABLE_ENTITY);
+  }
+
+  @Test
+  void getReviewsByProductIds() {
+    sendCreateMessage(1, 1);
+    sendCreateMessage(1, 2);
+    sendCreateMessage(2, 1);
+    sendCreateMessage(3, 1);
+
+    getAndVerifyReview("?productIds=1,2", OK)
+        .jsonPath("$.length()").isEqualTo(3);
+  }
+
+  @Test
+  void bulkCreateReviews() {
+    int productId = 1;
+
+    List<Review> reviews = List.of(
+        new Review(productId, 1, "a", "s", "c", null),
+        new Review(productId, 2, "a", "s", "c", null),
+        new Review(productId, 3, "a", "s", "c", null));
+    messageProcessor.accept(Event.bulkCreate(productId, reviews));
+
+    assertEquals(3, repository.findByProductId(productId).size());
+  }
+
   @Test
   void duplicateKey() {
     int productId = 1;
@@ -73,6 +173,68 @@ class ReviewServiceApplicationTests extends PostgresTestBase {
     assertEquals(1, repository.count());
   }
 
+  @Test
+  void duplicateIsIgnored() {
+    sendCreateMessage(1, 1);
+
+    Review duplicate = new Review(1, 1, null, "other", "other", null);
+    assertEquals("other", service(DuplicatePolicy.IGNORE).createReview(duplicate).block().getSubject());
+
+    assertEquals("s", repository.findByProductId(1).get(0).getSubject());
+    assertEquals(1, statsRepository.findById(1).get().getReviewCount());
+  }
+
+  @Test
+  void duplicateIsOverwritten() {
+    sendCreateMessage(1, 1);
+
+    service(DuplicatePolicy.OVERWRITE).createReview(new Review(1, 1, null, "other", "other", null)).block();
+    service(DuplicatePolicy.OVERWRITE).createReview(new Review(1, 2, "a", "s", "c", null)).block();
+
+    ReviewEntity overwritten = repository.findByProductId(1).stream().filter(r -> r.getReviewId() == 1).findFirst()
+        .get();
+    assertEquals("other", overwritten.getSubject());
+    assertNull(overwritten.getAuthor());
+    assertEquals(1, overwritten.getVersion());
+    assertEquals(2, statsRepository.findById(1).get().getReviewCount());
+  }
+
+  @Test
+  void redeliveredEventIsAppliedOnce() {
+    Event<Integer, Review> event = new Event<>(CREATE, 1, new Review(1, 1, "a", "s", "c", null));
+
+    messageProcessor.accept(event);
+    messageProcessor.accept(event);
+
+    assertEquals(1, repository.count());
+    assertEquals(1, statsRepository.findById(1).get().getReviewCount());
+  }
+
+  // The first reviews of the bulk were written before, the redelivery writes the rest and counts only those
+  @Test
+  void redeliveredBulkCreateInsertsTheMissingReviews() {
+    messageProcessor.accept(Event.bulkCreate(1, List.of(
+        new Review(1, 1, "a", "s", "c", null),
+        new Review(1, 2, "a", "s", "c", null))));
+
+    List<Review> reviews = List.of(
+        new Review(1, 1, "a", "other", "c", null),
+        new Review(1, 2, "a", "other", "c", null),
+        new Review(1, 3, "a", "s", "c", null));
+    assertThrows(InvalidInputException.class, () -> messageProcessor.accept(Event.bulkCreate(1, reviews)));
+    assertEquals(2, repository.count());
+
+    assertEquals(3, service(DuplicatePolicy.IGNORE).createReviews(reviews).count().block());
+    assertEquals(3, repository.count());
+    assertEquals("s", repository.findByProductId(1).get(0).getSubject());
+    assertEquals(3, statsRepository.findById(1).get().getReviewCount());
+
+    service(DuplicatePolicy.OVERWRITE).createReviews(reviews).blockLast();
+    assertEquals(3, repository.count());
+    assertEquals(2, repository.findByProductId(1).stream().filter(r -> r.getSubject().equals("other")).count());
+    assertEquals(3, statsRepository.findById(1).get().getReviewCount());
+  }
+
   @Test
   void deleteReviews() {
     int prodcutId = 1;
@@ -87,6 +249,43 @@ class ReviewServiceApplicationTests extends PostgresTestBase {
     sendDeleteMessage(reviewId);
   }
 
+  @Test
+  void reviewStatsFollowEvents() {
+    sendCreateMessage(1, 1);
+    messageProcessor.accept(Event.bulkCreate(1, List.of(
+        new Review(1, 2, "a", "s", "c", null),
+        new Review(1, 3, "a", "s", "c", null))));
+    sendCreateMessage(2, 1);
+    assertThrows(InvalidInputException.class, () -> sendCreateMessage(2, 1));
+
+    client.get().uri("/review/stats?productIds=1,2,3").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$.length()").isEqualTo(3)
+        .jsonPath("$[0].count").isEqualTo(3)
+        .jsonPath("$[1].count").isEqualTo(1)
+        .jsonPath("$[2].count").isEqualTo(0);
+
+    sendDeleteMessage(1);
+
+    client.get().uri("/review/stats?productIds=1").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$[0].count").isEqualTo(0);
+  }
+
+  @Test
+  void repairRecomputesReviewStats() {
+    sendCreateMessage(1, 1);
+    repository.save(new ReviewEntity(1, 2, "a", "s", "c"));
+    statsRepository.increment(7, 1);
+
+    assertEquals(1, statsRepair.repairStats().block());
+
+    client.get().uri("/review/stats?productIds=1,7").accept(APPLICATION_JSON).exchange()
+        .expectStatus().isEqualTo(OK).expectBody()
+        .jsonPath("$[0].count").isEqualTo(2)
+        .jsonPath("$[1].count").isEqualTo(0);
+  }
+
   @Test
   void getReviewsInvalidProductId() {
     int productId = -1;
@@ -132,6 +331,11 @@ class ReviewServiceApplicationTests extends PostgresTestBase {
         .expectBody();
   }
 
+  private ReviewServiceImpl service(DuplicatePolicy duplicatePolicy) {
+    return new ReviewServiceImpl(repository, statsRepository, transactionTemplate, mapper, serviceUtil, jdbcScheduler,
+        idAllocator, duplicatePolicy);
+  }
+
   private void sendCreateMessage(int productId, int reviewId) {
     Review review = new Review(productId, reviewId, "a", "s", "c", null);
     Event<Integer, Review> event = new Event<Integer, Review>(CREATE, review.getProductId(), review);
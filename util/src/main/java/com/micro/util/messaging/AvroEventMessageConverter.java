@@ -0,0 +1,245 @@
+package com.micro.util.messaging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.recommendation.Recommendation;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+import com.micro.util.messaging.EventSchemaRegistry.SubjectVersion;
+
+/**
+ * Writes and reads events as Avro binary for the application/vnd.&lt;subject&gt;.v&lt;version&gt;+avro content types,
+ * next to the JSON converter of Spring Cloud Stream. A message carries no field names and no type information, only
+ * the values in the order of the schema named by its content type, the creation date as microseconds since the
+ * epoch plus its zone.
+ *
+ * An event is written with the version its binding's content type names, and read with the version its message
+ * names resolved to the latest version of the subject, so producers and consumers can be upgraded one at a time.
+ * Consumers pick the converter from the content type of each message, they read JSON and binary events side by side
+ * while the producers are switched.
+ */
+public class AvroEventMessageConverter extends AbstractMessageConverter {
+  private final EventSchemaRegistry registry;
+  private final Map<String, Payload<?>> payloads = Map.of(
+      "product-event", new Payload<>(AvroEventMessageConverter::productRecord, AvroEventMessageConverter::product),
+      "recommendation-event", new Payload<>(AvroEventMessageConverter::recommendationRecord,
+          AvroEventMessageConverter::recommendation),
+      "review-event", new Payload<>(AvroEventMessageConverter::reviewRecord, AvroEventMessageConverter::review));
+  private final Map<Schema, DatumWriter<GenericRecord>> writers = new ConcurrentHashMap<>();
+  private final Map<List<Schema>, DatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+  private final Map<MimeType, SubjectVersion> contentTypes = new ConcurrentHashMap<>();
+
+  public AvroEventMessageConverter(EventSchemaRegistry registry) {
+    super(new MimeType("application", "*+avro"));
+    this.registry = registry;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return Event.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  protected boolean supportsMimeType(MessageHeaders headers) {
+    MimeType contentType = getMimeType(headers);
+    return contentType != null && subjectVersion(contentType) != null;
+  }
+
+  @Override
+  protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+    SubjectVersion target = subjectVersion(getMimeType(headers));
+    try {
+      Schema schema = registry.schema(target.getSubject(), target.getVersion());
+      GenericRecord record = eventRecord((Event<?, ?>) payload, schema, payload(target.getSubject()));
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      writers.computeIfAbsent(schema, GenericDatumWriter::new).write(record, encoder);
+      encoder.flush();
+      return out.toByteArray();
+    } catch (IOException | RuntimeException ex) {
+      throw new MessageConversionException("Cannot write an event as " + getMimeType(headers), ex);
+    }
+  }
+
+  @Override
+  protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+    if (!(message.getPayload() instanceof byte[] bytes)) {
+      return null;
+    }
+    SubjectVersion source = subjectVersion(getMimeType(message.getHeaders()));
+    try {
+      List<Schema> writerAndReader = List.of(registry.schema(source.getSubject(), source.getVersion()),
+          registry.latest(source.getSubject()));
+      GenericRecord record = readers
+          .computeIfAbsent(writerAndReader, schemas -> new GenericDatumReader<>(schemas.get(0), schemas.get(1)))
+          .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+      return event(record, payload(source.getSubject()));
+    } catch (IOException | RuntimeException ex) {
+      throw new MessageConversionException(message, "Cannot read an event of " + getMimeType(message.getHeaders()),
+          ex);
+    }
+  }
+
+  // Every message of a binding has the same content type, parsed once
+  private SubjectVersion subjectVersion(MimeType contentType) {
+    return contentTypes.computeIfAbsent(contentType, EventSchemaRegistry::parse);
+  }
+
+  private Payload<?> payload(String subject) {
+    Payload<?> payload = payloads.get(subject);
+    if (payload == null) {
+      throw new IllegalArgumentException("No event payload is mapped to " + subject);
+    }
+    return payload;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> GenericRecord eventRecord(Event<?, ?> event, Schema schema, Payload<T> payload) {
+    Schema dataSchema = dataSchema(schema);
+    GenericRecord record = new GenericData.Record(schema);
+    record.put("eventType", new GenericData.EnumSymbol(schema.getField("eventType").schema(),
+        event.getEventType().name()));
+    record.put("key", event.getKey());
+    if (event.getData() != null) {
+      record.put("data", payload.toRecord.apply(dataSchema, (T) event.getData()));
+    }
+    if (event.getBulkData() != null) {
+      record.put("bulkData", ((List<T>) event.getBulkData()).stream()
+          .map(item -> payload.toRecord.apply(dataSchema, item))
+          .toList());
+    }
+    ZonedDateTime creationDate = event.getCreationDate();
+    record.put("creationDate", ChronoUnit.MICROS.between(Instant.EPOCH, creationDate.toInstant()));
+    record.put("creationZone", creationDate.getZone().getId());
+    if (event.getEventId() != null) {
+      put(record, "eventId", event.getEventId().toString());
+    }
+    return record;
+  }
+
+  private static <T> Event<Integer, T> event(GenericRecord record, Payload<T> payload) {
+    GenericRecord data = (GenericRecord) record.get("data");
+    List<?> bulkData = (List<?>) record.get("bulkData");
+    ZonedDateTime creationDate = Instant.EPOCH.plus((Long) record.get("creationDate"), ChronoUnit.MICROS)
+        .atZone(ZoneId.of(record.get("creationZone").toString()));
+
+    String eventId = string(record, "eventId");
+
+    return new Event<>(
+        eventId == null ? null : UUID.fromString(eventId),
+        Event.Type.valueOf(record.get("eventType").toString()),
+        (Integer) record.get("key"),
+        data == null ? null : payload.fromRecord.apply(data),
+        bulkData == null ? null : bulkData.stream().map(item -> payload.fromRecord.apply((GenericRecord) item)).toList(),
+        creationDate);
+  }
+
+  // The non null branch of the data union, the record of the payload
+  private static Schema dataSchema(Schema eventSchema) {
+    for (Schema branch : eventSchema.getField("data").schema().getTypes()) {
+      if (branch.getType() == Schema.Type.RECORD) {
+        return branch;
+      }
+    }
+    throw new IllegalArgumentException(eventSchema.getFullName() + " has no data record");
+  }
+
+  private static GenericRecord productRecord(Schema schema, Product product) {
+    GenericRecord record = new GenericData.Record(schema);
+    put(record, "productId", product.getProductId());
+    put(record, "name", product.getName());
+    put(record, "weight", product.getWeight());
+    put(record, "serviceAddress", product.getServiceAddress());
+    return record;
+  }
+
+  private static Product product(GenericRecord record) {
+    return new Product((Integer) record.get("productId"), string(record, "name"), (Integer) record.get("weight"),
+        string(record, "serviceAddress"));
+  }
+
+  private static GenericRecord recommendationRecord(Schema schema, Recommendation recommendation) {
+    GenericRecord record = new GenericData.Record(schema);
+    put(record, "productId", recommendation.getProductId());
+    put(record, "recommendationId", recommendation.getRecommendationId());
+    put(record, "author", recommendation.getAuthor());
+    put(record, "rate", recommendation.getRate());
+    put(record, "content", recommendation.getContent());
+    put(record, "serviceAddress", recommendation.getServiceAddress());
+    return record;
+  }
+
+  private static Recommendation recommendation(GenericRecord record) {
+    return new Recommendation((Integer) record.get("productId"), (Integer) record.get("recommendationId"),
+        string(record, "author"), (Integer) record.get("rate"), string(record, "content"),
+        string(record, "serviceAddress"));
+  }
+
+  private static GenericRecord reviewRecord(Schema schema, Review review) {
+    GenericRecord record = new GenericData.Record(schema);
+    put(record, "productId", review.getProductId());
+    put(record, "reviewId", review.getReviewId());
+    put(record, "author", review.getAuthor());
+    put(record, "subject", review.getSubject());
+    put(record, "content", review.getContent());
+    put(record, "serviceAddress", review.getServiceAddress());
+    return record;
+  }
+
+  private static Review review(GenericRecord record) {
+    return new Review((Integer) record.get("productId"), (Integer) record.get("reviewId"), string(record, "author"),
+        string(record, "subject"), string(record, "content"), string(record, "serviceAddress"));
+  }
+
+  // An older version of a schema may not have every field yet
+  private static void put(GenericRecord record, String field, Object value) {
+    if (record.getSchema().getField(field) != null) {
+      record.put(field, value);
+    }
+  }
+
+  // Avro reads strings as Utf8, a field missing from the schema reads as null
+  private static String string(GenericRecord record, String field) {
+    Object value = record.getSchema().getField(field) == null ? null : record.get(field);
+    return value == null ? null : value.toString();
+  }
+
+  private static class Payload<T> {
+    private final BiFunction<Schema, T, GenericRecord> toRecord;
+    private final Function<GenericRecord, T> fromRecord;
+
+    Payload(BiFunction<Schema, T, GenericRecord> toRecord, Function<GenericRecord, T> fromRecord) {
+      this.toRecord = toRecord;
+      this.fromRecord = fromRecord;
+    }
+  }
+}
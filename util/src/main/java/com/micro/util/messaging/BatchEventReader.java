@@ -0,0 +1,76 @@
+package com.micro.util.messaging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.api.event.Event;
+
+/**
+ * Reads the events of a batch binding, each record with the content type of its own record. Spring Cloud Stream
+ * converts every record of a batch with the content type of the batch, which is the binding's, and drops the
+ * records that do not convert, so Avro events would be lost among JSON ones. The batch consumers therefore bind the
+ * raw records as a Message&lt;?&gt; and read them here, a record is read as Avro when its content type names an event
+ * schema and as JSON otherwise.
+ *
+ * The content type of each record comes from the kafka_batchConvertedHeaders, without them every record is read
+ * with the content type of the batch. A record that cannot be read is logged and skipped, it is not redelivered.
+ */
+public class BatchEventReader {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchEventReader.class);
+
+  private final AvroEventMessageConverter avroConverter;
+  private final ObjectMapper mapper;
+
+  public BatchEventReader(AvroEventMessageConverter avroConverter, ObjectMapper mapper) {
+    this.avroConverter = avroConverter;
+    this.mapper = mapper;
+  }
+
+  public <T> List<Event<Integer, T>> events(Message<?> batch, Class<T> dataType) {
+    List<?> records = (List<?>) batch.getPayload();
+    List<?> recordHeaders = batch.getHeaders().get(KafkaHeaders.BATCH_CONVERTED_HEADERS, List.class);
+    JavaType eventType = mapper.getTypeFactory().constructParametricType(Event.class, Integer.class, dataType);
+
+    List<Event<Integer, T>> events = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      Object contentType = recordHeaders == null
+          ? batch.getHeaders().get(MessageHeaders.CONTENT_TYPE)
+          : ((Map<?, ?>) recordHeaders.get(i)).get(MessageHeaders.CONTENT_TYPE);
+      Event<Integer, T> event = event(records.get(i), contentType, eventType);
+      if (event != null) {
+        events.add(event);
+      }
+    }
+    return events;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Event<Integer, T> event(Object record, Object contentType, JavaType eventType) {
+    try {
+      if (contentType != null) {
+        Object event = avroConverter.fromMessage(
+            MessageBuilder.withPayload(record).setHeader(MessageHeaders.CONTENT_TYPE, contentType).build(),
+            Event.class);
+        if (event != null) {
+          return (Event<Integer, T>) event;
+        }
+      }
+      return record instanceof byte[] bytes ? mapper.readValue(bytes, eventType)
+          : mapper.readValue(record.toString(), eventType);
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("Skipping a batch record of content type {} that cannot be read: {}", contentType, ex.toString());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.micro.util.messaging;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.micro.api.event.Event;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies each event at most once per eventId, so a message delivered again by the broker, by a retry after the
+ * event was written or by a consumer that took over the partition after a rebalance is acknowledged without touching
+ * the database again.
+ *
+ * The ids of the latest {@code capacity} applied events are kept in memory, a redelivery storm is answered by a hash
+ * lookup. An id that is not there, because this instance restarted or another instance applied the event, is looked
+ * up in the ProcessedEventStore, where the id is stored once its event is applied.
+ *
+ * An event that fails is not remembered and is retried as before. Events published before they had an id are
+ * always applied.
+ */
+public class EventDeduplicator {
+  private static final Logger LOG = LoggerFactory.getLogger(EventDeduplicator.class);
+
+  private final ProcessedEventStore store;
+  private final Map<UUID, Boolean> recent;
+
+  public EventDeduplicator(ProcessedEventStore store, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+
+    this.store = store;
+    this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  public <K, T> Mono<Void> applyOnce(Event<K, T> event, Function<Event<K, T>, Mono<Void>> handler) {
+    return Mono.defer(() -> {
+      UUID eventId = event.getEventId();
+      if (eventId == null) {
+        return handler.apply(event);
+      }
+      if (isRecent(eventId)) {
+        LOG.debug("Skipping {} event {} for key {}, already applied", event.getEventType(), eventId, event.getKey());
+        return Mono.empty();
+      }
+
+      return store.processed(List.of(eventId)).hasElements().flatMap(processed -> {
+        if (processed) {
+          LOG.debug("Skipping {} event {} for key {}, already applied", event.getEventType(), eventId,
+              event.getKey());
+          remember(List.of(eventId));
+          return Mono.empty();
+        }
+        return Mono.defer(() -> handler.apply(event)).then(markProcessed(List.of(eventId)));
+      });
+    });
+  }
+
+  // The events of a batch that are not applied yet, in their order, with every id at most once
+  public <K, T> Mono<List<Event<K, T>>> unprocessed(List<Event<K, T>> events) {
+    Set<UUID> unknown = new HashSet<>();
+    for (Event<K, T> event : events) {
+      if (event.getEventId() != null && !isRecent(event.getEventId())) {
+        unknown.add(event.getEventId());
+      }
+    }
+
+    Mono<Set<UUID>> stored = unknown.isEmpty() ? Mono.just(Set.of())
+        : store.processed(unknown).collect(HashSet::new, Set::add);
+    return stored.map(processed -> {
+      remember(processed);
+      Set<UUID> kept = new HashSet<>();
+      List<Event<K, T>> result = new ArrayList<>(events.size());
+      for (Event<K, T> event : events) {
+        UUID eventId = event.getEventId();
+        if (eventId == null || unknown.contains(eventId) && !processed.contains(eventId) && kept.add(eventId)) {
+          result.add(event);
+        }
+      }
+      if (result.size() < events.size()) {
+        LOG.debug("Skipping {} of {} events of the batch, already applied", events.size() - result.size(),
+            events.size());
+      }
+      return result;
+    });
+  }
+
+  public Mono<Void> markProcessed(Collection<UUID> eventIds) {
+    if (eventIds.isEmpty()) {
+      return Mono.empty();
+    }
+    return store.add(eventIds).then(Mono.fromRunnable(() -> remember(eventIds)));
+  }
+
+  private boolean isRecent(UUID eventId) {
+    synchronized (recent) {
+      return recent.get(eventId) != null;
+    }
+  }
+
+  private void remember(Collection<UUID> eventIds) {
+    synchronized (recent) {
+      eventIds.forEach(eventId -> recent.put(eventId, Boolean.TRUE));
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.micro.util.messaging;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import com.micro.api.event.Event;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the reactive event processors of the core services, each service only hands in how it applies an event.
+ *
+ * The processors read the messageProcessor-in-0 binding the blocking consumer uses. The binder retry and DLQ do not
+ * apply to reactive functions, so the processors apply the binding's back off themselves and republish an event that
+ * used up its attempts to the dead letter queue.
+ */
+@Component
+public class EventProcessorFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(EventProcessorFactory.class);
+
+  private final ObjectProvider<StreamBridge> streamBridge;
+  private final int concurrency;
+  private final int maxInFlight;
+  private final int maxAttempts;
+  private final Duration initialBackOff;
+  private final Duration maxBackOff;
+  private final double backOffMultiplier;
+
+  // The stream bridge is looked up when an event is dead lettered, slices like @DataJpaTest run without a binder
+  public EventProcessorFactory(
+      ObjectProvider<StreamBridge> streamBridge,
+      @Value("${app.messaging.concurrency:8}") Integer concurrency,
+      @Value("${app.messaging.maxInFlight:256}") Integer maxInFlight,
+      @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.maxAttempts:3}") Integer maxAttempts,
+      @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffInitialInterval:1000}") Long initialInterval,
+      @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffMaxInterval:10000}") Long maxInterval,
+      @Value("${spring.cloud.stream.bindings.messageProcessor-in-0.consumer.backOffMultiplier:2.0}") Double multiplier) {
+
+    this.streamBridge = streamBridge;
+    this.concurrency = concurrency;
+    this.maxInFlight = maxInFlight;
+    this.maxAttempts = maxAttempts;
+    this.initialBackOff = Duration.ofMillis(initialInterval);
+    this.maxBackOff = Duration.ofMillis(maxInterval);
+    this.backOffMultiplier = multiplier;
+  }
+
+  /**
+   * A function for the messageProcessor binding that acknowledges each Kafka message once its event is processed or
+   * dead lettered, see {@link OrderedCommitConfig}.
+   */
+  public <K, T> Function<Flux<Message<Event<K, T>>>, Mono<Void>> messageProcessor(
+      Function<Event<K, T>, Mono<Void>> handler) {
+
+    LOG.info("Processing events reactively with concurrency {}", concurrency);
+    ReactiveEventProcessor<K, T> processor = eventProcessor(handler, concurrency, maxInFlight);
+    return messages -> processor.process(messages, Message::getPayload, this::acknowledge);
+  }
+
+  public <K, T> ReactiveEventProcessor<K, T> eventProcessor(Function<Event<K, T>, Mono<Void>> handler,
+      int concurrency, int maxInFlight) {
+
+    return new ReactiveEventProcessor<>(
+        handler,
+        (event, ex) -> streamBridge.getObject().send("deadLetters-out-0", MessageBuilder.withPayload(event)
+            .setHeader("x-exception-message", ex.toString()).build()),
+        concurrency, maxInFlight, maxAttempts, initialBackOff, maxBackOff, backOffMultiplier);
+  }
+
+  private void acknowledge(Message<?> message) {
+    Acknowledgment acknowledgment = message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+    if (acknowledgment != null) {
+      acknowledgment.acknowledge();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.micro.util.messaging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.avro.SchemaCompatibility.SchemaCompatibilityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.MimeType;
+
+/**
+ * File based stand-in for a schema registry. The Avro schemas of the events are files named
+ * &lt;subject&gt;.v&lt;version&gt;.avsc, loaded once at startup. A binary message names the subject and version it was
+ * written with in its content type, application/vnd.&lt;subject&gt;.v&lt;version&gt;+avro, so a consumer can read it
+ * with that schema and resolve it to the latest version it knows.
+ *
+ * Every version of a subject must be fully compatible with the latest one: a consumer on the latest version reads
+ * messages still written with an older one, and a consumer not yet upgraded reads messages written with the latest.
+ * A schema that breaks either direction is refused.
+ */
+public class EventSchemaRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(EventSchemaRegistry.class);
+
+  private static final Pattern FILE_NAME = Pattern.compile("(.+)\\.v(\\d+)\\.avsc");
+  private static final Pattern CONTENT_TYPE = Pattern.compile("vnd\\.(.+)\\.v(\\d+)\\+avro");
+
+  private final Map<String, NavigableMap<Integer, Schema>> subjects = new ConcurrentHashMap<>();
+
+  public static EventSchemaRegistry load(ResourcePatternResolver resolver, String location) throws IOException {
+    EventSchemaRegistry registry = new EventSchemaRegistry();
+    for (Resource resource : resolver.getResources(location)) {
+      Matcher name = FILE_NAME.matcher(String.valueOf(resource.getFilename()));
+      if (!name.matches()) {
+        LOG.warn("Skipping {}, schema files must be named <subject>.v<version>.avsc", resource);
+        continue;
+      }
+      try (InputStream in = resource.getInputStream()) {
+        registry.register(name.group(1), Integer.parseInt(name.group(2)), new Schema.Parser().parse(in));
+      }
+    }
+    return registry;
+  }
+
+  public static MimeType contentType(String subject, int version) {
+    return new MimeType("application", "vnd." + subject + ".v" + version + "+avro");
+  }
+
+  public synchronized void register(String subject, int version, Schema schema) {
+    NavigableMap<Integer, Schema> versions = new TreeMap<>(subjects.getOrDefault(subject, new TreeMap<>()));
+    versions.put(version, schema);
+
+    Schema latest = versions.lastEntry().getValue();
+    versions.forEach((other, otherSchema) -> {
+      if (!compatible(latest, otherSchema) || !compatible(otherSchema, latest)) {
+        throw new IllegalStateException("Version " + other + " of " + subject + " is not fully compatible with "
+            + "version " + versions.lastKey());
+      }
+    });
+
+    LOG.info("Registered version {} of the {} schema", version, subject);
+    subjects.put(subject, versions);
+  }
+
+  public Schema schema(String subject, int version) {
+    Schema schema = versions(subject).get(version);
+    if (schema == null) {
+      throw new IllegalArgumentException("No version " + version + " of the " + subject + " schema");
+    }
+    return schema;
+  }
+
+  public Schema latest(String subject) {
+    return versions(subject).lastEntry().getValue();
+  }
+
+  // The subject and version named by an avro content type, null for any other content type
+  public static SubjectVersion parse(MimeType contentType) {
+    if (!contentType.getSubtype().endsWith("+avro")) {
+      return null;
+    }
+    Matcher matcher = CONTENT_TYPE.matcher(contentType.getSubtype());
+    if (!"application".equals(contentType.getType()) || !matcher.matches()) {
+      return null;
+    }
+    return new SubjectVersion(matcher.group(1), Integer.parseInt(matcher.group(2)));
+  }
+
+  private NavigableMap<Integer, Schema> versions(String subject) {
+    NavigableMap<Integer, Schema> versions = subjects.get(subject);
+    if (versions == null) {
+      throw new IllegalArgumentException("No schema registered for " + subject);
+    }
+    return versions;
+  }
+
+  private static boolean compatible(Schema reader, Schema writer) {
+    return SchemaCompatibility.checkReaderWriterCompatibility(reader, writer).getType()
+        == SchemaCompatibilityType.COMPATIBLE;
+  }
+
+  public static class SubjectVersion {
+    private final String subject;
+    private final int version;
+
+    SubjectVersion(String subject, int version) {
+      this.subject = subject;
+      this.version = version;
+    }
+
+    public String getSubject() {
+      return subject;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.micro.util.messaging;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternUtils;
+
+// Spring Cloud Stream adds every MessageConverter bean to the converters it picks from by content type, so each
+// service reads binary events as soon as it has the schemas, whatever its bindings are configured with. The batch
+// consumers read their records with BatchEventReader instead
+@Configuration
+public class EventSerializationConfig {
+
+  @Bean
+  EventSchemaRegistry eventSchemaRegistry(ResourceLoader resourceLoader,
+      @Value("${app.messaging.schemas:classpath*:schemas/*.avsc}") String location) throws IOException {
+    return EventSchemaRegistry.load(ResourcePatternUtils.getResourcePatternResolver(resourceLoader), location);
+  }
+
+  @Bean
+  AvroEventMessageConverter avroEventMessageConverter(EventSchemaRegistry registry) {
+    return new AvroEventMessageConverter(registry);
+  }
+}
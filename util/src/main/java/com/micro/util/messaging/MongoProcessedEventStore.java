@@ -0,0 +1,43 @@
+package com.micro.util.messaging;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// The store of the services on Mongo. It goes through the template, the repositories of a service are only scanned
+// for in its own packages
+@Component
+@ConditionalOnClass(name = "org.springframework.data.mongodb.core.ReactiveMongoTemplate")
+public class MongoProcessedEventStore implements ProcessedEventStore {
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public MongoProcessedEventStore(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Flux<UUID> processed(Collection<UUID> eventIds) {
+    return mongoTemplate
+        .find(query(where("_id").in(eventIds.stream().map(UUID::toString).toList())), ProcessedEventEntity.class)
+        .map(entity -> UUID.fromString(entity.getEventId()));
+  }
+
+  // save replaces a document with the same id, so storing an id twice is harmless
+  @Override
+  public Mono<Void> add(Collection<UUID> eventIds) {
+    Instant now = Instant.now();
+    return Flux.fromIterable(eventIds)
+        .concatMap(eventId -> mongoTemplate.save(new ProcessedEventEntity(eventId.toString(), now)))
+        .then();
+  }
+}
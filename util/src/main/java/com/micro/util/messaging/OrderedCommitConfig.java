@@ -0,0 +1,29 @@
+package com.micro.util.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+
+// With Kafka the offsets are acknowledged per message as its lane finishes it. Async acks let the lanes finish
+// out of order while the container only commits an offset once all earlier offsets of the partition are acked.
+@Configuration
+@ConditionalOnProperty(name = "app.messaging.mode", havingValue = "reactive")
+public class OrderedCommitConfig {
+  private static final Logger LOG = LoggerFactory.getLogger(OrderedCommitConfig.class);
+
+  @Bean
+  ListenerContainerCustomizer<Object> orderedCommitCustomizer() {
+    return (container, destination, group) -> {
+      if (container instanceof AbstractMessageListenerContainer<?, ?> kafkaContainer) {
+        LOG.info("Committing offsets of {} in partition order after processing", destination);
+        kafkaContainer.getContainerProperties().setAckMode(AckMode.MANUAL);
+        kafkaContainer.getContainerProperties().setAsyncAcks(true);
+      }
+    };
+  }
+}
@@ -0,0 +1,44 @@
+package com.micro.util.messaging;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// The id of an applied event. Mongo drops it a week later, long after any redelivery of the event. The entity is
+// outside the packages a service scans, its TTL index is created by auto-index-creation when the store first uses it
+@Document(collection = "processed_events")
+public class ProcessedEventEntity {
+
+  @Id
+  private String eventId;
+
+  @Indexed(expireAfter = "7d")
+  private Instant processedAt;
+
+  public ProcessedEventEntity() {
+  }
+
+  public ProcessedEventEntity(String eventId, Instant processedAt) {
+    this.eventId = eventId;
+    this.processedAt = processedAt;
+  }
+
+  public String getEventId() {
+    return this.eventId;
+  }
+
+  public void setEventId(String eventId) {
+    this.eventId = eventId;
+  }
+
+  public Instant getProcessedAt() {
+    return this.processedAt;
+  }
+
+  public void setProcessedAt(Instant processedAt) {
+    this.processedAt = processedAt;
+  }
+
+}
@@ -0,0 +1,17 @@
+package com.micro.util.messaging;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// The persistent side of the EventDeduplicator, the ids of the events a service has applied. Adding an id that is
+// already stored is not an error.
+public interface ProcessedEventStore {
+
+  // The ids out of eventIds that are stored
+  Flux<UUID> processed(Collection<UUID> eventIds);
+
+  Mono<Void> add(Collection<UUID> eventIds);
+}
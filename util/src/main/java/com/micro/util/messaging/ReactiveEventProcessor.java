@@ -0,0 +1,113 @@
+package com.micro.util.messaging;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.micro.api.event.Event;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Processes a stream of events without blocking the binder thread.
+ *
+ * Events are spread over {@code concurrency} lanes by the hash of their key. Each lane handles its events one at a
+ * time, so events with the same key are still processed in the order they arrived while up to {@code concurrency}
+ * different keys are in flight at once.
+ *
+ * At most {@code maxInFlight} events are buffered ahead of the lanes. When the events come wrapped in messages the
+ * done callback is called once a message is finished, processed or dead lettered, which lets a Kafka consumer with
+ * out of order acknowledgments commit an offset only after every earlier message of the partition is done.
+ *
+ * A failing event is retried with the same exponential back off as the binder's consumer properties. When the
+ * attempts are used up the event is handed to the dead letter callback and the stream carries on, an error would
+ * otherwise cancel the whole binding.
+ */
+public class ReactiveEventProcessor<K, T> {
+  private static final Logger LOG = LoggerFactory.getLogger(ReactiveEventProcessor.class);
+
+  private final Function<Event<K, T>, Mono<Void>> handler;
+  private final BiConsumer<Event<K, T>, Throwable> deadLetter;
+  private final int concurrency;
+  private final int maxInFlight;
+  private final int maxAttempts;
+  private final Duration initialBackOff;
+  private final Duration maxBackOff;
+  private final double backOffMultiplier;
+
+  public ReactiveEventProcessor(
+      Function<Event<K, T>, Mono<Void>> handler,
+      BiConsumer<Event<K, T>, Throwable> deadLetter,
+      int concurrency,
+      int maxInFlight,
+      int maxAttempts,
+      Duration initialBackOff,
+      Duration maxBackOff,
+      double backOffMultiplier) {
+
+    if (concurrency < 1 || maxInFlight < 1 || maxAttempts < 1) {
+      throw new IllegalArgumentException("concurrency, maxInFlight and maxAttempts must be at least 1");
+    }
+
+    this.handler = handler;
+    this.deadLetter = deadLetter;
+    this.concurrency = concurrency;
+    this.maxInFlight = maxInFlight;
+    this.maxAttempts = maxAttempts;
+    this.initialBackOff = initialBackOff;
+    this.maxBackOff = maxBackOff;
+    this.backOffMultiplier = backOffMultiplier;
+  }
+
+  public Mono<Void> process(Flux<Event<K, T>> events) {
+    return process(events, Function.identity(), event -> {
+    });
+  }
+
+  public <M> Mono<Void> process(Flux<M> messages, Function<M, Event<K, T>> eventOf, Consumer<M> done) {
+    return messages
+        .groupBy(message -> Math.floorMod(Objects.hashCode(eventOf.apply(message).getKey()), concurrency),
+            maxInFlight)
+        .flatMap(lane -> lane.concatMap(message -> processEvent(eventOf.apply(message))
+            .then(Mono.fromRunnable(() -> done.accept(message)))), concurrency)
+        .then();
+  }
+
+  private Mono<Void> processEvent(Event<K, T> event) {
+    return Mono.defer(() -> handler.apply(event))
+        .retryWhen(retrySpec(event))
+        .onErrorResume(ex -> {
+          LOG.warn("Giving up on {} event for key {} after {} attempts: {}", event.getEventType(), event.getKey(),
+              maxAttempts, ex.toString());
+          deadLetter.accept(event, ex);
+          return Mono.empty();
+        });
+  }
+
+  private Retry retrySpec(Event<K, T> event) {
+    // Retry#backoff only grows by a factor of two, so the binder's multiplier is applied by hand
+    return Retry.from(signals -> signals.concatMap(signal -> {
+      long attempt = signal.totalRetries() + 1;
+      if (attempt >= maxAttempts) {
+        return Mono.error(signal.failure());
+      }
+
+      Duration delay = backOff(attempt);
+      LOG.debug("Retrying {} event for key {} in {}ms, attempt {} failed: {}", event.getEventType(), event.getKey(),
+          delay.toMillis(), attempt, signal.failure().toString());
+      return Mono.delay(delay);
+    }));
+  }
+
+  private Duration backOff(long attempt) {
+    double millis = initialBackOff.toMillis() * Math.pow(backOffMultiplier, attempt - 1);
+    return Duration.ofMillis((long) Math.min(millis, maxBackOff.toMillis()));
+  }
+}
@@ -0,0 +1,15 @@
+package com.micro.util.persistence;
+
+/**
+ * What a create does when the entity already exists, set with app.duplicatePolicy. The core services write with an
+ * insert-if-absent or an upsert and learn from its result whether the entity existed, instead of catching the
+ * duplicate key error of a plain insert.
+ */
+public enum DuplicatePolicy {
+  // Keeps the stored entity and fails the create with an InvalidInputException, the behaviour of a plain insert
+  REJECT,
+  // Keeps the stored entity and completes the create, a replayed event is then a no-op
+  IGNORE,
+  // Replaces the stored entity with the created one
+  OVERWRITE
+}
@@ -0,0 +1,132 @@
+package com.micro.util.messaging;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static com.micro.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.avro.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.micro.api.core.product.Product;
+import com.micro.api.core.review.Review;
+import com.micro.api.event.Event;
+
+class AvroEventMessageConverterTests {
+  private EventSchemaRegistry registry;
+  private AvroEventMessageConverter converter;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    registry = EventSchemaRegistry.load(new PathMatchingResourcePatternResolver(), "classpath*:schemas/*.avsc");
+    converter = new AvroEventMessageConverter(registry);
+  }
+
+  @Test
+  void productEventRoundTrips() {
+    ZonedDateTime creationDate = ZonedDateTime.of(2024, 5, 14, 9, 56, 1, 123456000, ZoneId.of("Europe/Stockholm"));
+    UUID eventId = UUID.randomUUID();
+    Event<Integer, Product> event = new Event<>(eventId, CREATE, 1, new Product(1, "name", 2, null), null,
+        creationDate);
+
+    Event<Integer, Product> read = roundTrip(event, "product-event", 2);
+
+    assertEquals(eventId, read.getEventId());
+    assertEquals(CREATE, read.getEventType());
+    assertEquals(1, read.getKey());
+    assertEquals("name", read.getData().getName());
+    assertEquals(2, read.getData().getWeight());
+    assertNull(read.getData().getServiceAddress());
+    assertNull(read.getBulkData());
+    assertEquals(creationDate, read.getCreationDate());
+  }
+
+  @Test
+  void bulkAndDeleteEventsRoundTrip() {
+    List<Review> reviews = List.of(new Review(1, 1, "a", "s", "c", null), new Review(1, 2, "b", "t", "d", null));
+
+    Event<Integer, Review> bulk = roundTrip(Event.bulkCreate(1, reviews), "review-event", 2);
+    assertEquals(List.of(1, 2), bulk.getBulkData().stream().map(Review::getReviewId).toList());
+    assertNull(bulk.getData());
+
+    Event<Integer, Review> delete = roundTrip(new Event<>(DELETE, 1, null), "review-event", 2);
+    assertEquals(DELETE, delete.getEventType());
+    assertNull(delete.getData());
+  }
+
+  @Test
+  void jsonMessagesAreLeftToTheJsonConverter() {
+    Message<byte[]> json = MessageBuilder.withPayload("{}".getBytes())
+        .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+        .build();
+
+    assertNull(converter.fromMessage(json, Event.class));
+  }
+
+  @Test
+  void messagesOfAnOlderVersionAreReadWithTheLatest() {
+    Schema v2 = registry.latest("product-event");
+    registry.register("product-event", 3,
+        withField(v2, "{\"name\":\"source\",\"type\":[\"null\",\"string\"],\"default\":null}"));
+
+    Event<Integer, Product> read = roundTrip(new Event<>(CREATE, 1, new Product(1, "name", 2, "a")),
+        "product-event", 2);
+
+    assertEquals("name", read.getData().getName());
+    assertEquals("a", roundTrip(new Event<>(CREATE, 1, new Product(1, "name", 2, "a")), "product-event", 3)
+        .getData().getServiceAddress());
+  }
+
+  @Test
+  void eventsOfVersionOneHaveNoId() {
+    Event<Integer, Product> read = roundTrip(new Event<>(CREATE, 1, new Product(1, "name", 2, null)),
+        "product-event", 1);
+
+    assertNull(read.getEventId());
+    assertEquals("name", read.getData().getName());
+  }
+
+  @Test
+  void incompatibleVersionsAreRefused() {
+    Schema v2 = registry.latest("product-event");
+
+    assertThrows(IllegalStateException.class,
+        () -> registry.register("product-event", 3, withField(v2, "{\"name\":\"source\",\"type\":\"string\"}")));
+    assertEquals(v2, registry.latest("product-event"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Event<Integer, T> roundTrip(Event<Integer, T> event, String subject, int version) {
+    MessageHeaders headers = new MessageHeaders(
+        Map.of(MessageHeaders.CONTENT_TYPE, EventSchemaRegistry.contentType(subject, version)));
+    Message<?> written = converter.toMessage(event, headers);
+    return (Event<Integer, T>) converter.fromMessage(
+        message((byte[]) written.getPayload(), subject, version), Event.class);
+  }
+
+  private Message<byte[]> message(byte[] payload, String subject, int version) {
+    MimeType contentType = EventSchemaRegistry.contentType(subject, version);
+    return MessageBuilder.withPayload(payload).setHeader(MessageHeaders.CONTENT_TYPE, contentType).build();
+  }
+
+  // A copy of the schema with a field added after the last one
+  private Schema withField(Schema schema, String field) {
+    String json = schema.toString();
+    return new Schema.Parser().parse(json.substring(0, json.length() - 2) + "," + field + "]}");
+  }
+}
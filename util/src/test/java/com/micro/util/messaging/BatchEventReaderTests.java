@@ -0,0 +1,132 @@
+package com.micro.util.messaging;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.function.context.FunctionRegistration;
+import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry;
+import org.springframework.cloud.function.context.config.JsonMessageConverter;
+import org.springframework.cloud.function.context.config.SmartCompositeMessageConverter;
+import org.springframework.cloud.function.json.JacksonMapper;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.micro.api.core.product.Product;
+import com.micro.api.event.Event;
+
+class BatchEventReaderTests {
+  private static final MimeType AVRO = EventSchemaRegistry.contentType("product-event", 2);
+
+  private ObjectMapper mapper;
+  private AvroEventMessageConverter avroConverter;
+  private BatchEventReader reader;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    avroConverter = new AvroEventMessageConverter(
+        EventSchemaRegistry.load(new PathMatchingResourcePatternResolver(), "classpath*:schemas/*.avsc"));
+    reader = new BatchEventReader(avroConverter, mapper);
+  }
+
+  @Test
+  void recordsAreReadWithTheirOwnContentType() throws IOException {
+    Message<List<byte[]>> batch = batch(List.of(avro(1), json(2), avro(3)),
+        List.of(AVRO, MimeTypeUtils.APPLICATION_JSON, AVRO));
+
+    assertEquals(List.of(1, 2, 3), productIds(reader.events(batch, Product.class)));
+  }
+
+  @Test
+  void unreadableRecordsAreSkipped() throws IOException {
+    Message<List<byte[]>> batch = batch(List.of(avro(1), "not an event".getBytes(), json(3)),
+        List.of(AVRO, MimeTypeUtils.APPLICATION_JSON, MimeTypeUtils.APPLICATION_JSON));
+
+    assertEquals(List.of(1, 3), productIds(reader.events(batch, Product.class)));
+  }
+
+  @Test
+  void recordsWithoutTheirOwnHeadersAreReadWithTheContentTypeOfTheBatch() throws IOException {
+    Message<List<byte[]>> batch = MessageBuilder.withPayload(List.of(json(1), json(2)))
+        .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+        .build();
+
+    assertEquals(List.of(1, 2), productIds(reader.events(batch, Product.class)));
+  }
+
+  // A batch consumer bound as Message<?> gets the raw records from the function catalog, where one bound as
+  // List<Event> gets only the records the content type of the batch could convert
+  @Test
+  @SuppressWarnings("unchecked")
+  void batchConsumerGetsEveryRecordThroughTheFunctionCatalog() throws IOException {
+    JacksonMapper jsonMapper = new JacksonMapper(mapper);
+    SimpleFunctionRegistry catalog = new SimpleFunctionRegistry(new DefaultConversionService(),
+        new SmartCompositeMessageConverter(List.of(avroConverter, new JsonMessageConverter(jsonMapper))), jsonMapper);
+
+    List<Event<Integer, Product>> read = new ArrayList<>();
+    Consumer<Message<?>> rawConsumer = batch -> read.addAll(reader.events(batch, Product.class));
+    register(catalog, "raw", rawConsumer, new ParameterizedTypeReference<Consumer<Message<?>>>() {}.getType());
+    List<Event<Integer, Product>> converted = new ArrayList<>();
+    Consumer<List<Event<Integer, Product>>> listConsumer = converted::addAll;
+    register(catalog, "converted", listConsumer,
+        new ParameterizedTypeReference<Consumer<List<Event<Integer, Product>>>>() {}.getType());
+
+    Message<List<byte[]>> batch = MessageBuilder.fromMessage(batch(List.of(avro(1), json(2)),
+        List.of(AVRO, MimeTypeUtils.APPLICATION_JSON)))
+        .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+        .build();
+    ((Function<Object, Object>) catalog.lookup("raw")).apply(batch);
+    ((Function<Object, Object>) catalog.lookup("converted")).apply(batch);
+
+    assertEquals(List.of(1, 2), productIds(read));
+    assertEquals(List.of(2), productIds(converted));
+  }
+
+  private <T> void register(SimpleFunctionRegistry catalog, String name, Consumer<T> consumer, Type type) {
+    catalog.register(new FunctionRegistration<>(consumer, name).type(type));
+  }
+
+  private Message<List<byte[]>> batch(List<byte[]> records, List<MimeType> contentTypes) {
+    return MessageBuilder.withPayload(records)
+        .setHeader(KafkaHeaders.BATCH_CONVERTED_HEADERS, contentTypes.stream()
+            .map(contentType -> Map.of(MessageHeaders.CONTENT_TYPE, contentType.toString()))
+            .toList())
+        .build();
+  }
+
+  private byte[] avro(int productId) {
+    return (byte[]) avroConverter.toMessage(event(productId),
+        new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, AVRO))).getPayload();
+  }
+
+  private byte[] json(int productId) throws IOException {
+    return mapper.writeValueAsBytes(event(productId));
+  }
+
+  private Event<Integer, Product> event(int productId) {
+    return new Event<>(CREATE, productId, new Product(productId, "name", 1, null));
+  }
+
+  private List<Integer> productIds(List<Event<Integer, Product>> events) {
+    return events.stream().map(event -> event.getData().getProductId()).toList();
+  }
+}
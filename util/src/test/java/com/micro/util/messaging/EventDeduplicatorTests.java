@@ -0,0 +1,127 @@
+package com.micro.util.messaging;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.micro.api.event.Event;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class EventDeduplicatorTests {
+
+  private final InMemoryStore store = new InMemoryStore();
+  private final List<String> applied = new ArrayList<>();
+
+  @Test
+  void redeliveredEventIsAppliedOnce() {
+    EventDeduplicator deduplicator = new EventDeduplicator(store, 10);
+    Event<Integer, String> event = new Event<>(CREATE, 1, "a");
+
+    StepVerifier.create(deduplicator.applyOnce(event, this::apply)).verifyComplete();
+    StepVerifier.create(deduplicator.applyOnce(event, this::apply)).verifyComplete();
+
+    assertEquals(List.of("a"), applied);
+    assertEquals(1, store.lookups.get());
+  }
+
+  @Test
+  void eventAppliedByAnotherInstanceIsFoundInTheStore() {
+    Event<Integer, String> event = new Event<>(CREATE, 1, "a");
+    StepVerifier.create(new EventDeduplicator(store, 10).applyOnce(event, this::apply)).verifyComplete();
+
+    StepVerifier.create(new EventDeduplicator(store, 10).applyOnce(event, this::apply)).verifyComplete();
+
+    assertEquals(List.of("a"), applied);
+    assertEquals(2, store.lookups.get());
+  }
+
+  @Test
+  void evictedIdsAreLookedUpInTheStore() {
+    EventDeduplicator deduplicator = new EventDeduplicator(store, 2);
+    Event<Integer, String> first = new Event<>(CREATE, 1, "a");
+    deduplicator.applyOnce(first, this::apply).block();
+    deduplicator.applyOnce(new Event<>(CREATE, 2, "b"), this::apply).block();
+    deduplicator.applyOnce(new Event<>(CREATE, 3, "c"), this::apply).block();
+
+    deduplicator.applyOnce(first, this::apply).block();
+
+    assertEquals(List.of("a", "b", "c"), applied);
+    assertEquals(4, store.lookups.get());
+  }
+
+  @Test
+  void failedEventIsAppliedAgain() {
+    EventDeduplicator deduplicator = new EventDeduplicator(store, 10);
+    Event<Integer, String> event = new Event<>(CREATE, 1, "a");
+
+    StepVerifier.create(deduplicator.applyOnce(event, e -> Mono.error(new IllegalStateException("down"))))
+        .verifyError(IllegalStateException.class);
+    StepVerifier.create(deduplicator.applyOnce(event, this::apply)).verifyComplete();
+
+    assertEquals(List.of("a"), applied);
+    assertEquals(Set.of(event.getEventId()), store.ids);
+  }
+
+  @Test
+  void eventsWithoutIdAreAlwaysApplied() {
+    EventDeduplicator deduplicator = new EventDeduplicator(store, 10);
+    Event<Integer, String> event = new Event<>(null, CREATE, 1, "a", null, ZonedDateTime.now());
+
+    deduplicator.applyOnce(event, this::apply).block();
+    deduplicator.applyOnce(event, this::apply).block();
+
+    assertEquals(List.of("a", "a"), applied);
+    assertEquals(0, store.lookups.get());
+  }
+
+  @Test
+  void batchKeepsTheEventsNotAppliedYet() {
+    EventDeduplicator deduplicator = new EventDeduplicator(store, 10);
+    Event<Integer, String> done = new Event<>(CREATE, 1, "a");
+    Event<Integer, String> stored = new Event<>(CREATE, 2, "b");
+    Event<Integer, String> fresh = new Event<>(CREATE, 3, "c");
+    Event<Integer, String> withoutId = new Event<>(null, CREATE, 4, "d", null, ZonedDateTime.now());
+    deduplicator.applyOnce(done, this::apply).block();
+    store.add(List.of(stored.getEventId())).block();
+
+    List<Event<Integer, String>> unprocessed = deduplicator
+        .unprocessed(List.of(done, fresh, stored, withoutId, fresh))
+        .block();
+
+    assertEquals(List.of(fresh, withoutId), unprocessed);
+    assertEquals(2, store.lookups.get());
+  }
+
+  private Mono<Void> apply(Event<Integer, String> event) {
+    return Mono.fromRunnable(() -> applied.add(event.getData()));
+  }
+
+  private static class InMemoryStore implements ProcessedEventStore {
+    private final Set<UUID> ids = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Override
+    public Flux<UUID> processed(Collection<UUID> eventIds) {
+      lookups.incrementAndGet();
+      return Flux.fromIterable(eventIds).filter(ids::contains);
+    }
+
+    @Override
+    public Mono<Void> add(Collection<UUID> eventIds) {
+      return Mono.fromRunnable(() -> ids.addAll(eventIds));
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.micro.util.messaging;
+
+import static com.micro.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.micro.api.event.Event;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ReactiveEventProcessorTests {
+
+  private final List<Event<Integer, String>> deadLetters = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  void keepsOrderPerKeyWhileKeysRunConcurrently() {
+    Map<Integer, List<String>> processed = new ConcurrentHashMap<>();
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    ReactiveEventProcessor<Integer, String> processor = processor(event -> Mono.delay(Duration.ofMillis(10))
+        .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+        .doOnNext(l -> {
+          inFlight.decrementAndGet();
+          processed.computeIfAbsent(event.getKey(), k -> Collections.synchronizedList(new ArrayList<>()))
+              .add(event.getData());
+        })
+        .then(), 4, 1);
+
+    Flux<Event<Integer, String>> events = Flux.range(0, 40)
+        .map(i -> new Event<>(CREATE, i % 4, String.valueOf(i)));
+
+    StepVerifier.create(processor.process(events)).verifyComplete();
+
+    for (int key = 0; key < 4; key++) {
+      List<String> expected = new ArrayList<>();
+      for (int i = key; i < 40; i += 4) {
+        expected.add(String.valueOf(i));
+      }
+      assertEquals(expected, processed.get(key));
+    }
+    assertTrue(maxInFlight.get() > 1, "expected concurrent processing, max in flight " + maxInFlight.get());
+    assertEquals(0, deadLetters.size());
+  }
+
+  @Test
+  void retriesFailedEvent() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    ReactiveEventProcessor<Integer, String> processor = processor(event -> attempts.incrementAndGet() < 3
+        ? Mono.error(new RuntimeException("failure " + attempts.get()))
+        : Mono.empty(), 2, 3);
+
+    StepVerifier.create(processor.process(Flux.just(new Event<>(CREATE, 1, "a")))).verifyComplete();
+
+    assertEquals(3, attempts.get());
+    assertEquals(0, deadLetters.size());
+  }
+
+  @Test
+  void deadLettersEventWhenAttemptsAreUsedUpAndContinues() {
+    AtomicInteger attempts = new AtomicInteger();
+    List<String> processed = Collections.synchronizedList(new ArrayList<>());
+
+    ReactiveEventProcessor<Integer, String> processor = processor(event -> {
+      if (event.getData().equals("bad")) {
+        attempts.incrementAndGet();
+        throw new IllegalStateException("bad event");
+      }
+      processed.add(event.getData());
+      return Mono.empty();
+    }, 2, 3);
+
+    Flux<Event<Integer, String>> events = Flux.just(new Event<>(CREATE, 1, "bad"), new Event<>(CREATE, 1, "good"));
+    StepVerifier.create(processor.process(events)).verifyComplete();
+
+    assertEquals(3, attempts.get());
+    assertEquals(1, deadLetters.size());
+    assertEquals("bad", deadLetters.get(0).getData());
+    assertEquals(List.of("good"), processed);
+  }
+
+  @Test
+  void signalsDoneForEveryMessageIncludingDeadLettered() {
+    List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+
+    ReactiveEventProcessor<Integer, String> processor = processor(event -> event.getData().equals("bad")
+        ? Mono.error(new IllegalStateException("bad event"))
+        : Mono.delay(Duration.ofMillis(5 * event.getKey())).then(), 3, 2);
+
+    List<Event<Integer, String>> events = List.of(new Event<>(CREATE, 3, "a"), new Event<>(CREATE, 1, "bad"),
+        new Event<>(CREATE, 2, "b"), new Event<>(CREATE, 3, "c"));
+
+    StepVerifier.create(processor.process(Flux.range(0, events.size()), events::get, done::add)).verifyComplete();
+
+    assertEquals(4, done.size());
+    assertTrue(done.indexOf(0) < done.indexOf(3), "same key done out of order: " + done);
+    assertEquals(1, deadLetters.size());
+  }
+
+  private ReactiveEventProcessor<Integer, String> processor(Function<Event<Integer, String>, Mono<Void>> handler,
+      int concurrency, int maxAttempts) {
+    return new ReactiveEventProcessor<>(handler, (event, ex) -> deadLetters.add(event), concurrency, 16,
+        maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5), 2.0);
+  }
+}